@@ -0,0 +1,53 @@
+package bio.terra.iffy;
+
+import bio.terra.iffy.model.SystemStatus;
+import bio.terra.iffy.model.SystemStatusSystems;
+import bio.terra.iffy.model.VersionProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Serialization of the public API responses with the application's ObjectMapper. */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+  private ObjectMapper objectMapper;
+  private SystemStatus systemStatus;
+  private VersionProperties versionProperties;
+
+  @Setup
+  public void setUp() {
+    objectMapper = new App().objectMapper();
+    systemStatus =
+        new SystemStatus()
+            .ok(false)
+            .systems(
+                Map.of(
+                    "Sam",
+                    new SystemStatusSystems().ok(true),
+                    "Flags",
+                    new SystemStatusSystems()
+                        .ok(false)
+                        .messages(List.of("Flag definitions could not be loaded"))));
+    versionProperties =
+        new VersionProperties()
+            .gitTag("0.17.0")
+            .gitHash("070ee5e")
+            .github("https://github.com/DataBiosphere/Iffy/commit/070ee5e")
+            .build("0.17.0-SNAPSHOT");
+  }
+
+  @Benchmark
+  public byte[] serializeSystemStatus() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(systemStatus);
+  }
+
+  @Benchmark
+  public byte[] serializeVersionProperties() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(versionProperties);
+  }
+}
@@ -0,0 +1,60 @@
+package bio.terra.iffy.flags;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Evaluating flags of each kind of targeting against a typical context. */
+@State(Scope.Benchmark)
+public class FlagEvaluationBenchmark {
+  private Map<String, FlagDefinition> flags;
+  private FlagContext context;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream inputStream = getClass().getResourceAsStream("/benchmark-flags.json")) {
+      flags = new FlagdParser(new ObjectMapper()).parse(inputStream);
+    }
+    context =
+        FlagContext.of(
+            "user-1234",
+            Map.of("email", "someone@broadinstitute.org", "uiVersion", "2.3.1", "tier", "free"));
+  }
+
+  @Benchmark
+  public ResolutionDetails staticFlag() {
+    return FlagEvaluator.evaluate(flags.get("static"), context);
+  }
+
+  @Benchmark
+  public ResolutionDetails targetedFlag() {
+    return FlagEvaluator.evaluate(flags.get("targeted"), context);
+  }
+
+  @Benchmark
+  public ResolutionDetails fractionalFlag() {
+    return FlagEvaluator.evaluate(flags.get("fractional"), context);
+  }
+
+  @Benchmark
+  public ResolutionDetails semVerFlag() {
+    return FlagEvaluator.evaluate(flags.get("sem-ver"), context);
+  }
+
+  /** The targeted flag's rule through the reference interpreter, for comparison. */
+  @Benchmark
+  public Object targetingInterpreted() {
+    FlagDefinition flag = flags.get("targeted");
+    return JsonLogic.apply(flag.targeting(), context, flag.key());
+  }
+
+  @Benchmark
+  public Object targetingCompiled() {
+    return flags.get("targeted").compiledTargeting().evaluate(context);
+  }
+}
@@ -0,0 +1,42 @@
+package bio.terra.iffy.flags;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Selecting a percentage rollout variant for a targeting key: concatenating, encoding and hashing
+ * per evaluation, as the interpreter does, against the bucketer compiled rules use. Run with "-prof
+ * gc" to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+public class FractionalBenchmark {
+  private static final String FLAG_KEY = "new-welcome-message";
+  private static final List<Object> DISTRIBUTION =
+      List.of(List.of("control", 50), List.of("treatment-a", 25), List.of("treatment-b", 25));
+
+  @Param({"user-1234", "8f14e45f-ceea-467a-9575-6f6d4fe2a7b1", "j\u00f6rg.m\u00fcller@example.de"})
+  private String targetingKey;
+
+  private FractionalBucketer bucketer;
+
+  @Setup
+  public void setUp() {
+    bucketer = FractionalBucketer.of(FLAG_KEY, DISTRIBUTION);
+  }
+
+  @Benchmark
+  public String concatenated() {
+    byte[] bucketBy = (FLAG_KEY + targetingKey).getBytes(StandardCharsets.UTF_8);
+    return Fractional.select(Murmur3.hash32(bucketBy), DISTRIBUTION);
+  }
+
+  @Benchmark
+  public String bucketer() {
+    return bucketer.selectByTargetingKey(targetingKey);
+  }
+}
@@ -0,0 +1,53 @@
+package bio.terra.iffy.iam;
+
+import bio.terra.iffy.config.SamConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.broadinstitute.dsde.workbench.client.sam.ApiClient;
+import org.broadinstitute.dsde.workbench.client.sam.ApiException;
+import org.broadinstitute.dsde.workbench.client.sam.api.ResourcesApi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cost of getting a Sam API to call: building a SamClient (done once at startup), getting the
+ * shared API with a caller's token, and, for comparison, building a new ApiClient per call.
+ */
+@State(Scope.Benchmark)
+public class SamClientBenchmark {
+  private static final SamConfiguration CONFIGURATION =
+      new SamConfiguration("https://sam.example.org", 32, 300, 128, 64, 5, 10);
+
+  private SamClient samClient;
+
+  @Setup
+  public void setUp() {
+    samClient = newSamClient();
+  }
+
+  private static SamClient newSamClient() {
+    return new SamClient(CONFIGURATION, Optional.empty(), new SimpleMeterRegistry());
+  }
+
+  @Benchmark
+  public SamClient constructSamClient() {
+    return newSamClient();
+  }
+
+  @Benchmark
+  public ResourcesApi sharedResourcesApi() throws ApiException {
+    return samClient.withAccessToken("token", samClient::resourcesApi);
+  }
+
+  @Benchmark
+  public ResourcesApi newApiClientPerCall() {
+    var apiClient =
+        new ApiClient()
+            .setHttpClient(samClient.apiClient().getHttpClient())
+            .setBasePath(CONFIGURATION.basePath());
+    apiClient.setAccessToken("token");
+    return new ResourcesApi(apiClient);
+  }
+}
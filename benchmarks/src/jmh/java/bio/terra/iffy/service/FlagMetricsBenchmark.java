@@ -0,0 +1,98 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.config.FlagConfiguration;
+import bio.terra.iffy.config.MetricsConfiguration;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagEvaluator;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.FlagdParser;
+import bio.terra.iffy.flags.ResolutionDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * The cost that recording metrics adds to a flag evaluation, with meters looked up per call in
+ * the registry, as ExampleController used to, and with the meters FlagMetrics registers up front.
+ */
+@State(Scope.Benchmark)
+public class FlagMetricsBenchmark {
+  private MeterRegistry meterRegistry;
+  private FlagMetrics flagMetrics;
+  private FlagSnapshot snapshot;
+  private FlagDefinition flag;
+  private FlagContext context;
+
+  @Setup
+  public void setUp() throws IOException {
+    Map<String, FlagDefinition> flags;
+    try (InputStream inputStream = getClass().getResourceAsStream("/benchmark-flags.json")) {
+      flags = new FlagdParser(new ObjectMapper()).parse(inputStream);
+    }
+    var flagStore =
+        new FlagStore(
+            new FlagConfiguration("classpath:benchmark-flags.json", 0, null, 0),
+            new DefaultResourceLoader(),
+            new ObjectMapper(),
+            Optional.empty(),
+            event -> {});
+    snapshot = flagStore.publish(flags);
+    flag = snapshot.get("targeted");
+    context = FlagContext.of("user-1234", Map.of("email", "someone@broadinstitute.org"));
+    meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    flagMetrics = new FlagMetrics(flagStore, new MetricsConfiguration(500), meterRegistry);
+  }
+
+  @Benchmark
+  public ResolutionDetails uninstrumented() {
+    return FlagEvaluator.evaluate(flag, context);
+  }
+
+  @Benchmark
+  public ResolutionDetails registryLookup() {
+    long start = System.nanoTime();
+    ResolutionDetails resolution = FlagEvaluator.evaluate(flag, context);
+    meterRegistry
+        .timer(FlagMetrics.LATENCY_METRIC, "flag", flag.key())
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    meterRegistry
+        .counter(
+            FlagMetrics.EVALUATIONS_METRIC,
+            "flag",
+            flag.key(),
+            "variant",
+            resolution.variant(),
+            "reason",
+            resolution.reason().name())
+        .increment();
+    return resolution;
+  }
+
+  @Benchmark
+  public ResolutionDetails preRegistered() {
+    FlagMetrics.FlagMeters meters = flagMetrics.forFlag(snapshot, flag.key());
+    long start = System.nanoTime();
+    ResolutionDetails resolution = FlagEvaluator.evaluate(flag, context);
+    meters.record(resolution, System.nanoTime() - start);
+    return resolution;
+  }
+
+  @Benchmark
+  @Threads(8)
+  public ResolutionDetails preRegisteredContended() {
+    return preRegistered();
+  }
+}
@@ -0,0 +1,50 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.config.StatusCheckConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.model.SystemStatus;
+import bio.terra.iffy.model.SystemStatusSystems;
+import bio.terra.iffy.service.BaseStatusService.SerializedStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/** Reading the cached status, as every /status request does. */
+@State(Scope.Benchmark)
+public class StatusBenchmark {
+  private BaseStatusService statusService;
+
+  @Setup
+  public void setUp() {
+    statusService =
+        new BaseStatusService(
+            new StatusCheckConfiguration(true, 60, 0, 3600, 10, Map.of()),
+            new SimpleMeterRegistry(),
+            new ExecutorFactory(),
+            new ObjectMapper());
+    statusService.registerStatusCheck("Sam", () -> new SystemStatusSystems().ok(true));
+    statusService.registerStatusCheck("Flags", () -> new SystemStatusSystems().ok(true));
+    statusService.checkStatus();
+  }
+
+  @Benchmark
+  public SystemStatus getCurrentStatus() {
+    return statusService.getCurrentStatus();
+  }
+
+  @Benchmark
+  public SerializedStatus getCurrentSerializedStatus() {
+    return statusService.getCurrentSerializedStatus();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public SystemStatus getCurrentStatusContended() {
+    return statusService.getCurrentStatus();
+  }
+}
@@ -0,0 +1,231 @@
+package bio.terra.iffy.sdk;
+
+import bio.terra.iffy.api.FlagsApi;
+import bio.terra.iffy.client.ApiClient;
+import bio.terra.iffy.client.ApiException;
+import bio.terra.iffy.flags.ErrorCode;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagEvaluator;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.FlagdParser;
+import bio.terra.iffy.flags.ResolutionDetails;
+import bio.terra.iffy.model.FlagDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluates Iffy flags in the caller's process. Every flag definition is fetched from Iffy once,
+ * then kept fresh by polling with the document's etag, so an unchanged poll costs a 304 and no
+ * parsing. Evaluations never leave the process: they read the last fetched snapshot with the same
+ * evaluator Iffy uses, and carry on with it while Iffy cannot be reached.
+ *
+ * <p>Metrics: iffy.sdk.evaluations counts evaluations by whether the flag was found (result=hit
+ * or miss), iffy.sdk.refresh times polls by outcome (updated, unchanged or failed), and
+ * iffy.sdk.staleness is the time since the last successful poll.
+ */
+public class IffyFlags implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(IffyFlags.class);
+
+  static final String METRIC_PREFIX = "iffy.sdk";
+
+  /** Fetches the flag document, or returns null if it has not changed since the given etag. */
+  @FunctionalInterface
+  interface DocumentSource {
+    FlagDocument fetch(String etag) throws ApiException;
+  }
+
+  private final DocumentSource source;
+  private final Duration refreshInterval;
+  private final Clock clock;
+  private final FlagdParser parser = new FlagdParser(new ObjectMapper());
+  private final ScheduledExecutorService refresher;
+  private final Counter hits;
+  private final Counter misses;
+  private final Timer refreshedUpdated;
+  private final Timer refreshedUnchanged;
+  private final Timer refreshFailed;
+
+  private volatile FlagSnapshot snapshot = FlagSnapshot.EMPTY;
+  /** etag of the snapshot's document; only the refresher thread writes it after start */
+  private volatile String etag;
+  /** when a poll last succeeded, or null if none has */
+  private volatile Instant refreshedAt;
+
+  IffyFlags(
+      DocumentSource source, Duration refreshInterval, MeterRegistry meterRegistry, Clock clock) {
+    this.source = source;
+    this.refreshInterval = refreshInterval;
+    this.clock = clock;
+    this.refresher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "iffy-flags-refresh");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.hits = evaluations(meterRegistry, "hit");
+    this.misses = evaluations(meterRegistry, "miss");
+    this.refreshedUpdated = refresh(meterRegistry, "updated");
+    this.refreshedUnchanged = refresh(meterRegistry, "unchanged");
+    this.refreshFailed = refresh(meterRegistry, "failed");
+    TimeGauge.builder(
+            METRIC_PREFIX + ".staleness", this, TimeUnit.MILLISECONDS, IffyFlags::stalenessMillis)
+        .description("Time since flag definitions were last fetched or confirmed current")
+        .register(meterRegistry);
+  }
+
+  public static Builder builder(ApiClient apiClient) {
+    return new Builder(apiClient);
+  }
+
+  private static Counter evaluations(MeterRegistry meterRegistry, String result) {
+    return Counter.builder(METRIC_PREFIX + ".evaluations")
+        .description("Flags evaluated locally")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private static Timer refresh(MeterRegistry meterRegistry, String outcome) {
+    return Timer.builder(METRIC_PREFIX + ".refresh")
+        .description("Polls of Iffy for changed flag definitions")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Fetches the flags and starts keeping them fresh. Refreshing continues in the background even
+   * if this first fetch fails, so callers that would rather start without flags may carry on.
+   *
+   * @throws ApiException if the first fetch fails
+   */
+  public void start() throws ApiException {
+    refresher.scheduleWithFixedDelay(
+        this::refreshQuietly,
+        refreshInterval.toMillis(),
+        refreshInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+    refresh();
+  }
+
+  @Override
+  public void close() {
+    refresher.shutdownNow();
+  }
+
+  /** Resolves a flag against the context. Unknown flags resolve to a FLAG_NOT_FOUND error. */
+  public ResolutionDetails evaluate(String flagKey, FlagContext context) {
+    FlagDefinition flag = snapshot.get(flagKey);
+    if (flag == null) {
+      misses.increment();
+      return ResolutionDetails.error(flagKey, ErrorCode.FLAG_NOT_FOUND, "Flag not found");
+    }
+    hits.increment();
+    return FlagEvaluator.evaluate(flag, context);
+  }
+
+  /**
+   * @return the flag's value if it resolves to a boolean, otherwise the default value
+   */
+  public boolean getBooleanValue(String flagKey, boolean defaultValue, FlagContext context) {
+    return evaluate(flagKey, context).value() instanceof Boolean value ? value : defaultValue;
+  }
+
+  /**
+   * @return the flag's value if it resolves to a string, otherwise the default value
+   */
+  public String getStringValue(String flagKey, String defaultValue, FlagContext context) {
+    return evaluate(flagKey, context).value() instanceof String value ? value : defaultValue;
+  }
+
+  /** Returns the flags currently being evaluated. */
+  public FlagSnapshot snapshot() {
+    return snapshot;
+  }
+
+  /** Fetches the flags if they have changed. Called on the refresher thread, and by start. */
+  synchronized void refresh() throws ApiException {
+    long start = System.nanoTime();
+    Timer outcome = refreshFailed;
+    try {
+      FlagDocument document = source.fetch(etag);
+      if (document == null) {
+        outcome = refreshedUnchanged;
+      } else {
+        FlagSnapshot previous = snapshot;
+        FlagdParser.Document parsed =
+            parser.parseDocument(document.getDocument(), previous.asMap());
+        snapshot = new FlagSnapshot(previous.version() + 1, parsed.flags(), parsed.segments());
+        etag = document.getEtag();
+        outcome = refreshedUpdated;
+      }
+      refreshedAt = clock.instant();
+    } finally {
+      outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (Exception e) {
+      logger.warn("Failed to refresh Iffy flags; still serving the previous ones", e);
+    }
+  }
+
+  private double stalenessMillis() {
+    Instant at = refreshedAt;
+    return at == null ? Double.NaN : Duration.between(at, clock.instant()).toMillis();
+  }
+
+  /** Builds an {@link IffyFlags} that fetches flags through the generated client. */
+  public static final class Builder {
+    private final ApiClient apiClient;
+    private Duration refreshInterval = Duration.ofSeconds(30);
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private Builder(ApiClient apiClient) {
+      this.apiClient = apiClient;
+    }
+
+    /** How often to poll Iffy for changes; 30 seconds by default. */
+    public Builder refreshInterval(Duration refreshInterval) {
+      this.refreshInterval = refreshInterval;
+      return this;
+    }
+
+    /** Where to register metrics; Micrometer's global registry by default. */
+    public Builder meterRegistry(MeterRegistry meterRegistry) {
+      this.meterRegistry = meterRegistry;
+      return this;
+    }
+
+    public IffyFlags build() {
+      var flagsApi = new FlagsApi(apiClient);
+      DocumentSource source =
+          etag -> {
+            try {
+              return flagsApi.getFlagDocument(etag);
+            } catch (ApiException e) {
+              if (e.getCode() == 304) {
+                return null;
+              }
+              throw e;
+            }
+          };
+      return new IffyFlags(source, refreshInterval, meterRegistry, Clock.systemUTC());
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package bio.terra.iffy.sdk;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.iffy.client.ApiException;
+import bio.terra.iffy.flags.ErrorCode;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.model.FlagDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class IffyFlagsTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Clock clock = Clock.fixed(Instant.ofEpochSecond(1000), ZoneOffset.UTC);
+
+  private static FlagDocument document(String etag, String defaultVariant) {
+    Map<String, Object> flag =
+        Map.of(
+            "state", "ENABLED",
+            "variants", Map.of("on", true, "off", false),
+            "defaultVariant", defaultVariant);
+    return new FlagDocument().etag(etag).document(Map.of("flags", Map.of("new-ui", flag)));
+  }
+
+  /** Serves the queued documents in order, then reports each as unchanged. */
+  private static class FakeSource implements IffyFlags.DocumentSource {
+    final List<Object> responses = new ArrayList<>();
+    final List<String> etagsSent = new ArrayList<>();
+
+    @Override
+    public FlagDocument fetch(String etag) throws ApiException {
+      etagsSent.add(etag);
+      Object response = responses.isEmpty() ? null : responses.remove(0);
+      if (response instanceof ApiException e) {
+        throw e;
+      }
+      return (FlagDocument) response;
+    }
+  }
+
+  private IffyFlags flags(FakeSource source) {
+    return new IffyFlags(source, Duration.ofHours(1), meterRegistry, clock);
+  }
+
+  @Test
+  void evaluatesFetchedFlags() throws Exception {
+    var source = new FakeSource();
+    source.responses.add(document("a", "on"));
+    try (var flags = flags(source)) {
+      flags.start();
+
+      assertThat(flags.getBooleanValue("new-ui", false, FlagContext.EMPTY), is(true));
+      assertThat(
+          flags.evaluate("unknown", FlagContext.EMPTY).errorCode(), is(ErrorCode.FLAG_NOT_FOUND));
+      assertThat(
+          meterRegistry.counter(IffyFlags.METRIC_PREFIX + ".evaluations", "result", "hit").count(),
+          is(1.0));
+      assertThat(
+          meterRegistry.counter(IffyFlags.METRIC_PREFIX + ".evaluations", "result", "miss").count(),
+          is(1.0));
+    }
+  }
+
+  @Test
+  void refreshSendsEtagAndKeepsUnchangedSnapshot() throws Exception {
+    var source = new FakeSource();
+    source.responses.add(document("a", "on"));
+    try (var flags = flags(source)) {
+      flags.start();
+      var first = flags.snapshot();
+
+      flags.refresh();
+      assertThat(flags.snapshot(), is(first));
+
+      source.responses.add(document("b", "off"));
+      flags.refresh();
+      assertThat(flags.getBooleanValue("new-ui", true, FlagContext.EMPTY), is(false));
+      assertThat(flags.snapshot().version(), is(2L));
+
+      assertThat(source.etagsSent, is(Arrays.asList(null, "a", "a")));
+      assertThat(refreshCount("updated"), is(2L));
+      assertThat(refreshCount("unchanged"), is(1L));
+    }
+  }
+
+  @Test
+  void failedRefreshKeepsServingPreviousFlags() throws Exception {
+    var source = new FakeSource();
+    source.responses.add(document("a", "on"));
+    try (var flags = flags(source)) {
+      flags.start();
+
+      source.responses.add(new ApiException(503, "unavailable"));
+      assertThrows(ApiException.class, flags::refresh);
+
+      assertThat(flags.getBooleanValue("new-ui", false, FlagContext.EMPTY), is(true));
+      assertThat(refreshCount("failed"), is(1L));
+    }
+  }
+
+  @Test
+  void stalenessIsUnknownUntilFirstFetch() throws Exception {
+    var source = new FakeSource();
+    source.responses.add(new ApiException(503, "unavailable"));
+    try (var flags = flags(source)) {
+      assertThrows(ApiException.class, flags::start);
+
+      var staleness = meterRegistry.find(IffyFlags.METRIC_PREFIX + ".staleness").timeGauge();
+      assertThat(Double.isNaN(staleness.value(TimeUnit.SECONDS)), is(true));
+      assertThat(flags.snapshot().version(), is(0L));
+      assertThat(flags.evaluate("new-ui", FlagContext.EMPTY).value(), is(nullValue()));
+    }
+  }
+
+  private long refreshCount(String outcome) {
+    return meterRegistry.timer(IffyFlags.METRIC_PREFIX + ".refresh", "outcome", outcome).count();
+  }
+}
@@ -0,0 +1,179 @@
+package bio.terra.iffy.flags;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of flag definition documents, as parsed by Jackson into maps, lists,
+ * strings, numbers, booleans and nulls. Each value is a one-byte tag followed by its payload;
+ * lengths and counts are unsigned varints. Decoding reads straight from a {@link ByteBuffer}, such
+ * as a memory-mapped file, and gives back the same Java types that were encoded, so a decoded
+ * document parses to flag definitions equal to the original's.
+ */
+public final class BinaryDocument {
+  private static final byte NULL = 0;
+  private static final byte FALSE = 1;
+  private static final byte TRUE = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte BIG_INTEGER = 6;
+  private static final byte STRING = 7;
+  private static final byte LIST = 8;
+  private static final byte MAP = 9;
+
+  private BinaryDocument() {}
+
+  /**
+   * @throws IllegalArgumentException if the value contains a type that cannot be encoded
+   */
+  public static byte[] encode(Object value) {
+    var output = new ByteArrayOutputStream();
+    write(output, value);
+    return output.toByteArray();
+  }
+
+  /**
+   * Decodes one value, advancing the buffer past it.
+   *
+   * @throws IllegalArgumentException if the buffer does not hold a valid encoding
+   */
+  public static Object decode(ByteBuffer buffer) {
+    try {
+      return read(buffer);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated document", e);
+    }
+  }
+
+  private static void write(ByteArrayOutputStream output, Object value) {
+    if (value == null) {
+      output.write(NULL);
+    } else if (value instanceof Boolean bool) {
+      output.write(bool ? TRUE : FALSE);
+    } else if (value instanceof Integer number) {
+      output.write(INT);
+      writeLong(output, number, Integer.BYTES);
+    } else if (value instanceof Long number) {
+      output.write(LONG);
+      writeLong(output, number, Long.BYTES);
+    } else if (value instanceof Double number) {
+      output.write(DOUBLE);
+      writeLong(output, Double.doubleToRawLongBits(number), Long.BYTES);
+    } else if (value instanceof BigInteger number) {
+      output.write(BIG_INTEGER);
+      writeString(output, number.toString());
+    } else if (value instanceof String string) {
+      output.write(STRING);
+      writeString(output, string);
+    } else if (value instanceof List<?> list) {
+      output.write(LIST);
+      writeVarint(output, list.size());
+      for (Object element : list) {
+        write(output, element);
+      }
+    } else if (value instanceof Map<?, ?> map) {
+      output.write(MAP);
+      writeVarint(output, map.size());
+      for (var entry : map.entrySet()) {
+        writeString(output, (String) entry.getKey());
+        write(output, entry.getValue());
+      }
+    } else {
+      throw new IllegalArgumentException("Cannot encode " + value.getClass().getName());
+    }
+  }
+
+  private static Object read(ByteBuffer buffer) {
+    byte tag = buffer.get();
+    return switch (tag) {
+      case NULL -> null;
+      case FALSE -> false;
+      case TRUE -> true;
+      case INT -> buffer.getInt();
+      case LONG -> buffer.getLong();
+      case DOUBLE -> buffer.getDouble();
+      case BIG_INTEGER -> new BigInteger(readString(buffer));
+      case STRING -> readString(buffer);
+      case LIST -> {
+        int size = readVarint(buffer);
+        List<Object> list = new ArrayList<>(Math.min(size, buffer.remaining()));
+        for (int i = 0; i < size; i++) {
+          list.add(read(buffer));
+        }
+        yield list;
+      }
+      case MAP -> {
+        int size = readVarint(buffer);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+          String key = readString(buffer);
+          map.put(key, read(buffer));
+        }
+        yield map;
+      }
+      default -> throw new IllegalArgumentException("Unknown tag " + tag);
+    };
+  }
+
+  /** Writes the low bytes of value, most significant first, as ByteBuffer reads them. */
+  private static void writeLong(ByteArrayOutputStream output, long value, int bytes) {
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+      output.write((int) (value >>> shift));
+    }
+  }
+
+  private static void writeString(ByteArrayOutputStream output, String string) {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    writeVarint(output, bytes.length);
+    output.write(bytes, 0, bytes.length);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = readVarint(buffer);
+    if (length > buffer.remaining()) {
+      throw new IllegalArgumentException("Truncated document");
+    }
+    String string;
+    if (buffer.hasArray()) {
+      int offset = buffer.arrayOffset() + buffer.position();
+      string = new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+    } else {
+      byte[] bytes = new byte[length];
+      buffer.get(buffer.position(), bytes);
+      string = new String(bytes, StandardCharsets.UTF_8);
+    }
+    buffer.position(buffer.position() + length);
+    return string;
+  }
+
+  private static void writeVarint(ByteArrayOutputStream output, int value) {
+    while ((value & ~0x7f) != 0) {
+      output.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  private static int readVarint(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        if (value < 0) {
+          throw new IllegalArgumentException("Length out of range");
+        }
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed length");
+  }
+}
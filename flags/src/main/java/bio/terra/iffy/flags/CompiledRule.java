@@ -0,0 +1,64 @@
+package bio.terra.iffy.flags;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A flag's targeting rule, compiled by {@link RuleCompiler} when the flag definition is loaded.
+ * Two compiled rules are equal when they were compiled from equal rules for the same flag.
+ */
+public final class CompiledRule {
+  private final Object rule;
+  private final String flagKey;
+  private final RuleCompiler.Node root;
+  private final List<String> contextReads;
+
+  private CompiledRule(Object rule, String flagKey, RuleCompiler.Compilation compilation) {
+    this.rule = rule;
+    this.flagKey = flagKey;
+    this.root = compilation.root();
+    this.contextReads = compilation.reads();
+  }
+
+  /** Compiles a JsonLogic rule; a null rule compiles to one that evaluates to null. */
+  public static CompiledRule compile(Object rule, String flagKey) {
+    return new CompiledRule(rule, flagKey, RuleCompiler.compile(rule, flagKey));
+  }
+
+  /**
+   * Returns the context variable paths the rule reads, such as "email" or "targetingKey". Two
+   * contexts that resolve each path to equal values get the same result.
+   *
+   * @return the paths, or null if the rule reads the context in a way no list of paths captures: a
+   *     computed variable path, the whole attribute map or the current time
+   */
+  public List<String> contextReads() {
+    return contextReads;
+  }
+
+  /**
+   * Evaluates the rule, with the same result as {@link JsonLogic#apply}.
+   *
+   * @throws TargetingException if evaluation reaches a malformed part of the rule
+   */
+  public Object evaluate(FlagContext context) {
+    return root.evaluate(context);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof CompiledRule compiled
+        && Objects.equals(rule, compiled.rule)
+        && Objects.equals(flagKey, compiled.flagKey);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(rule, flagKey);
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledRule[" + rule + "]";
+  }
+}
@@ -0,0 +1,9 @@
+package bio.terra.iffy.flags;
+
+/** Resolution error codes. Names match the flagd/OpenFeature error code strings. */
+public enum ErrorCode {
+  FLAG_NOT_FOUND,
+  PARSE_ERROR,
+  TYPE_MISMATCH,
+  GENERAL
+}
@@ -0,0 +1,15 @@
+package bio.terra.iffy.flags;
+
+/** Why a flag resolved to the value it did. Names match the flagd/OpenFeature reason strings. */
+public enum EvaluationReason {
+  /** The flag has no targeting rules, so the default variant is always served. */
+  STATIC,
+  /** Targeting rules exist but none matched, so the default variant was served. */
+  DEFAULT,
+  /** A targeting rule selected the variant. */
+  TARGETING_MATCH,
+  /** The flag is disabled. */
+  DISABLED,
+  /** The flag could not be resolved; see the error code. */
+  ERROR
+}
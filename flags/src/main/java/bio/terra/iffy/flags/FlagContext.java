@@ -0,0 +1,67 @@
+package bio.terra.iffy.flags;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * The evaluation context a flag is resolved against: an optional targeting key plus arbitrary
+ * attributes, following the OpenFeature evaluation context model.
+ */
+public final class FlagContext {
+  public static final FlagContext EMPTY = new FlagContext(null, Map.of());
+
+  static final String TARGETING_KEY = "targetingKey";
+  static final String FLAG_KEY_PATH = "$flagd.flagKey";
+  static final String TIMESTAMP_PATH = "$flagd.timestamp";
+
+  private final String targetingKey;
+  private final Map<String, Object> attributes;
+
+  private FlagContext(String targetingKey, Map<String, Object> attributes) {
+    this.targetingKey = targetingKey;
+    this.attributes = attributes;
+  }
+
+  public static FlagContext of(String targetingKey, Map<String, Object> attributes) {
+    if (targetingKey == null && attributes != null) {
+      if (attributes.get(TARGETING_KEY) instanceof String key) {
+        targetingKey = key;
+      }
+    }
+    return new FlagContext(targetingKey, attributes == null ? Map.of() : attributes);
+  }
+
+  public String targetingKey() {
+    return targetingKey;
+  }
+
+  public Map<String, Object> attributes() {
+    return attributes;
+  }
+
+  /**
+   * Resolves a dotted JsonLogic variable path against this context. The flagd built-ins
+   * targetingKey, $flagd.flagKey and $flagd.timestamp are resolved as flagd does.
+   *
+   * @return the value at the path, or null if there is none
+   */
+  public Object resolve(String path, String flagKey) {
+    switch (path) {
+      case TARGETING_KEY:
+        return targetingKey;
+      case FLAG_KEY_PATH:
+        return flagKey;
+      case TIMESTAMP_PATH:
+        return Instant.now().getEpochSecond();
+      default:
+        Object current = attributes;
+        for (String segment : path.split("\\.")) {
+          if (!(current instanceof Map<?, ?> map)) {
+            return null;
+          }
+          current = map.get(segment);
+        }
+        return current;
+    }
+  }
+}
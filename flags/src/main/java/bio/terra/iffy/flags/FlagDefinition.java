@@ -0,0 +1,47 @@
+package bio.terra.iffy.flags;
+
+import java.util.Map;
+
+/**
+ * A single flag as described by a flagd flag definition file.
+ *
+ * @param key the flag key
+ * @param enabled false if the flag's state is DISABLED
+ * @param variants variant name to variant value; values are plain Java objects (String, Number,
+ *     Boolean, List, Map)
+ * @param defaultVariant variant served when targeting is absent or does not match
+ * @param targeting JsonLogic targeting rule with any $ref already resolved, or null
+ * @param source the flag definition as it appeared in the source document
+ * @param compiledTargeting the targeting rule compiled for evaluation
+ */
+public record FlagDefinition(
+    String key,
+    boolean enabled,
+    Map<String, Object> variants,
+    String defaultVariant,
+    Object targeting,
+    Map<String, Object> source,
+    CompiledRule compiledTargeting) {
+
+  /** Creates a flag definition, compiling its targeting rule. */
+  public FlagDefinition(
+      String key,
+      boolean enabled,
+      Map<String, Object> variants,
+      String defaultVariant,
+      Object targeting,
+      Map<String, Object> source) {
+    this(
+        key,
+        enabled,
+        variants,
+        defaultVariant,
+        targeting,
+        source,
+        CompiledRule.compile(targeting, key));
+  }
+
+  public boolean hasTargeting() {
+    return targeting != null && !(targeting instanceof Map<?, ?> map && map.isEmpty());
+  }
+}
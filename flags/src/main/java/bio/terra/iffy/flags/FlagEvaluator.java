@@ -0,0 +1,36 @@
+package bio.terra.iffy.flags;
+
+/** Resolves a flag definition against an evaluation context, following flagd's semantics. */
+public final class FlagEvaluator {
+  private FlagEvaluator() {}
+
+  public static ResolutionDetails evaluate(FlagDefinition flag, FlagContext context) {
+    if (!flag.enabled()) {
+      return ResolutionDetails.disabled(flag.key());
+    }
+    if (!flag.hasTargeting()) {
+      return resolveVariant(flag, flag.defaultVariant(), EvaluationReason.STATIC);
+    }
+    Object result;
+    try {
+      result = flag.compiledTargeting().evaluate(context);
+    } catch (TargetingException | ClassCastException e) {
+      return ResolutionDetails.error(flag.key(), ErrorCode.PARSE_ERROR, e.getMessage());
+    }
+    if (result == null) {
+      return resolveVariant(flag, flag.defaultVariant(), EvaluationReason.DEFAULT);
+    }
+    // flagd allows targeting to return a boolean, which selects the "true" or "false" variant
+    String variant = result instanceof Boolean ? result.toString() : Values.toText(result);
+    return resolveVariant(flag, variant, EvaluationReason.TARGETING_MATCH);
+  }
+
+  private static ResolutionDetails resolveVariant(
+      FlagDefinition flag, String variant, EvaluationReason reason) {
+    if (!flag.variants().containsKey(variant)) {
+      return ResolutionDetails.error(
+          flag.key(), ErrorCode.GENERAL, "Variant " + variant + " is not defined");
+    }
+    return ResolutionDetails.resolved(flag.key(), variant, flag.variants().get(variant), reason);
+  }
+}
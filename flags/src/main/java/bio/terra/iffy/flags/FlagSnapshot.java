@@ -0,0 +1,85 @@
+package bio.terra.iffy.flags;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An immutable, versioned set of flag definitions and the segments they reference. Readers hold on
+ * to a snapshot for the duration of an evaluation so that a concurrent reload can never expose a
+ * half-updated set of flags, or flags paired with another version's segments.
+ *
+ * <p>The version counts the snapshots published by one process, so it restarts on every boot and
+ * differs between replicas. Anything recorded for later analysis should instead identify the
+ * document the flags were loaded from, by its config version and content hash.
+ */
+public final class FlagSnapshot {
+  public static final FlagSnapshot EMPTY = new FlagSnapshot(0, Map.of());
+
+  private final long version;
+  private final Map<String, FlagDefinition> flags;
+  private final Map<String, Segment> segments;
+  private final long configVersion;
+  private final String contentHash;
+
+  public FlagSnapshot(long version, Map<String, FlagDefinition> flags) {
+    this(version, flags, Map.of());
+  }
+
+  public FlagSnapshot(
+      long version, Map<String, FlagDefinition> flags, Map<String, Segment> segments) {
+    this(version, flags, segments, 0, null);
+  }
+
+  /**
+   * @param configVersion the stored version of the document the flags were loaded from, or 0 if it
+   *     has not been stored
+   * @param contentHash the SHA-256 of that document, or null if the flags were not loaded from one
+   */
+  public FlagSnapshot(
+      long version,
+      Map<String, FlagDefinition> flags,
+      Map<String, Segment> segments,
+      long configVersion,
+      String contentHash) {
+    this.version = version;
+    this.flags = Map.copyOf(flags);
+    this.segments = Map.copyOf(segments);
+    this.configVersion = configVersion;
+    this.contentHash = contentHash;
+  }
+
+  public long version() {
+    return version;
+  }
+
+  /** The stored version of the document the flags were loaded from, or 0 if it is not stored. */
+  public long configVersion() {
+    return configVersion;
+  }
+
+  /** The SHA-256 of the document the flags were loaded from, or null if there was none. */
+  public String contentHash() {
+    return contentHash;
+  }
+
+  /** Returns the flag with the given key, or null if there is no such flag. */
+  public FlagDefinition get(String flagKey) {
+    return flags.get(flagKey);
+  }
+
+  public Collection<FlagDefinition> flags() {
+    return flags.values();
+  }
+
+  public Map<String, FlagDefinition> asMap() {
+    return flags;
+  }
+
+  public Map<String, Segment> segments() {
+    return segments;
+  }
+
+  public int size() {
+    return flags.size();
+  }
+}
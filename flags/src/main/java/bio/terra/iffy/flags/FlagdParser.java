@@ -0,0 +1,276 @@
+package bio.terra.iffy.flags;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Parses flagd flag definition documents (https://flagd.dev/reference/flag-definitions/) into
+ * {@link FlagDefinition}s. Shared "$evaluators" are inlined wherever a targeting rule references
+ * them with "$ref", so evaluation never has to look them up.
+ *
+ * <p>As an Iffy extension, a document may also declare "$segments", named lists of strings, which
+ * rules reference with {"$segment": "name"}. Each segment is built once as a {@link Segment} and
+ * put in place of its references, so that flags and the segments they use are loaded together.
+ */
+public class FlagdParser {
+  private static final TypeReference<Map<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {};
+  private static final String ENABLED = "ENABLED";
+  private static final String DISABLED = "DISABLED";
+  private static final String REF = "$ref";
+  private static final String SEGMENT = "$segment";
+
+  /** The flags and segments of one document. */
+  public record Document(Map<String, FlagDefinition> flags, Map<String, Segment> segments) {}
+
+  private final ObjectMapper objectMapper;
+
+  public FlagdParser(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * @throws InvalidFlagConfigurationException if the document is not valid
+   */
+  public Map<String, FlagDefinition> parse(InputStream inputStream) {
+    return parseDocument(inputStream).flags();
+  }
+
+  /**
+   * @throws InvalidFlagConfigurationException if the document is not valid
+   */
+  public Map<String, FlagDefinition> parse(Map<String, Object> document) {
+    return parseDocument(document).flags();
+  }
+
+  /**
+   * @throws InvalidFlagConfigurationException if the document is not valid
+   */
+  public Document parseDocument(InputStream inputStream) {
+    return parseDocument(readDocument(inputStream));
+  }
+
+  /**
+   * Reads a document as JSON without validating it.
+   *
+   * @throws InvalidFlagConfigurationException if the document is not valid JSON
+   */
+  public Map<String, Object> readDocument(InputStream inputStream) {
+    try {
+      return objectMapper.readValue(inputStream, DOCUMENT_TYPE);
+    } catch (IOException e) {
+      throw new InvalidFlagConfigurationException("Flag definitions are not valid JSON", e);
+    }
+  }
+
+  /**
+   * @throws InvalidFlagConfigurationException if the document is not valid
+   */
+  public Document parseDocument(Map<String, Object> document) {
+    return parseDocument(document, Map.of());
+  }
+
+  /**
+   * Parses a new version of a document. Flags whose definitions, once references are resolved,
+   * are the same as in the previous version are not compiled again; the previous {@link
+   * FlagDefinition} is reused.
+   *
+   * @param previous the flags parsed from the previous version
+   * @throws InvalidFlagConfigurationException if the document is not valid
+   */
+  public Document parseDocument(
+      Map<String, Object> document, Map<String, FlagDefinition> previous) {
+    if (document == null) {
+      throw new InvalidFlagConfigurationException("Flag definition document is empty");
+    }
+    Map<String, Object> evaluators = asMap(document.getOrDefault("$evaluators", Map.of()));
+    if (evaluators == null) {
+      throw new InvalidFlagConfigurationException("$evaluators must be an object");
+    }
+    Map<String, Segment> segments = parseSegments(document.getOrDefault("$segments", Map.of()));
+    Map<String, Object> flags = asMap(document.get("flags"));
+    if (flags == null) {
+      throw new InvalidFlagConfigurationException("flags must be an object");
+    }
+    Map<String, FlagDefinition> result = new LinkedHashMap<>();
+    flags.forEach(
+        (key, value) -> {
+          if (isReserved(key)) {
+            throw invalid(key, "keys of the form __name__ are reserved");
+          }
+          result.put(key, parseFlag(key, value, evaluators, segments, previous.get(key)));
+        });
+    return new Document(result, segments);
+  }
+
+  /**
+   * Writes a snapshot back out as a document that parses to flags which evaluate the same way.
+   * Shared evaluators stay inlined; segments are written under "$segments" and referenced by name.
+   * Flags and segments are written in key order, so equal snapshots give identical documents.
+   */
+  public static Map<String, Object> toDocument(FlagSnapshot snapshot) {
+    Map<String, Object> segments = new TreeMap<>();
+    snapshot.segments().forEach((name, segment) -> segments.put(name, segment.members()));
+    Map<String, Object> flags = new TreeMap<>();
+    for (FlagDefinition flag : snapshot.flags()) {
+      flags.put(flag.key(), toDefinition(flag));
+    }
+    Map<String, Object> document = new LinkedHashMap<>();
+    if (!segments.isEmpty()) {
+      document.put("$segments", segments);
+    }
+    document.put("flags", flags);
+    return document;
+  }
+
+  /**
+   * Writes one flag as it would appear in a document written by {@link #toDocument}: with shared
+   * evaluators inlined, and segments referenced by name.
+   */
+  public static Map<String, Object> toDefinition(FlagDefinition flag) {
+    Map<String, Object> definition = new LinkedHashMap<>(flag.source());
+    if (flag.targeting() != null) {
+      definition.put("targeting", referenceSegments(flag.targeting()));
+    }
+    return definition;
+  }
+
+  /** Reverses resolveRefs for segments, replacing each {@link Segment} with a reference. */
+  private static Object referenceSegments(Object rule) {
+    if (rule instanceof Segment segment) {
+      return Map.of(SEGMENT, segment.name());
+    }
+    if (rule instanceof List<?> list) {
+      return list.stream().map(FlagdParser::referenceSegments).toList();
+    }
+    Map<String, Object> map = asMap(rule);
+    if (map == null) {
+      return rule;
+    }
+    Map<String, Object> referenced = new LinkedHashMap<>();
+    map.forEach((key, value) -> referenced.put(key, referenceSegments(value)));
+    return referenced;
+  }
+
+  private static Map<String, Segment> parseSegments(Object value) {
+    Map<String, Object> segments = asMap(value);
+    if (segments == null) {
+      throw new InvalidFlagConfigurationException("$segments must be an object");
+    }
+    Map<String, Segment> result = new LinkedHashMap<>();
+    segments.forEach(
+        (name, members) -> {
+          if (!(members instanceof List<?> list)
+              || !list.stream().allMatch(String.class::isInstance)) {
+            throw new InvalidFlagConfigurationException(
+                "Segment " + name + ": members must be an array of strings");
+          }
+          result.put(name, Segment.of(name, list.stream().map(String.class::cast).toList()));
+        });
+    return result;
+  }
+
+  private FlagDefinition parseFlag(
+      String key,
+      Object value,
+      Map<String, Object> evaluators,
+      Map<String, Segment> segments,
+      FlagDefinition previous) {
+    Map<String, Object> flag = asMap(value);
+    if (flag == null) {
+      throw invalid(key, "definition must be an object");
+    }
+    Object state = flag.get("state");
+    if (!ENABLED.equals(state) && !DISABLED.equals(state)) {
+      throw invalid(key, "state must be ENABLED or DISABLED");
+    }
+    Map<String, Object> variants = asMap(flag.get("variants"));
+    if (variants == null || variants.isEmpty()) {
+      throw invalid(key, "variants must be a non-empty object");
+    }
+    for (String variant : variants.keySet()) {
+      if (isReserved(variant)) {
+        throw invalid(key, "variant names of the form __name__ are reserved");
+      }
+    }
+    if (!(flag.get("defaultVariant") instanceof String defaultVariant)
+        || !variants.containsKey(defaultVariant)) {
+      throw invalid(key, "defaultVariant must name one of the variants");
+    }
+    Object targeting = resolveRefs(key, flag.get("targeting"), evaluators, segments, 0);
+    if (previous != null
+        && previous.source().equals(flag)
+        && Objects.equals(previous.targeting(), targeting)) {
+      return previous;
+    }
+    return new FlagDefinition(
+        key, ENABLED.equals(state), variants, defaultVariant, targeting, flag);
+  }
+
+  /**
+   * Replaces {"$ref": "name"} with the named shared evaluator, and {"$segment": "name"} with the
+   * named segment.
+   */
+  private Object resolveRefs(
+      String key,
+      Object rule,
+      Map<String, Object> evaluators,
+      Map<String, Segment> segments,
+      int depth) {
+    if (depth > evaluators.size() + 1) {
+      throw invalid(key, "$ref evaluators must not be circular");
+    }
+    if (rule instanceof List<?> list) {
+      List<Object> resolved = new ArrayList<>(list.size());
+      for (Object element : list) {
+        resolved.add(resolveRefs(key, element, evaluators, segments, depth));
+      }
+      return resolved;
+    }
+    Map<String, Object> map = asMap(rule);
+    if (map == null) {
+      return rule;
+    }
+    if (map.size() == 1 && map.get(REF) instanceof String name) {
+      if (!evaluators.containsKey(name)) {
+        throw invalid(key, "unknown $ref evaluator " + name);
+      }
+      return resolveRefs(key, evaluators.get(name), evaluators, segments, depth + 1);
+    }
+    if (map.size() == 1 && map.get(SEGMENT) instanceof String name) {
+      if (!segments.containsKey(name)) {
+        throw invalid(key, "unknown segment " + name);
+      }
+      return segments.get(name);
+    }
+    Map<String, Object> resolved = new LinkedHashMap<>();
+    map.forEach(
+        (name, value) -> resolved.put(name, resolveRefs(key, value, evaluators, segments, depth)));
+    return resolved;
+  }
+
+  /**
+   * Returns whether a flag key or variant name has the form __name__. Such names are rejected, so
+   * that Iffy can report values of its own in their place, such as the metrics bucket shared by
+   * flags beyond the tracked limit, without colliding with a real flag or variant.
+   */
+  public static boolean isReserved(String name) {
+    return name.length() > 4 && name.startsWith("__") && name.endsWith("__");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asMap(Object value) {
+    return value instanceof Map ? (Map<String, Object>) value : null;
+  }
+
+  private static InvalidFlagConfigurationException invalid(String key, String message) {
+    return new InvalidFlagConfigurationException("Flag " + key + ": " + message);
+  }
+}
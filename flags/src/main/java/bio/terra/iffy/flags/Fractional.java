@@ -0,0 +1,67 @@
+package bio.terra.iffy.flags;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * flagd's "fractional" operator: deterministically assigns a bucketing value to one of several
+ * weighted variants by hashing it. This is the interpreter's straightforward version; compiled
+ * rules use {@link FractionalBucketer}, which must select the same variants.
+ */
+final class Fractional {
+  private Fractional() {}
+
+  /**
+   * Picks a variant for the given bucketing value.
+   *
+   * @param bucketBy the value to hash
+   * @param distributions [variant, weight] pairs
+   * @return the selected variant, or null if the distribution is empty
+   */
+  static String select(String bucketBy, List<?> distributions) {
+    return select(Murmur3.hash32(bucketBy.getBytes(StandardCharsets.UTF_8)), distributions);
+  }
+
+  /**
+   * Picks a variant for a precomputed hash; by default flagd hashes the flag key followed by the
+   * targeting key.
+   */
+  static String select(int hash, List<?> distributions) {
+    int totalWeight = 0;
+    for (Object distribution : distributions) {
+      totalWeight += weight(distribution);
+    }
+    double bucket = bucket(hash);
+    double rangeEnd = 0;
+    for (Object distribution : distributions) {
+      rangeEnd += weight(distribution) * 100.0 / totalWeight;
+      if (bucket < rangeEnd) {
+        return variant(distribution);
+      }
+    }
+    return null;
+  }
+
+  /** Maps a hash onto [0, 100] exactly as flagd does. */
+  static double bucket(int hash) {
+    return Math.abs((double) hash) / Integer.MAX_VALUE * 100;
+  }
+
+  static String variant(Object distribution) {
+    if (distribution instanceof List<?> pair && !pair.isEmpty() && pair.get(0) instanceof String) {
+      return (String) pair.get(0);
+    }
+    throw new TargetingException("fractional distribution must be [variant, weight]");
+  }
+
+  static int weight(Object distribution) {
+    if (distribution instanceof List<?> pair && pair.size() > 1) {
+      if (pair.get(1) instanceof Number weight) {
+        return weight.intValue();
+      }
+      throw new TargetingException("fractional weight must be a number");
+    }
+    // flagd treats a missing weight as 1
+    return 1;
+  }
+}
@@ -0,0 +1,65 @@
+package bio.terra.iffy.flags;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Buckets evaluations of one compiled fractional operation. The variant boundaries are worked out
+ * when the rule is compiled, and bucketing keys are hashed in place with {@link
+ * Murmur3#hash32(byte[], String)}, so selecting a variant allocates nothing. Selections are those
+ * of {@link Fractional}, and so of flagd: moving evaluation from a flagd sidecar to Iffy keeps
+ * every user in their bucket.
+ */
+final class FractionalBucketer {
+  private final byte[] flagKeyBytes;
+  private final String[] variants;
+  private final double[] rangeEnds;
+
+  private FractionalBucketer(byte[] flagKeyBytes, String[] variants, double[] rangeEnds) {
+    this.flagKeyBytes = flagKeyBytes;
+    this.variants = variants;
+    this.rangeEnds = rangeEnds;
+  }
+
+  /**
+   * @param flagKey the flag the operation belongs to
+   * @param distributions [variant, weight] pairs
+   * @throws TargetingException if any entry is not a [variant, weight] pair
+   */
+  static FractionalBucketer of(String flagKey, List<?> distributions) {
+    int totalWeight = 0;
+    for (Object distribution : distributions) {
+      totalWeight += Fractional.weight(distribution);
+    }
+    var variants = new String[distributions.size()];
+    var rangeEnds = new double[distributions.size()];
+    // accumulated exactly as Fractional.select does, so that the boundaries round the same way
+    double rangeEnd = 0;
+    for (int i = 0; i < variants.length; i++) {
+      variants[i] = Fractional.variant(distributions.get(i));
+      rangeEnd += Fractional.weight(distributions.get(i)) * 100.0 / totalWeight;
+      rangeEnds[i] = rangeEnd;
+    }
+    return new FractionalBucketer(flagKey.getBytes(StandardCharsets.UTF_8), variants, rangeEnds);
+  }
+
+  /** Selects by flag key followed by targeting key, flagd's default bucketing. */
+  String selectByTargetingKey(String targetingKey) {
+    return select(Murmur3.hash32(flagKeyBytes, targetingKey));
+  }
+
+  /** Selects by a bucketing value computed by the rule. */
+  String selectBy(String bucketBy) {
+    return select(Murmur3.hash32(bucketBy));
+  }
+
+  private String select(int hash) {
+    double bucket = Fractional.bucket(hash);
+    for (int i = 0; i < rangeEnds.length; i++) {
+      if (bucket < rangeEnds[i]) {
+        return variants[i];
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,12 @@
+package bio.terra.iffy.flags;
+
+/** Thrown when a flag definition document cannot be parsed or fails validation. */
+public class InvalidFlagConfigurationException extends RuntimeException {
+  public InvalidFlagConfigurationException(String message) {
+    super(message);
+  }
+
+  public InvalidFlagConfigurationException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,207 @@
+package bio.terra.iffy.flags;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JsonLogic interpreter supporting the operators flagd targeting rules use, including the flagd
+ * extensions fractional, sem_ver, starts_with and ends_with. Rules are plain Java objects as
+ * produced by Jackson: maps, lists, strings, numbers, booleans and nulls, plus the {@link Segment}s
+ * that {@link FlagdParser} substitutes for segment references, which "in" tests membership of.
+ *
+ * <p>Flags are evaluated with rules compiled by {@link RuleCompiler}; this interpreter defines the
+ * semantics the compiled rules must reproduce.
+ */
+public final class JsonLogic {
+  private JsonLogic() {}
+
+  /**
+   * Evaluates a rule.
+   *
+   * @param rule the JsonLogic rule
+   * @param context the evaluation context variables are read from
+   * @param flagKey the flag being evaluated, used by $flagd.flagKey and fractional
+   * @return the rule's value
+   * @throws TargetingException if the rule is malformed
+   */
+  public static Object apply(Object rule, FlagContext context, String flagKey) {
+    if (rule instanceof List<?> list) {
+      List<Object> values = new ArrayList<>(list.size());
+      for (Object element : list) {
+        values.add(apply(element, context, flagKey));
+      }
+      return values;
+    }
+    if (!(rule instanceof Map<?, ?> map) || map.isEmpty()) {
+      return rule;
+    }
+    if (map.size() != 1) {
+      throw new TargetingException("A JsonLogic operation must have exactly one operator");
+    }
+    var operation = map.entrySet().iterator().next();
+    String operator = (String) operation.getKey();
+    List<?> args =
+        operation.getValue() instanceof List<?> list ? list : List.of(operation.getValue());
+    return switch (operator) {
+      case "var" -> var(args, context, flagKey);
+      case "if", "?:" -> ifThenElse(args, context, flagKey);
+      case "and" -> and(args, context, flagKey);
+      case "or" -> or(args, context, flagKey);
+      case "!" -> !Values.truthy(arg(args, 0, context, flagKey));
+      case "!!" -> Values.truthy(arg(args, 0, context, flagKey));
+      case "==" ->
+          Values.looseEquals(arg(args, 0, context, flagKey), arg(args, 1, context, flagKey));
+      case "!=" ->
+          !Values.looseEquals(arg(args, 0, context, flagKey), arg(args, 1, context, flagKey));
+      case "===" ->
+          Values.strictEquals(arg(args, 0, context, flagKey), arg(args, 1, context, flagKey));
+      case "!==" ->
+          !Values.strictEquals(arg(args, 0, context, flagKey), arg(args, 1, context, flagKey));
+      case "<", "<=", ">", ">=" -> compare(operator, args, context, flagKey);
+      case "in" -> in(arg(args, 0, context, flagKey), arg(args, 1, context, flagKey));
+      case "cat" -> cat(args, context, flagKey);
+      case "starts_with", "ends_with" -> affix(operator, args, context, flagKey);
+      case "sem_ver" -> semVer(args, context, flagKey);
+      case "fractional" -> fractional(args, context, flagKey);
+      default -> throw new TargetingException("Unsupported JsonLogic operator " + operator);
+    };
+  }
+
+  private static Object arg(List<?> args, int index, FlagContext context, String flagKey) {
+    return index < args.size() ? apply(args.get(index), context, flagKey) : null;
+  }
+
+  private static Object var(List<?> args, FlagContext context, String flagKey) {
+    Object path = arg(args, 0, context, flagKey);
+    if (path == null || "".equals(path)) {
+      return context.attributes();
+    }
+    Object value = context.resolve(Values.toText(path), flagKey);
+    return value != null ? value : arg(args, 1, context, flagKey);
+  }
+
+  private static Object ifThenElse(List<?> args, FlagContext context, String flagKey) {
+    int i = 0;
+    for (; i + 1 < args.size(); i += 2) {
+      if (Values.truthy(apply(args.get(i), context, flagKey))) {
+        return apply(args.get(i + 1), context, flagKey);
+      }
+    }
+    return i < args.size() ? apply(args.get(i), context, flagKey) : null;
+  }
+
+  private static Object and(List<?> args, FlagContext context, String flagKey) {
+    Object value = null;
+    for (Object arg : args) {
+      value = apply(arg, context, flagKey);
+      if (!Values.truthy(value)) {
+        return value;
+      }
+    }
+    return value;
+  }
+
+  private static Object or(List<?> args, FlagContext context, String flagKey) {
+    Object value = null;
+    for (Object arg : args) {
+      value = apply(arg, context, flagKey);
+      if (Values.truthy(value)) {
+        return value;
+      }
+    }
+    return value;
+  }
+
+  private static boolean compare(
+      String operator, List<?> args, FlagContext context, String flagKey) {
+    Object first = arg(args, 0, context, flagKey);
+    Object second = arg(args, 1, context, flagKey);
+    if (!compareOnce(operator, first, second)) {
+      return false;
+    }
+    // JsonLogic "between": {"<": [1, x, 10]}
+    return args.size() < 3 || compareOnce(operator, second, arg(args, 2, context, flagKey));
+  }
+
+  static boolean compareOnce(String operator, Object left, Object right) {
+    Integer result = Values.compare(left, right);
+    if (result == null) {
+      return false;
+    }
+    return switch (operator) {
+      case "<" -> result < 0;
+      case "<=" -> result <= 0;
+      case ">" -> result > 0;
+      default -> result >= 0;
+    };
+  }
+
+  static boolean in(Object needle, Object haystack) {
+    if (haystack instanceof Segment segment) {
+      return needle instanceof String value && segment.contains(value);
+    }
+    if (haystack instanceof String string) {
+      return needle != null && string.contains(Values.toText(needle));
+    }
+    if (haystack instanceof Collection<?> collection) {
+      for (Object element : collection) {
+        if (Values.strictEquals(needle, element)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static String cat(List<?> args, FlagContext context, String flagKey) {
+    StringBuilder builder = new StringBuilder();
+    for (Object arg : args) {
+      builder.append(Values.toText(apply(arg, context, flagKey)));
+    }
+    return builder.toString();
+  }
+
+  private static boolean affix(
+      String operator, List<?> args, FlagContext context, String flagKey) {
+    if (!(arg(args, 0, context, flagKey) instanceof String value)
+        || !(arg(args, 1, context, flagKey) instanceof String affix)) {
+      return false;
+    }
+    return operator.equals("starts_with") ? value.startsWith(affix) : value.endsWith(affix);
+  }
+
+  private static boolean semVer(List<?> args, FlagContext context, String flagKey) {
+    SemVer value = SemVer.parse(arg(args, 0, context, flagKey));
+    Object operator = arg(args, 1, context, flagKey);
+    SemVer target = SemVer.parse(arg(args, 2, context, flagKey));
+    if (value == null || target == null || !(operator instanceof String op)) {
+      return false;
+    }
+    return value.matches(op, target);
+  }
+
+  private static String fractional(List<?> args, FlagContext context, String flagKey) {
+    List<Object> values = new ArrayList<>(args.size());
+    for (Object arg : args) {
+      values.add(apply(arg, context, flagKey));
+    }
+    return applyFractional(values, context, flagKey);
+  }
+
+  /** Applies fractional to its already evaluated arguments. */
+  static String applyFractional(List<Object> values, FlagContext context, String flagKey) {
+    if (!values.isEmpty() && values.get(0) instanceof String bucketBy) {
+      var distributions = values.subList(1, values.size());
+      return distributions.isEmpty() ? null : Fractional.select(bucketBy, distributions);
+    }
+    if (context.targetingKey() == null || values.isEmpty()) {
+      return null;
+    }
+    // flagd hashes the flag key followed by the targeting key
+    byte[] bucketBy = (flagKey + context.targetingKey()).getBytes(StandardCharsets.UTF_8);
+    return Fractional.select(Murmur3.hash32(bucketBy), values);
+  }
+}
@@ -0,0 +1,84 @@
+package bio.terra.iffy.flags;
+
+/** 32-bit x86 MurmurHash3 with seed 0, the hash flagd uses for fractional bucketing. */
+final class Murmur3 {
+  private static final int C1 = 0xcc9e2d51;
+  private static final int C2 = 0x1b873593;
+  private static final byte[] EMPTY = new byte[0];
+
+  private Murmur3() {}
+
+  static int hash32(byte[] data) {
+    return hash32(data, "");
+  }
+
+  /** Hashes the UTF-8 encoding of a string without encoding it into an array. */
+  static int hash32(String text) {
+    return hash32(EMPTY, text);
+  }
+
+  /**
+   * Hashes prefix followed by the UTF-8 encoding of text, which is what hashing the encoding of a
+   * concatenated string would give, but allocates nothing: text is encoded a character at a time as
+   * it is hashed.
+   */
+  static int hash32(byte[] prefix, String text) {
+    int h = 0;
+    // k collects little-endian bytes until it holds a whole 4-byte block
+    int k = 0;
+    int shift = 0;
+    for (byte b : prefix) {
+      k |= (b & 0xff) << shift;
+      shift += 8;
+      if (shift == 32) {
+        h = mixH(h, mixK(k));
+        k = 0;
+        shift = 0;
+      }
+    }
+    int length = prefix.length;
+    for (int i = 0; i < text.length(); ) {
+      long encoded = Utf8.encode(text, i);
+      i += Utf8.charCount(encoded);
+      int bytes = Utf8.bytes(encoded);
+      int byteCount = Utf8.byteCount(encoded);
+      length += byteCount;
+      for (; byteCount > 0; byteCount--) {
+        k |= (bytes & 0xff) << shift;
+        bytes >>>= 8;
+        shift += 8;
+        if (shift == 32) {
+          h = mixH(h, mixK(k));
+          k = 0;
+          shift = 0;
+        }
+      }
+    }
+    if (shift > 0) {
+      h ^= mixK(k);
+    }
+    return fmix(h, length);
+  }
+
+  static int mixK(int k) {
+    k *= C1;
+    k = Integer.rotateLeft(k, 15);
+    return k * C2;
+  }
+
+  static int mixH(int h, int k) {
+    h ^= k;
+    h = Integer.rotateLeft(h, 13);
+    return h * 5 + 0xe6546b64;
+  }
+
+  static int fmix(int h, int length) {
+    h ^= length;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,33 @@
+package bio.terra.iffy.flags;
+
+/**
+ * The outcome of resolving one flag against one context.
+ *
+ * @param flagKey the flag that was resolved
+ * @param value the resolved variant value, or null if the flag is disabled or errored
+ * @param variant the resolved variant name, or null if the flag is disabled or errored
+ * @param reason why the flag resolved the way it did
+ * @param errorCode set only when the reason is {@link EvaluationReason#ERROR}
+ * @param errorMessage optional detail for the error code
+ */
+public record ResolutionDetails(
+    String flagKey,
+    Object value,
+    String variant,
+    EvaluationReason reason,
+    ErrorCode errorCode,
+    String errorMessage) {
+
+  static ResolutionDetails resolved(
+      String flagKey, String variant, Object value, EvaluationReason reason) {
+    return new ResolutionDetails(flagKey, value, variant, reason, null, null);
+  }
+
+  static ResolutionDetails disabled(String flagKey) {
+    return new ResolutionDetails(flagKey, null, null, EvaluationReason.DISABLED, null, null);
+  }
+
+  public static ResolutionDetails error(String flagKey, ErrorCode errorCode, String message) {
+    return new ResolutionDetails(flagKey, null, null, EvaluationReason.ERROR, errorCode, message);
+  }
+}
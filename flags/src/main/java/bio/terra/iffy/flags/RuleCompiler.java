@@ -0,0 +1,562 @@
+package bio.terra.iffy.flags;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Compiles JsonLogic targeting rules into trees of closures, once per flag definition load, so
+ * that evaluation no longer walks the rule's JSON. Variable paths are split, flagd built-in
+ * variables are bound, constant operands (comparison strings and numbers, sem_ver operators and
+ * targets, "in" lists and fractional distributions) are prepared, and operations whose arguments
+ * are all constant are folded. Evaluating a compiled rule allocates nothing, except for operators
+ * that build a value (cat, list literals that read variables, $flagd.timestamp) or parse one from
+ * the context (sem_ver).
+ *
+ * <p>{@link JsonLogic} is the reference: a compiled rule returns what the interpreter returns for
+ * every context. A malformed operation compiles to a node that throws the interpreter's {@link
+ * TargetingException} when evaluation reaches it, so that an error in a branch that is never taken
+ * goes unnoticed, as it does when interpreting.
+ */
+final class RuleCompiler {
+  /** A compiled rule or subexpression. */
+  @FunctionalInterface
+  interface Node {
+    Object evaluate(FlagContext context);
+  }
+
+  private record Constant(Object value) implements Node {
+    @Override
+    public Object evaluate(FlagContext context) {
+      return value;
+    }
+  }
+
+  /**
+   * A compiled rule and the context it reads.
+   *
+   * @param root the compiled rule
+   * @param reads the variable paths the rule reads, or null if it reads the context in a way no
+   *     list of paths captures: a computed path, the whole attribute map or the current time
+   */
+  record Compilation(Node root, List<String> reads) {}
+
+  private static final Constant NULL = new Constant(null);
+
+  private final String flagKey;
+  private final Set<String> reads = new LinkedHashSet<>();
+  private boolean readsUnlisted;
+
+  private RuleCompiler(String flagKey) {
+    this.flagKey = flagKey;
+  }
+
+  static Compilation compile(Object rule, String flagKey) {
+    var compiler = new RuleCompiler(flagKey);
+    Node root = compiler.compileRule(rule);
+    return new Compilation(root, compiler.readsUnlisted ? null : List.copyOf(compiler.reads));
+  }
+
+  private Node compileRule(Object rule) {
+    if (rule instanceof List<?> list) {
+      return compileList(list);
+    }
+    if (!(rule instanceof Map<?, ?> map) || map.isEmpty()) {
+      return new Constant(rule);
+    }
+    try {
+      return compileOperation(map);
+    } catch (TargetingException e) {
+      String message = e.getMessage();
+      return context -> {
+        throw new TargetingException(message);
+      };
+    }
+  }
+
+  private Node compileList(List<?> list) {
+    Node[] elements = compileAll(list);
+    if (allConstant(elements, 0)) {
+      List<Object> values = new ArrayList<>(elements.length);
+      for (Node element : elements) {
+        values.add(((Constant) element).value());
+      }
+      return new Constant(Collections.unmodifiableList(values));
+    }
+    return context -> {
+      List<Object> values = new ArrayList<>(elements.length);
+      for (Node element : elements) {
+        values.add(element.evaluate(context));
+      }
+      return values;
+    };
+  }
+
+  private Node compileOperation(Map<?, ?> map) {
+    if (map.size() != 1) {
+      throw new TargetingException("A JsonLogic operation must have exactly one operator");
+    }
+    var operation = map.entrySet().iterator().next();
+    String operator = (String) operation.getKey();
+    List<?> rawArgs =
+        operation.getValue() instanceof List<?> list
+            ? list
+            : Collections.singletonList(operation.getValue());
+    Node[] args = compileAll(rawArgs);
+    if (!operator.equals("var") && !operator.equals("fractional") && allConstant(args, 0)) {
+      // nothing here reads the context, so the interpreter's answer never changes
+      return new Constant(JsonLogic.apply(map, FlagContext.EMPTY, flagKey));
+    }
+    return switch (operator) {
+      case "var" -> var(args);
+      case "if", "?:" -> ifThenElse(args);
+      case "and" -> and(args);
+      case "or" -> or(args);
+      case "!" -> not(arg(args, 0), true);
+      case "!!" -> not(arg(args, 0), false);
+      case "==" -> looseEquals(arg(args, 0), arg(args, 1), false);
+      case "!=" -> looseEquals(arg(args, 0), arg(args, 1), true);
+      case "===" -> strictEquals(arg(args, 0), arg(args, 1), false);
+      case "!==" -> strictEquals(arg(args, 0), arg(args, 1), true);
+      case "<" -> compare(result -> result < 0, args);
+      case "<=" -> compare(result -> result <= 0, args);
+      case ">" -> compare(result -> result > 0, args);
+      case ">=" -> compare(result -> result >= 0, args);
+      case "in" -> in(arg(args, 0), arg(args, 1));
+      case "cat" -> cat(args);
+      case "starts_with" -> affix(arg(args, 0), arg(args, 1), true);
+      case "ends_with" -> affix(arg(args, 0), arg(args, 1), false);
+      case "sem_ver" -> semVer(arg(args, 0), arg(args, 1), arg(args, 2));
+      case "fractional" -> fractional(args);
+      default -> throw new TargetingException("Unsupported JsonLogic operator " + operator);
+    };
+  }
+
+  private Node[] compileAll(List<?> rules) {
+    Node[] nodes = new Node[rules.size()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = compileRule(rules.get(i));
+    }
+    return nodes;
+  }
+
+  private static Node arg(Node[] args, int index) {
+    return index < args.length ? args[index] : NULL;
+  }
+
+  private static boolean allConstant(Node[] nodes, int from) {
+    for (int i = from; i < nodes.length; i++) {
+      if (!(nodes[i] instanceof Constant)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<Object> constantValues(Node[] nodes, int from) {
+    List<Object> values = new ArrayList<>(nodes.length - from);
+    for (int i = from; i < nodes.length; i++) {
+      values.add(((Constant) nodes[i]).value());
+    }
+    return values;
+  }
+
+  private Node var(Node[] args) {
+    Node defaultValue = arg(args, 1);
+    if (!(arg(args, 0) instanceof Constant constantPath)) {
+      readsUnlisted = true;
+      Node path = args[0];
+      return context -> {
+        Object resolvedPath = path.evaluate(context);
+        if (resolvedPath == null || "".equals(resolvedPath)) {
+          return context.attributes();
+        }
+        Object value = context.resolve(Values.toText(resolvedPath), flagKey);
+        return value != null ? value : defaultValue.evaluate(context);
+      };
+    }
+    Object path = constantPath.value();
+    if (path == null || "".equals(path)) {
+      readsUnlisted = true;
+      return FlagContext::attributes;
+    }
+    String text = Values.toText(path);
+    if (text.equals(FlagContext.TIMESTAMP_PATH)) {
+      readsUnlisted = true;
+    } else if (!text.equals(FlagContext.FLAG_KEY_PATH)) {
+      reads.add(text);
+    }
+    Node lookup =
+        switch (text) {
+          case FlagContext.TARGETING_KEY -> FlagContext::targetingKey;
+          case FlagContext.FLAG_KEY_PATH -> new Constant(flagKey);
+          case FlagContext.TIMESTAMP_PATH -> context -> Instant.now().getEpochSecond();
+          default -> attributePath(text.split("\\."));
+        };
+    if (defaultValue == NULL || lookup instanceof Constant) {
+      return lookup;
+    }
+    return context -> {
+      Object value = lookup.evaluate(context);
+      return value != null ? value : defaultValue.evaluate(context);
+    };
+  }
+
+  private static Node attributePath(String[] segments) {
+    if (segments.length == 1) {
+      String segment = segments[0];
+      return context -> context.attributes().get(segment);
+    }
+    return context -> {
+      Object current = context.attributes();
+      for (String segment : segments) {
+        if (!(current instanceof Map<?, ?> map)) {
+          return null;
+        }
+        current = map.get(segment);
+      }
+      return current;
+    };
+  }
+
+  private static Node ifThenElse(Node[] args) {
+    return context -> {
+      int i = 0;
+      for (; i + 1 < args.length; i += 2) {
+        if (Values.truthy(args[i].evaluate(context))) {
+          return args[i + 1].evaluate(context);
+        }
+      }
+      return i < args.length ? args[i].evaluate(context) : null;
+    };
+  }
+
+  private static Node and(Node[] args) {
+    return context -> {
+      Object value = null;
+      for (Node arg : args) {
+        value = arg.evaluate(context);
+        if (!Values.truthy(value)) {
+          return value;
+        }
+      }
+      return value;
+    };
+  }
+
+  private static Node or(Node[] args) {
+    return context -> {
+      Object value = null;
+      for (Node arg : args) {
+        value = arg.evaluate(context);
+        if (Values.truthy(value)) {
+          return value;
+        }
+      }
+      return value;
+    };
+  }
+
+  private static Node not(Node operand, boolean negate) {
+    return context -> Values.truthy(operand.evaluate(context)) != negate;
+  }
+
+  private static Node looseEquals(Node left, Node right, boolean negate) {
+    // "==" is symmetric, so a constant on either side can be prepared
+    if (right instanceof Constant constant) {
+      return looseEqualsConstant(left, constant.value(), negate);
+    }
+    if (left instanceof Constant constant) {
+      return looseEqualsConstant(right, constant.value(), negate);
+    }
+    return context ->
+        Values.looseEquals(left.evaluate(context), right.evaluate(context)) != negate;
+  }
+
+  /** {@link Values#looseEquals} with the constant's type and numeric value worked out once. */
+  private static Node looseEqualsConstant(Node operand, Object constant, boolean negate) {
+    if (constant == null) {
+      return context -> (operand.evaluate(context) == null) != negate;
+    }
+    boolean isString = constant instanceof String;
+    boolean isScalar = Values.isScalar(constant);
+    double number = isScalar ? Values.toNumber(constant) : Double.NaN;
+    return context -> {
+      Object value = operand.evaluate(context);
+      boolean equal;
+      if (value == null) {
+        equal = false;
+      } else if (isString && value instanceof String) {
+        equal = constant.equals(value);
+      } else if (isScalar && Values.isScalar(value)) {
+        equal = Values.toNumber(value) == number;
+      } else {
+        equal = constant.equals(value);
+      }
+      return equal != negate;
+    };
+  }
+
+  private static Node strictEquals(Node left, Node right, boolean negate) {
+    Node operand = right instanceof Constant ? left : right;
+    if (!(right instanceof Constant || left instanceof Constant)) {
+      return context ->
+          Values.strictEquals(left.evaluate(context), right.evaluate(context)) != negate;
+    }
+    Object constant = ((Constant) (right instanceof Constant ? right : left)).value();
+    if (constant instanceof Number constantNumber) {
+      double number = constantNumber.doubleValue();
+      return context ->
+          (operand.evaluate(context) instanceof Number value && value.doubleValue() == number)
+              != negate;
+    }
+    return context -> Objects.equals(operand.evaluate(context), constant) != negate;
+  }
+
+  private static Node compare(IntPredicate test, Node[] args) {
+    Node first = arg(args, 0);
+    Node second = arg(args, 1);
+    if (args.length < 3) {
+      return compare(test, first, second);
+    }
+    // JsonLogic "between": {"<": [1, x, 10]}
+    Node third = args[2];
+    return context -> {
+      Object left = first.evaluate(context);
+      Object middle = second.evaluate(context);
+      return compare(test, left, middle) && compare(test, middle, third.evaluate(context));
+    };
+  }
+
+  private static Node compare(IntPredicate test, Node left, Node right) {
+    if (right instanceof Constant constant) {
+      Object value = constant.value();
+      double number = Values.toNumber(value);
+      return context -> compare(test, left.evaluate(context), value, number, false);
+    }
+    if (left instanceof Constant constant) {
+      Object value = constant.value();
+      double number = Values.toNumber(value);
+      return context -> compare(test, right.evaluate(context), value, number, true);
+    }
+    return context -> compare(test, left.evaluate(context), right.evaluate(context));
+  }
+
+  /** {@link Values#compare} without boxing the result. */
+  private static boolean compare(IntPredicate test, Object left, Object right) {
+    return compare(test, left, right, Values.toNumber(right), false);
+  }
+
+  /**
+   * Compares a value with an operand whose numeric value is already known.
+   *
+   * @param reversed true if the operand is on the left
+   */
+  private static boolean compare(
+      IntPredicate test, Object value, Object operand, double operandNumber, boolean reversed) {
+    int result;
+    if (value instanceof String string && operand instanceof String operandString) {
+      result = string.compareTo(operandString);
+    } else {
+      double number = Values.toNumber(value);
+      if (Double.isNaN(number) || Double.isNaN(operandNumber)) {
+        return false;
+      }
+      result = Double.compare(number, operandNumber);
+    }
+    return test.test(reversed ? -Integer.signum(result) : result);
+  }
+
+  private static Node in(Node needle, Node haystack) {
+    if (!(haystack instanceof Constant constant)) {
+      return context -> JsonLogic.in(needle.evaluate(context), haystack.evaluate(context));
+    }
+    if (constant.value() instanceof Segment segment) {
+      return context -> needle.evaluate(context) instanceof String value && segment.contains(value);
+    }
+    if (constant.value() instanceof String string) {
+      return context -> {
+        Object value = needle.evaluate(context);
+        return value != null && string.contains(Values.toText(value));
+      };
+    }
+    if (constant.value() instanceof Collection<?> collection) {
+      var members = new Members(collection);
+      return context -> members.contains(needle.evaluate(context));
+    }
+    return context -> {
+      needle.evaluate(context);
+      return false;
+    };
+  }
+
+  /** The elements of a constant "in" list, indexed for lookup by {@link Values#strictEquals}. */
+  private static final class Members {
+    private final Set<Object> objects = new HashSet<>();
+    private final double[] numbers;
+    private final boolean containsNull;
+
+    Members(Collection<?> elements) {
+      double[] numbers = new double[elements.size()];
+      int numberCount = 0;
+      boolean containsNull = false;
+      for (Object element : elements) {
+        if (element == null) {
+          containsNull = true;
+        } else if (element instanceof Number number) {
+          double value = number.doubleValue();
+          if (!Double.isNaN(value)) {
+            // -0.0 == 0.0, though binarySearch tells them apart
+            numbers[numberCount++] = value + 0.0;
+          }
+        } else {
+          objects.add(element);
+        }
+      }
+      this.numbers = Arrays.copyOf(numbers, numberCount);
+      Arrays.sort(this.numbers);
+      this.containsNull = containsNull;
+    }
+
+    boolean contains(Object needle) {
+      if (needle == null) {
+        return containsNull;
+      }
+      if (needle instanceof Number number) {
+        double value = number.doubleValue();
+        return !Double.isNaN(value) && Arrays.binarySearch(numbers, value + 0.0) >= 0;
+      }
+      return objects.contains(needle);
+    }
+  }
+
+  private static Node cat(Node[] args) {
+    return context -> {
+      StringBuilder builder = new StringBuilder();
+      for (Node arg : args) {
+        builder.append(Values.toText(arg.evaluate(context)));
+      }
+      return builder.toString();
+    };
+  }
+
+  private static Node affix(Node value, Node affix, boolean prefix) {
+    if (affix instanceof Constant constant) {
+      if (!(constant.value() instanceof String string)) {
+        return context -> {
+          value.evaluate(context);
+          return false;
+        };
+      }
+      return context ->
+          value.evaluate(context) instanceof String text
+              && (prefix ? text.startsWith(string) : text.endsWith(string));
+    }
+    return context -> {
+      if (!(value.evaluate(context) instanceof String text)
+          || !(affix.evaluate(context) instanceof String string)) {
+        return false;
+      }
+      return prefix ? text.startsWith(string) : text.endsWith(string);
+    };
+  }
+
+  private static Node semVer(Node value, Node operator, Node target) {
+    if (!(operator instanceof Constant constantOperator && target instanceof Constant constant)) {
+      return context -> {
+        SemVer version = SemVer.parse(value.evaluate(context));
+        Object op = operator.evaluate(context);
+        SemVer other = SemVer.parse(target.evaluate(context));
+        if (version == null || other == null || !(op instanceof String string)) {
+          return false;
+        }
+        return version.matches(string, other);
+      };
+    }
+    SemVer other = SemVer.parse(constant.value());
+    if (other == null || !(constantOperator.value() instanceof String op)) {
+      return context -> {
+        value.evaluate(context);
+        return false;
+      };
+    }
+    Predicate<SemVer> matcher;
+    try {
+      matcher = SemVer.matcher(op, other);
+    } catch (TargetingException e) {
+      // the interpreter only notices the bad operator once it has a version to compare
+      String message = e.getMessage();
+      return context -> {
+        if (SemVer.parse(value.evaluate(context)) == null) {
+          return false;
+        }
+        throw new TargetingException(message);
+      };
+    }
+    return context -> {
+      SemVer version = SemVer.parse(value.evaluate(context));
+      return version != null && matcher.test(version);
+    };
+  }
+
+  private Node fractional(Node[] args) {
+    // unless a bucketing value is given, fractional buckets by the targeting key
+    reads.add(FlagContext.TARGETING_KEY);
+    if (args.length > 0 && allConstant(args, 0)) {
+      if (((Constant) args[0]).value() instanceof String) {
+        // bucketing by a constant always lands in the same bucket
+        return new Constant(
+            JsonLogic.applyFractional(constantValues(args, 0), FlagContext.EMPTY, flagKey));
+      }
+      // every argument is a [variant, weight] pair: bucket by flag key and targeting key
+      FractionalBucketer bucketer = bucketer(args, 0);
+      if (bucketer != null) {
+        return context -> {
+          String targetingKey = context.targetingKey();
+          return targetingKey == null ? null : bucketer.selectByTargetingKey(targetingKey);
+        };
+      }
+    } else if (args.length > 1 && allConstant(args, 1)) {
+      // bucket by a computed value, e.g. {"cat": [{"var": "$flagd.flagKey"}, {"var": "email"}]}
+      FractionalBucketer bucketer = bucketer(args, 1);
+      if (bucketer != null) {
+        Node bucketBy = args[0];
+        return context -> {
+          if (bucketBy.evaluate(context) instanceof String value) {
+            return bucketer.selectBy(value);
+          }
+          return evaluateFractional(args, context);
+        };
+      }
+    }
+    return context -> evaluateFractional(args, context);
+  }
+
+  /** Returns a bucketer for the constant arguments from index on, or null if they are malformed. */
+  private FractionalBucketer bucketer(Node[] args, int from) {
+    try {
+      return FractionalBucketer.of(flagKey, constantValues(args, from));
+    } catch (TargetingException e) {
+      // leave the error to the interpreter, which reports it only for buckets that reach it
+      return null;
+    }
+  }
+
+  private String evaluateFractional(Node[] args, FlagContext context) {
+    List<Object> values = new ArrayList<>(args.length);
+    for (Node arg : args) {
+      values.add(arg.evaluate(context));
+    }
+    return JsonLogic.applyFractional(values, context, flagKey);
+  }
+}
@@ -0,0 +1,131 @@
+package bio.terra.iffy.flags;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A named, immutable set of strings, such as user emails or workspace ids, declared under
+ * "$segments" in a flag definition document. Rules test membership with {"in": [value,
+ * {"$segment": "name"}]}.
+ *
+ * <p>Segments may hold tens of thousands of members, so rather than as a list of strings they are
+ * stored as one array of UTF-8 bytes, indexed by an open-addressing hash table of member numbers.
+ * A lookup hashes and compares the value without encoding it, takes constant time and allocates
+ * nothing. Members are sorted when the segment is built, so equal sets build identical segments.
+ */
+public final class Segment {
+  /** approximate heap cost of an array beyond its elements */
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  private final String name;
+  /** the members' UTF-8 bytes, back to back in sorted order */
+  private final byte[] data;
+  /** ends[i] is the offset in data just past member i */
+  private final int[] ends;
+  /** Murmur3 hash of each member */
+  private final int[] hashes;
+  /** open-addressing table of member number + 1, or 0 for an empty slot */
+  private final int[] slots;
+
+  private final int hashCode;
+
+  private Segment(String name, byte[] data, int[] ends, int[] hashes, int[] slots) {
+    this.name = name;
+    this.data = data;
+    this.ends = ends;
+    this.hashes = hashes;
+    this.slots = slots;
+    this.hashCode = 31 * name.hashCode() + Arrays.hashCode(data);
+  }
+
+  public static Segment of(String name, Collection<String> members) {
+    String[] sorted = new TreeSet<>(members).toArray(String[]::new);
+    byte[][] encoded = new byte[sorted.length][];
+    int length = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      encoded[i] = sorted[i].getBytes(StandardCharsets.UTF_8);
+      length += encoded[i].length;
+    }
+    var data = new byte[length];
+    var ends = new int[sorted.length];
+    var hashes = new int[sorted.length];
+    // at most half full, so that probe sequences stay short
+    var slots = new int[Integer.highestOneBit(Math.max(sorted.length, 1)) * 4];
+    int mask = slots.length - 1;
+    int offset = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      System.arraycopy(encoded[i], 0, data, offset, encoded[i].length);
+      offset += encoded[i].length;
+      ends[i] = offset;
+      hashes[i] = Murmur3.hash32(encoded[i]);
+      int slot = hashes[i] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = i + 1;
+    }
+    return new Segment(name, data, ends, hashes, slots);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public boolean contains(String value) {
+    int hash = Murmur3.hash32(value);
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int member = slots[slot] - 1;
+      if (hashes[member] == hash
+          && Utf8.equals(data, member == 0 ? 0 : ends[member - 1], ends[member], value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the members in sorted order, decoding each one. */
+  public List<String> members() {
+    List<String> members = new ArrayList<>(ends.length);
+    for (int i = 0; i < ends.length; i++) {
+      int from = i == 0 ? 0 : ends[i - 1];
+      members.add(new String(data, from, ends[i] - from, StandardCharsets.UTF_8));
+    }
+    return members;
+  }
+
+  /** Returns the number of members. */
+  public int size() {
+    return ends.length;
+  }
+
+  /** Returns the approximate number of heap bytes the segment's members and index occupy. */
+  public long footprintBytes() {
+    return 4L * ARRAY_HEADER_BYTES
+        + data.length
+        + (long) Integer.BYTES * (ends.length + hashes.length + slots.length);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Segment segment
+        && hashCode == segment.hashCode
+        && name.equals(segment.name)
+        && Arrays.equals(ends, segment.ends)
+        && Arrays.equals(data, segment.data);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return "Segment[" + name + ", " + size() + " members]";
+  }
+}
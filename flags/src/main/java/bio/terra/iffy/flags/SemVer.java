@@ -0,0 +1,97 @@
+package bio.terra.iffy.flags;
+
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** A parsed semantic version, used by flagd's "sem_ver" operator. */
+record SemVer(long major, long minor, long patch, String preRelease) implements Comparable<SemVer> {
+  private static final Pattern PATTERN =
+      Pattern.compile(
+          "^v?(0|[1-9]\\d*)(?:\\.(0|[1-9]\\d*))?(?:\\.(0|[1-9]\\d*))?"
+              + "(?:-([0-9A-Za-z.-]+))?(?:\\+[0-9A-Za-z.-]+)?$");
+
+  /** Returns the parsed version, or null if the value is not a semantic version. */
+  static SemVer parse(Object value) {
+    if (!(value instanceof String text)) {
+      return null;
+    }
+    Matcher matcher = PATTERN.matcher(text.trim());
+    if (!matcher.matches()) {
+      return null;
+    }
+    return new SemVer(
+        Long.parseLong(matcher.group(1)),
+        matcher.group(2) == null ? 0 : Long.parseLong(matcher.group(2)),
+        matcher.group(3) == null ? 0 : Long.parseLong(matcher.group(3)),
+        matcher.group(4));
+  }
+
+  /**
+   * Applies a sem_ver operator. "^" matches the same major version and "~" the same major and
+   * minor version, as in flagd.
+   */
+  boolean matches(String operator, SemVer other) {
+    return matcher(operator, other).test(this);
+  }
+
+  /**
+   * Returns a test applying a sem_ver operator against a fixed version, so that a compiled rule
+   * resolves the operator once.
+   *
+   * @throws TargetingException if the operator is not a sem_ver operator
+   */
+  static Predicate<SemVer> matcher(String operator, SemVer other) {
+    return switch (operator) {
+      case "=" -> version -> version.compareTo(other) == 0;
+      case "!=" -> version -> version.compareTo(other) != 0;
+      case "<" -> version -> version.compareTo(other) < 0;
+      case "<=" -> version -> version.compareTo(other) <= 0;
+      case ">" -> version -> version.compareTo(other) > 0;
+      case ">=" -> version -> version.compareTo(other) >= 0;
+      case "^" -> version -> version.major == other.major;
+      case "~" -> version -> version.major == other.major && version.minor == other.minor;
+      default -> throw new TargetingException("Unknown sem_ver operator " + operator);
+    };
+  }
+
+  @Override
+  public int compareTo(SemVer other) {
+    int result = Long.compare(major, other.major);
+    if (result == 0) {
+      result = Long.compare(minor, other.minor);
+    }
+    if (result == 0) {
+      result = Long.compare(patch, other.patch);
+    }
+    if (result == 0) {
+      result = comparePreRelease(preRelease, other.preRelease);
+    }
+    return result;
+  }
+
+  /** A version without a pre-release tag ranks above the same version with one. */
+  private static int comparePreRelease(String left, String right) {
+    if (left == null || right == null) {
+      return left == null ? (right == null ? 0 : 1) : -1;
+    }
+    String[] leftIds = left.split("\\.");
+    String[] rightIds = right.split("\\.");
+    for (int i = 0; i < Math.min(leftIds.length, rightIds.length); i++) {
+      boolean leftNumeric = leftIds[i].chars().allMatch(Character::isDigit);
+      boolean rightNumeric = rightIds[i].chars().allMatch(Character::isDigit);
+      int result;
+      if (leftNumeric && rightNumeric) {
+        result = Long.compare(Long.parseLong(leftIds[i]), Long.parseLong(rightIds[i]));
+      } else if (leftNumeric || rightNumeric) {
+        result = leftNumeric ? -1 : 1;
+      } else {
+        result = leftIds[i].compareTo(rightIds[i]);
+      }
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(leftIds.length, rightIds.length);
+  }
+}
@@ -0,0 +1,8 @@
+package bio.terra.iffy.flags;
+
+/** Thrown when a targeting rule cannot be evaluated, e.g. because it uses an unknown operator. */
+public class TargetingException extends RuntimeException {
+  public TargetingException(String message) {
+    super(message);
+  }
+}
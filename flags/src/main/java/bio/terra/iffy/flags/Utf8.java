@@ -0,0 +1,79 @@
+package bio.terra.iffy.flags;
+
+/**
+ * UTF-8 encoding of strings one character at a time, for hashing and comparing strings against
+ * encoded bytes without allocating. Encodes as {@link String#getBytes} does: an unpaired surrogate
+ * becomes '?'.
+ */
+final class Utf8 {
+  private Utf8() {}
+
+  /**
+   * Encodes the character at index, or the surrogate pair that starts there.
+   *
+   * @return the encoded bytes, first byte lowest, in the low 32 bits; the number of bytes in the
+   *     next 8 bits; and the number of chars encoded above those
+   */
+  static long encode(String text, int index) {
+    char c = text.charAt(index);
+    if (c < 0x80) {
+      return pack(c, 1, 1);
+    }
+    if (c < 0x800) {
+      return pack((0xc0 | c >> 6) | (0x80 | c & 0x3f) << 8, 2, 1);
+    }
+    if (!Character.isSurrogate(c)) {
+      return pack(
+          (0xe0 | c >> 12) | (0x80 | c >> 6 & 0x3f) << 8 | (0x80 | c & 0x3f) << 16, 3, 1);
+    }
+    if (Character.isHighSurrogate(c)
+        && index + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(index + 1))) {
+      int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+      return pack(
+          (0xf0 | codePoint >> 18)
+              | (0x80 | codePoint >> 12 & 0x3f) << 8
+              | (0x80 | codePoint >> 6 & 0x3f) << 16
+              | (0x80 | codePoint & 0x3f) << 24,
+          4,
+          2);
+    }
+    return pack('?', 1, 1);
+  }
+
+  static int bytes(long encoded) {
+    return (int) encoded;
+  }
+
+  static int byteCount(long encoded) {
+    return (int) (encoded >>> 32) & 0xff;
+  }
+
+  static int charCount(long encoded) {
+    return (int) (encoded >>> 40);
+  }
+
+  /** Returns true if data[from, to) is the UTF-8 encoding of text. */
+  static boolean equals(byte[] data, int from, int to, String text) {
+    int position = from;
+    for (int i = 0; i < text.length(); ) {
+      long encoded = encode(text, i);
+      int bytes = bytes(encoded);
+      int byteCount = byteCount(encoded);
+      if (position + byteCount > to) {
+        return false;
+      }
+      for (int j = 0; j < byteCount; j++, bytes >>>= 8) {
+        if (data[position++] != (byte) bytes) {
+          return false;
+        }
+      }
+      i += charCount(encoded);
+    }
+    return position == to;
+  }
+
+  private static long pack(int bytes, int byteCount, int charCount) {
+    return (bytes & 0xffffffffL) | (long) byteCount << 32 | (long) charCount << 40;
+  }
+}
@@ -0,0 +1,106 @@
+package bio.terra.iffy.flags;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/** JavaScript-flavoured value semantics shared by the JsonLogic operators. */
+final class Values {
+  private Values() {}
+
+  static boolean truthy(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean bool) {
+      return bool;
+    }
+    if (value instanceof Number number) {
+      double d = number.doubleValue();
+      return d != 0 && !Double.isNaN(d);
+    }
+    if (value instanceof String string) {
+      return !string.isEmpty();
+    }
+    if (value instanceof Collection<?> collection) {
+      return !collection.isEmpty();
+    }
+    return true;
+  }
+
+  /** JsonLogic "==": numbers, numeric strings and booleans are compared numerically. */
+  static boolean looseEquals(Object left, Object right) {
+    if (left == null || right == null) {
+      return left == right;
+    }
+    if (left instanceof String && right instanceof String) {
+      return left.equals(right);
+    }
+    if (isScalar(left) && isScalar(right)) {
+      return toNumber(left) == toNumber(right);
+    }
+    return Objects.equals(left, right);
+  }
+
+  /** JsonLogic "===": values must have the same type; numbers compare by value. */
+  static boolean strictEquals(Object left, Object right) {
+    if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+      return leftNumber.doubleValue() == rightNumber.doubleValue();
+    }
+    return Objects.equals(left, right);
+  }
+
+  /**
+   * Orders two values as JavaScript relational operators do: strings lexically, anything else
+   * numerically.
+   *
+   * @return a negative, zero or positive number, or null if the values are not comparable
+   */
+  static Integer compare(Object left, Object right) {
+    if (left instanceof String leftString && right instanceof String rightString) {
+      return leftString.compareTo(rightString);
+    }
+    double leftNumber = toNumber(left);
+    double rightNumber = toNumber(right);
+    if (Double.isNaN(leftNumber) || Double.isNaN(rightNumber)) {
+      return null;
+    }
+    return Double.compare(leftNumber, rightNumber);
+  }
+
+  static double toNumber(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof Number number) {
+      return number.doubleValue();
+    }
+    if (value instanceof Boolean bool) {
+      return bool ? 1 : 0;
+    }
+    if (value instanceof String string) {
+      if (string.isBlank()) {
+        return 0;
+      }
+      try {
+        return Double.parseDouble(string.trim());
+      } catch (NumberFormatException e) {
+        return Double.NaN;
+      }
+    }
+    return Double.NaN;
+  }
+
+  static String toText(Object value) {
+    if (value == null) {
+      return "";
+    }
+    if (value instanceof Double d && d == Math.rint(d) && !Double.isInfinite(d)) {
+      return Long.toString(d.longValue());
+    }
+    return value.toString();
+  }
+
+  static boolean isScalar(Object value) {
+    return value instanceof Number || value instanceof Boolean || value instanceof String;
+  }
+}
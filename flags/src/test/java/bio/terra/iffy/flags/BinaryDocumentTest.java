@@ -0,0 +1,84 @@
+package bio.terra.iffy.flags;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BinaryDocumentTest {
+
+  @Test
+  void roundTripsFlagDocument() throws Exception {
+    Map<String, Object> document =
+        new ObjectMapper()
+            .readValue(
+                """
+                {
+                  "$evaluators": {"staff": {"ends_with": [{"var": "email"}, "@example.com"]}},
+                  "$segments": {"testers": ["a@example.org", "b@example.org"]},
+                  "flags": {
+                    "ratio": {
+                      "state": "ENABLED",
+                      "variants": {"low": 0.25, "high": 9007199254740993},
+                      "defaultVariant": "low",
+                      "targeting": {"if": [{"$ref": "staff"}, "high", null]}
+                    },
+                    "beta": {
+                      "state": "DISABLED",
+                      "variants": {"on": true, "off": false},
+                      "defaultVariant": "off",
+                      "targeting": {"in": [{"var": "email"}, {"$segment": "testers"}]}
+                    }
+                  }
+                }
+                """,
+                new TypeReference<>() {});
+
+    Object decoded = BinaryDocument.decode(ByteBuffer.wrap(BinaryDocument.encode(document)));
+
+    assertThat(decoded, is(document));
+    var parser = new FlagdParser(new ObjectMapper());
+    @SuppressWarnings("unchecked")
+    var decodedDocument = (Map<String, Object>) decoded;
+    assertThat(parser.parse(decodedDocument), is(parser.parse(document)));
+  }
+
+  @Test
+  void preservesTypesAndOrder() {
+    Map<String, Object> value = new LinkedHashMap<>();
+    value.put("z", null);
+    value.put("int", -7);
+    value.put("long", 1L << 40);
+    value.put("double", 0.25);
+    value.put("big", BigInteger.TWO.pow(70));
+    value.put("bools", Arrays.asList(true, false));
+    value.put("text", "m\u00fcller \ud83d\ude80 " + "x".repeat(300));
+    value.put("nested", Map.of("empty", List.of()));
+
+    Object decoded = BinaryDocument.decode(ByteBuffer.wrap(BinaryDocument.encode(value)));
+
+    assertThat(decoded, is(value));
+    assertThat(List.copyOf(((Map<?, ?>) decoded).keySet()), is(List.copyOf(value.keySet())));
+    assertThat(((Map<?, ?>) decoded).get("long") instanceof Long, is(true));
+    assertThat(((Map<?, ?>) decoded).get("int") instanceof Integer, is(true));
+  }
+
+  @Test
+  void rejectsInvalidInput() {
+    byte[] encoded = BinaryDocument.encode(Map.of("key", "value"));
+    var truncated = ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1));
+    assertThrows(IllegalArgumentException.class, () -> BinaryDocument.decode(truncated));
+    var unknownTag = ByteBuffer.wrap(new byte[] {42});
+    assertThrows(IllegalArgumentException.class, () -> BinaryDocument.decode(unknownTag));
+    assertThrows(IllegalArgumentException.class, () -> BinaryDocument.encode(new Object()));
+  }
+}
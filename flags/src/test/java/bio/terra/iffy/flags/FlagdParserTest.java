@@ -0,0 +1,110 @@
+package bio.terra.iffy.flags;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FlagdParserTest {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private final FlagdParser parser = new FlagdParser(objectMapper);
+
+  private static Map<String, Object> document(String evaluator) throws Exception {
+    return objectMapper.readValue(
+        """
+        {
+          "$evaluators": {"staff": %s},
+          "flags": {
+            "static": {"state": "ENABLED", "variants": {"on": true}, "defaultVariant": "on"},
+            "targeted": {
+              "state": "ENABLED",
+              "variants": {"on": true, "off": false},
+              "defaultVariant": "off",
+              "targeting": {"if": [{"$ref": "staff"}, "on", null]}
+            }
+          }
+        }
+        """
+            .formatted(evaluator),
+        new TypeReference<>() {});
+  }
+
+  @Test
+  void unchangedFlagsAreReused() throws Exception {
+    String staff = "{\"ends_with\": [{\"var\": \"email\"}, \"@example.com\"]}";
+    var first = parser.parseDocument(document(staff)).flags();
+
+    var same = parser.parseDocument(document(staff), first).flags();
+    assertThat(same.get("static"), sameInstance(first.get("static")));
+    assertThat(same.get("targeted"), sameInstance(first.get("targeted")));
+
+    // changing a shared evaluator changes the flags that reference it
+    String changed = staff.replace("example.com", "example.org");
+    var next = parser.parseDocument(document(changed), first).flags();
+    assertThat(next.get("static"), sameInstance(first.get("static")));
+    assertThat(next.get("targeted") == first.get("targeted"), is(false));
+    var context = FlagContext.of(null, Map.of("email", "a@example.org"));
+    assertThat(next.get("targeted").compiledTargeting().evaluate(context), is("on"));
+  }
+
+  @Test
+  void reservedNamesAreRejected() {
+    Map<String, Object> reservedKey =
+        Map.of(
+            "flags",
+            Map.of(
+                "__other__",
+                Map.of(
+                    "state", "ENABLED", "variants", Map.of("on", true), "defaultVariant", "on")));
+    Map<String, Object> reservedVariant =
+        Map.of(
+            "flags",
+            Map.of(
+                "flag",
+                Map.of(
+                    "state",
+                    "ENABLED",
+                    "variants",
+                    Map.of("__none__", true),
+                    "defaultVariant",
+                    "__none__")));
+
+    assertThrows(InvalidFlagConfigurationException.class, () -> parser.parseDocument(reservedKey));
+    assertThrows(
+        InvalidFlagConfigurationException.class, () -> parser.parseDocument(reservedVariant));
+    assertThat(FlagdParser.isReserved("__"), is(false));
+    assertThat(FlagdParser.isReserved("__init"), is(false));
+  }
+
+  @Test
+  void toDocumentRoundTrip() throws Exception {
+    String staff = "{\"in\": [{\"var\": \"id\"}, {\"$segment\": \"staff\"}]}";
+    Map<String, Object> source = document(staff);
+    source.put("$segments", Map.of("staff", List.of("b@example.com", "a@example.com")));
+    var parsed = parser.parseDocument(source);
+
+    String json = write(parsed);
+    var reparsed =
+        parser.parseDocument(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(json.contains("$ref"), is(false));
+    assertThat(reparsed.segments(), is(parsed.segments()));
+    Object targeting = parsed.flags().get("targeted").targeting();
+    assertThat(reparsed.flags().get("targeted").targeting(), is(targeting));
+    // equal flags write identical documents
+    assertThat(write(reparsed), is(json));
+  }
+
+  private static String write(FlagdParser.Document document) throws Exception {
+    var snapshot = new FlagSnapshot(1, document.flags(), document.segments());
+    return objectMapper.writeValueAsString(FlagdParser.toDocument(snapshot));
+  }
+}
@@ -0,0 +1,100 @@
+package bio.terra.iffy.flags;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks fractional bucketing against fixed flagd bucket assignments. The fixture records, for
+ * each flag key and targeting key, MurmurHash3 (x86, 32-bit, seed 0) of the UTF-8 encoded
+ * concatenation, as computed by Guava's independent implementation, and the variant flagd's bucket
+ * formula selects for that hash.
+ */
+class FractionalBucketerTest {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  record BucketCase(
+      String flagKey, String targetingKey, List<Object> distribution, int hash, String variant) {}
+
+  record Fixture(List<BucketCase> cases) {}
+
+  private static List<BucketCase> cases() throws Exception {
+    try (InputStream inputStream =
+        FractionalBucketerTest.class.getResourceAsStream("/fractional/flagd-buckets.json")) {
+      return objectMapper.readValue(inputStream, Fixture.class).cases();
+    }
+  }
+
+  @Test
+  void knownVectors() {
+    assertThat(Murmur3.hash32(""), is(0));
+    assertThat(Murmur3.hash32("hello"), is(0x248bfa47));
+    assertThat(Murmur3.hash32("The quick brown fox jumps over the lazy dog"), is(0x2e4ff723));
+  }
+
+  @Test
+  void streamingHashMatchesEncodedHash() throws Exception {
+    for (BucketCase c : cases()) {
+      byte[] flagKey = c.flagKey().getBytes(StandardCharsets.UTF_8);
+      byte[] concatenated = (c.flagKey() + c.targetingKey()).getBytes(StandardCharsets.UTF_8);
+      assertThat(c.targetingKey(), Murmur3.hash32(flagKey, c.targetingKey()), is(c.hash()));
+      assertThat(c.targetingKey(), Murmur3.hash32(concatenated), is(c.hash()));
+    }
+  }
+
+  @Test
+  void matchesFlagdBuckets() throws Exception {
+    for (BucketCase c : cases()) {
+      var bucketer = FractionalBucketer.of(c.flagKey(), c.distribution());
+      assertThat(
+          c.targetingKey(), bucketer.selectByTargetingKey(c.targetingKey()), is(c.variant()));
+      assertThat(c.targetingKey(), Fractional.select(c.hash(), c.distribution()), is(c.variant()));
+    }
+  }
+
+  @Test
+  void compiledAndInterpretedRulesMatchFlagdBuckets() throws Exception {
+    for (BucketCase c : cases()) {
+      Map<String, Object> rule = Map.of("fractional", c.distribution());
+      var context = FlagContext.of(c.targetingKey(), Map.of());
+      assertThat(
+          c.targetingKey(),
+          CompiledRule.compile(rule, c.flagKey()).evaluate(context),
+          is(c.variant()));
+      assertThat(c.targetingKey(), JsonLogic.apply(rule, context, c.flagKey()), is(c.variant()));
+    }
+  }
+
+  @Test
+  void bucketingDoesNotAllocate() throws Exception {
+    assumeTrue(
+        ManagementFactory.getThreadMXBean() instanceof ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported());
+    var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var bucketer =
+        FractionalBucketer.of("headerColor", List.of(List.of("red", 50), List.of("blue", 50)));
+    String[] keys = {
+      "user-1", "m\u00fcller", "\u6771\u4eac\u306e\u5229\u7528\u8005", "emoji-\ud83d\ude80-user"
+    };
+    // warm up so the measurement does not include class loading or compilation
+    for (int i = 0; i < 20_000; i++) {
+      bucketer.selectByTargetingKey(keys[i % keys.length]);
+    }
+    long before = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < 10_000; i++) {
+      bucketer.selectByTargetingKey(keys[i % keys.length]);
+    }
+    long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+    assertThat(allocated, lessThan(10_000L));
+  }
+}
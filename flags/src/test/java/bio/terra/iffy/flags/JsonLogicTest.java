@@ -0,0 +1,69 @@
+package bio.terra.iffy.flags;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonLogicTest {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final Map<String, Object> attributes =
+      Map.of("email", "someone@broadinstitute.org", "age", 42, "app", Map.of("version", "1.4.2"));
+  private static final FlagContext context = FlagContext.of("user-1", attributes);
+
+  private static Object apply(String rule) throws Exception {
+    return JsonLogic.apply(objectMapper.readValue(rule, Object.class), context, "my-flag");
+  }
+
+  @Test
+  void variables() throws Exception {
+    assertThat(apply("{\"var\": \"email\"}"), is("someone@broadinstitute.org"));
+    assertThat(apply("{\"var\": \"app.version\"}"), is("1.4.2"));
+    assertThat(apply("{\"var\": [\"missing\", \"fallback\"]}"), is("fallback"));
+    assertThat(apply("{\"var\": \"targetingKey\"}"), is("user-1"));
+    assertThat(apply("{\"var\": \"$flagd.flagKey\"}"), is("my-flag"));
+  }
+
+  @Test
+  void comparisons() throws Exception {
+    assertThat(apply("{\"==\": [{\"var\": \"age\"}, \"42\"]}"), is(true));
+    assertThat(apply("{\"===\": [{\"var\": \"age\"}, \"42\"]}"), is(false));
+    assertThat(apply("{\"<\": [18, {\"var\": \"age\"}, 65]}"), is(true));
+    assertThat(apply("{\">=\": [{\"var\": \"age\"}, 50]}"), is(false));
+    assertThat(apply("{\"in\": [\"broad\", {\"var\": \"email\"}]}"), is(true));
+    assertThat(apply("{\"in\": [{\"var\": \"age\"}, [1, 42]]}"), is(true));
+  }
+
+  @Test
+  void flagdOperators() throws Exception {
+    assertThat(apply("{\"ends_with\": [{\"var\": \"email\"}, \"@broadinstitute.org\"]}"), is(true));
+    assertThat(apply("{\"starts_with\": [{\"var\": \"email\"}, \"nobody\"]}"), is(false));
+    assertThat(apply("{\"sem_ver\": [{\"var\": \"app.version\"}, \">=\", \"1.4.0\"]}"), is(true));
+    assertThat(apply("{\"sem_ver\": [{\"var\": \"app.version\"}, \"~\", \"1.3.0\"]}"), is(false));
+    assertThat(apply("{\"sem_ver\": [\"1.0.0-rc.1\", \"<\", \"1.0.0\"]}"), is(true));
+  }
+
+  @Test
+  void fractionalIsDeterministic() throws Exception {
+    String rule = "{\"fractional\": [[\"a\", 50], [\"b\", 50]]}";
+    assertThat(apply(rule), is(apply(rule)));
+    assertThat(apply("{\"fractional\": [[\"only\", 100]]}"), is("only"));
+  }
+
+  @Test
+  void logic() throws Exception {
+    assertThat(apply("{\"if\": [false, \"a\", true, \"b\", \"c\"]}"), is("b"));
+    assertThat(apply("{\"and\": [true, \"\", \"x\"]}"), is(""));
+    assertThat(apply("{\"or\": [0, null, \"x\"]}"), is("x"));
+    assertThat(apply("{\"!\": [{\"var\": \"missing\"}]}"), is(true));
+    assertThat(apply("{\"cat\": [\"a\", 1, \"b\"]}"), is("a1b"));
+  }
+
+  @Test
+  void unknownOperator() {
+    assertThrows(TargetingException.class, () -> apply("{\"nope\": [1]}"));
+  }
+}
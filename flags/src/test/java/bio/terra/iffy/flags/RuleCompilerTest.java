@@ -0,0 +1,253 @@
+package bio.terra.iffy.flags;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.junit.jupiter.api.Test;
+
+/** Checks compiled rules against the JsonLogic interpreter, the reference semantics. */
+class RuleCompilerTest {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final String FLAG_KEY = "my-flag";
+
+  private static final List<String> RULES =
+      List.of(
+          "true",
+          "\"literal\"",
+          "[1, {\"var\": \"age\"}, \"x\"]",
+          "{}",
+          "{\"var\": \"email\"}",
+          "{\"var\": \"app.version\"}",
+          "{\"var\": \"app.missing.deeper\"}",
+          "{\"var\": [\"missing\", \"fallback\"]}",
+          "{\"var\": [\"email\", \"fallback\"]}",
+          "{\"var\": \"\"}",
+          "{\"var\": 1}",
+          "{\"var\": \"targetingKey\"}",
+          "{\"var\": [\"targetingKey\", \"anonymous\"]}",
+          "{\"var\": \"$flagd.flagKey\"}",
+          "{\"var\": {\"cat\": [\"app\", \".\", \"version\"]}}",
+          "{\"if\": [{\"var\": \"admin\"}, \"a\", {\"var\": \"age\"}, \"b\", \"c\"]}",
+          "{\"if\": [{\"var\": \"admin\"}, \"a\"]}",
+          "{\"?:\": [{\"var\": \"admin\"}, \"a\", \"b\"]}",
+          "{\"and\": [{\"var\": \"age\"}, \"\", \"x\"]}",
+          "{\"and\": [{\"var\": \"age\"}, {\"var\": \"email\"}]}",
+          "{\"or\": [0, {\"var\": \"missing\"}, {\"var\": \"email\"}]}",
+          "{\"!\": [{\"var\": \"missing\"}]}",
+          "{\"!!\": {\"var\": \"tags\"}}",
+          "{\"==\": [{\"var\": \"age\"}, \"42\"]}",
+          "{\"==\": [\"42\", {\"var\": \"age\"}]}",
+          "{\"==\": [{\"var\": \"age\"}, true]}",
+          "{\"==\": [{\"var\": \"admin\"}, 1]}",
+          "{\"==\": [{\"var\": \"missing\"}, null]}",
+          "{\"==\": [{\"var\": \"email\"}, {\"var\": \"email\"}]}",
+          "{\"!=\": [{\"var\": \"tier\"}, \"free\"]}",
+          "{\"===\": [{\"var\": \"age\"}, 42.0]}",
+          "{\"===\": [{\"var\": \"age\"}, \"42\"]}",
+          "{\"!==\": [\"free\", {\"var\": \"tier\"}]}",
+          "{\"===\": [{\"var\": \"tags\"}, [\"a\", \"b\"]]}",
+          "{\"<\": [18, {\"var\": \"age\"}, 65]}",
+          "{\"<\": [{\"var\": \"age\"}, 18]}",
+          "{\"<=\": [42, {\"var\": \"age\"}]}",
+          "{\">\": [{\"var\": \"tier\"}, \"basic\"]}",
+          "{\">\": [\"basic\", {\"var\": \"tier\"}]}",
+          "{\">=\": [{\"var\": \"age\"}, \"40\"]}",
+          "{\">=\": [{\"var\": \"email\"}, 3]}",
+          "{\"<\": [{\"var\": \"age\"}, {\"var\": \"limit\"}]}",
+          "{\"in\": [\"broad\", {\"var\": \"email\"}]}",
+          "{\"in\": [{\"var\": \"tier\"}, \"free,basic\"]}",
+          "{\"in\": [{\"var\": \"age\"}, [1, 42.0, \"x\"]]}",
+          "{\"in\": [{\"var\": \"tier\"}, [\"pro\", \"free\", null, -0.0]]}",
+          "{\"in\": [{\"var\": \"missing\"}, [\"pro\", null]]}",
+          "{\"in\": [{\"var\": \"zero\"}, [0]]}",
+          "{\"in\": [{\"var\": \"tags\"}, [[\"a\", \"b\"], \"c\"]]}",
+          "{\"in\": [\"a\", {\"var\": \"tags\"}]}",
+          "{\"in\": [{\"var\": \"tier\"}, 5]}",
+          "{\"cat\": [\"a\", {\"var\": \"age\"}, 1.5, null]}",
+          "{\"starts_with\": [{\"var\": \"email\"}, \"someone\"]}",
+          "{\"ends_with\": [{\"var\": \"email\"}, \"@broadinstitute.org\"]}",
+          "{\"ends_with\": [{\"var\": \"email\"}, 5]}",
+          "{\"starts_with\": [{\"var\": \"email\"}, {\"var\": \"tier\"}]}",
+          "{\"sem_ver\": [{\"var\": \"app.version\"}, \">=\", \"1.4.0\"]}",
+          "{\"sem_ver\": [{\"var\": \"app.version\"}, \"~\", \"1.3.0\"]}",
+          "{\"sem_ver\": [{\"var\": \"app.version\"}, \"^\", \"v1.0.0\"]}",
+          "{\"sem_ver\": [{\"var\": \"app.version\"}, \"<\", \"not a version\"]}",
+          "{\"sem_ver\": [{\"var\": \"app.version\"}, \"??\", \"1.0.0\"]}",
+          "{\"sem_ver\": [{\"var\": \"app.version\"}, {\"var\": \"tier\"}, \"1.0.0\"]}",
+          "{\"sem_ver\": [\"1.0.0-rc.1\", \"<\", \"1.0.0\"]}",
+          "{\"fractional\": [[\"a\", 50], [\"b\", 50]]}",
+          "{\"fractional\": [[\"a\", 10], [\"b\", 20], [\"c\"]]}",
+          "{\"fractional\": [[\"a\", 0], [\"b\", 0]]}",
+          "{\"fractional\": [{\"var\": \"email\"}, [\"a\", 50], [\"b\", 50]]}",
+          "{\"fractional\": [{\"var\": \"missing\"}, [\"a\", 50], [\"b\", 50]]}",
+          "{\"fractional\": [\"constant\", [\"a\", 50], [\"b\", 50]]}",
+          "{\"fractional\": [[\"a\", 50], [1, 50]]}",
+          "{\"fractional\": [[\"a\", \"heavy\"], [\"b\", 50]]}",
+          "{\"fractional\": [{\"cat\": [{\"var\": \"$flagd.flagKey\"}, {\"var\": \"email\"}]},"
+              + " [\"a\", 1], [\"b\", 1], [\"c\", 1]]}",
+          "{\"fractional\": []}",
+          "{\"if\": [{\"var\": \"admin\"}, {\"nope\": [1]}, \"safe\"]}",
+          "{\"nope\": [{\"var\": \"age\"}]}",
+          "{\"==\": [1, 1], \"!=\": [1, 2]}");
+
+  private static final List<FlagContext> CONTEXTS =
+      List.of(
+          FlagContext.EMPTY,
+          FlagContext.of("user-1", attributes()),
+          FlagContext.of("user-2", Map.of("age", 12, "tier", "pro", "admin", true, "limit", 10)),
+          FlagContext.of(
+              null,
+              Map.of(
+                  "targetingKey",
+                  "from-attributes",
+                  "age",
+                  "42",
+                  "tier",
+                  "basic",
+                  "zero",
+                  -0.0,
+                  "app",
+                  Map.of("version", "2.0.0-beta.1"))),
+          FlagContext.of("user-3", Map.of("email", 17, "age", 65.5, "tags", List.of("a", "b"))));
+
+  private static Map<String, Object> attributes() {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("email", "someone@broadinstitute.org");
+    attributes.put("age", 42);
+    attributes.put("tier", "free");
+    attributes.put("admin", false);
+    attributes.put("tags", List.of("c"));
+    attributes.put("app", Map.of("version", "1.4.2"));
+    return attributes;
+  }
+
+  @Test
+  void compiledRulesMatchInterpreter() throws Exception {
+    for (String json : RULES) {
+      Object rule = objectMapper.readValue(json, Object.class);
+      CompiledRule compiled = CompiledRule.compile(rule, FLAG_KEY);
+      for (FlagContext context : CONTEXTS) {
+        assertThat(
+            json + " with " + context.attributes(),
+            outcome(() -> compiled.evaluate(context)),
+            is(outcome(() -> JsonLogic.apply(rule, context, FLAG_KEY))));
+      }
+    }
+  }
+
+  @Test
+  void fractionalBucketsMatchInterpreter() throws Exception {
+    Object rule =
+        objectMapper.readValue(
+            "{\"fractional\": [[\"a\", 17], [\"b\", 33], [\"c\", 50]]}", Object.class);
+    CompiledRule compiled = CompiledRule.compile(rule, FLAG_KEY);
+    for (int i = 0; i < 1000; i++) {
+      var context = FlagContext.of("user-" + i, Map.of());
+      assertThat(compiled.evaluate(context), is(JsonLogic.apply(rule, context, FLAG_KEY)));
+    }
+  }
+
+  @Test
+  void exampleFlagsMatchInterpreter() throws Exception {
+    Map<String, FlagDefinition> flags;
+    try (InputStream inputStream = new FileInputStream("../flagd.example.json")) {
+      flags = new FlagdParser(objectMapper).parse(inputStream);
+    }
+    List<FlagContext> contexts = new ArrayList<>(CONTEXTS);
+    contexts.add(
+        FlagContext.of("user-4", Map.of("email", "a@broadinstitute.org", "uiVersion", "1.9.0")));
+    for (FlagDefinition flag : flags.values()) {
+      for (FlagContext context : contexts) {
+        assertThat(
+            flag.key(),
+            outcome(() -> flag.compiledTargeting().evaluate(context)),
+            is(outcome(() -> JsonLogic.apply(flag.targeting(), context, flag.key()))));
+      }
+    }
+  }
+
+  @Test
+  void contextReads() throws Exception {
+    Map<String, List<String>> expected = new HashMap<>();
+    expected.put("true", List.of());
+    expected.put("{\"var\": \"$flagd.flagKey\"}", List.of());
+    expected.put(
+        "{\"if\": [{\"var\": \"admin\"}, \"a\", {\"var\": \"app.version\"}, \"b\"]}",
+        List.of("admin", "app.version"));
+    expected.put("{\"var\": [\"targetingKey\", \"anonymous\"]}", List.of("targetingKey"));
+    expected.put("{\"fractional\": [[\"a\", 1], [\"b\", 1]]}", List.of("targetingKey"));
+    expected.put("{\"var\": \"\"}", null);
+    expected.put("{\"var\": {\"cat\": [\"app\", \".\", \"version\"]}}", List.of("app.version"));
+    expected.put("{\"var\": {\"var\": \"field\"}}", null);
+    expected.put("{\">\": [{\"var\": \"$flagd.timestamp\"}, 0]}", null);
+    for (var entry : expected.entrySet()) {
+      Object rule = objectMapper.readValue(entry.getKey(), Object.class);
+      assertThat(
+          entry.getKey(),
+          CompiledRule.compile(rule, FLAG_KEY).contextReads(),
+          is(entry.getValue()));
+    }
+  }
+
+  @Test
+  void evaluationDoesNotAllocate() throws Exception {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+    var allocations = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(allocations.isThreadAllocatedMemorySupported());
+    allocations.setThreadAllocatedMemoryEnabled(true);
+
+    Object rule =
+        objectMapper.readValue(
+            """
+            {"if": [
+              {"and": [
+                {"ends_with": [{"var": "email"}, "@broadinstitute.org"]},
+                {"in": [{"var": "tier"}, ["free", "basic"]]},
+                {"<": [18, {"var": "age"}, 65]},
+                {"==": [{"var": "app.version"}, "1.4.2"]}
+              ]},
+              {"fractional": [["a", 50], ["b", 50]]},
+              "off"
+            ]}""",
+            Object.class);
+    CompiledRule compiled = CompiledRule.compile(rule, FLAG_KEY);
+    var context = FlagContext.of("user-1", attributes());
+    Object expected = JsonLogic.apply(rule, context, FLAG_KEY);
+    for (int i = 0; i < 10_000; i++) {
+      compiled.evaluate(context);
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = allocations.getThreadAllocatedBytes(threadId);
+    Object result = null;
+    for (int i = 0; i < 10_000; i++) {
+      result = compiled.evaluate(context);
+    }
+    long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+    assertThat(result, is(expected));
+    // allows for the measurement itself, but not for even one object per evaluation
+    assertThat(allocated, lessThan(10_000L));
+  }
+
+  /** The value a rule produced, or the type of exception it threw. */
+  private static Object outcome(Callable<Object> evaluation) {
+    try {
+      return evaluation.call();
+    } catch (Exception e) {
+      return e.getClass();
+    }
+  }
+}
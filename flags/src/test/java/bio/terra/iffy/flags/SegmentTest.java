@@ -0,0 +1,118 @@
+package bio.terra.iffy.flags;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SegmentTest {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void membership() {
+    var members = new ArrayList<String>();
+    for (int i = 0; i < 50_000; i++) {
+      members.add("user-" + i + "@example.com");
+    }
+    members.add("m\u00fcller@example.de");
+    members.add("emoji-\ud83d\ude80");
+    members.add("");
+    var segment = Segment.of("testers", members);
+
+    assertThat(segment.size(), is(50_003));
+    for (String member : members) {
+      assertThat(member, segment.contains(member), is(true));
+    }
+    assertThat(segment.contains("user-50000@example.com"), is(false));
+    assertThat(segment.contains("user-1@example.co"), is(false));
+    assertThat(segment.contains("user-1@example.comm"), is(false));
+    assertThat(segment.contains("muller@example.de"), is(false));
+    assertThat(segment.contains("emoji-\ud83d"), is(false));
+    // about 22 bytes of text per member, where a List<String> would take over 60 bytes per member
+    assertThat(segment.footprintBytes(), lessThan(50_003 * 42L));
+  }
+
+  @Test
+  void emptySegment() {
+    var segment = Segment.of("nobody", List.of());
+    assertThat(segment.size(), is(0));
+    assertThat(segment.contains(""), is(false));
+    assertThat(segment.contains("anyone"), is(false));
+  }
+
+  @Test
+  void equalMembersMakeEqualSegments() {
+    var segment = Segment.of("testers", List.of("b", "a", "c"));
+    assertThat(segment, is(Segment.of("testers", List.of("c", "a", "b", "a"))));
+    assertThat(segment.hashCode(), is(Segment.of("testers", List.of("a", "b", "c")).hashCode()));
+    assertThat(segment.equals(Segment.of("testers", List.of("a", "b"))), is(false));
+    assertThat(segment.equals(Segment.of("others", List.of("a", "b", "c"))), is(false));
+  }
+
+  @Test
+  void rulesReferenceSegments() throws Exception {
+    Map<String, Object> json =
+        objectMapper.readValue(
+            """
+            {
+              "$segments": {"testers": ["tester@example.com", "qa@example.com"]},
+              "flags": {
+                "beta": {
+                  "state": "ENABLED",
+                  "variants": {"on": true, "off": false},
+                  "defaultVariant": "off",
+                  "targeting": {
+                    "if": [
+                      {"in": [{"var": "email"}, {"$segment": "testers"}]}, "on", "off"
+                    ]
+                  }
+                }
+              }
+            }
+            """,
+            new TypeReference<>() {});
+    var document = new FlagdParser(objectMapper).parseDocument(json);
+    FlagDefinition flag = document.flags().get("beta");
+    assertThat(document.segments().get("testers").size(), is(2));
+
+    for (String email : List.of("qa@example.com", "someone@example.com")) {
+      var context = FlagContext.of(null, Map.of("email", email));
+      Object expected = email.equals("qa@example.com") ? "on" : "off";
+      assertThat(flag.compiledTargeting().evaluate(context), is(expected));
+      assertThat(JsonLogic.apply(flag.targeting(), context, flag.key()), is(expected));
+    }
+    var numeric = FlagContext.of(null, Map.of("email", 42));
+    assertThat(flag.compiledTargeting().evaluate(numeric), is("off"));
+  }
+
+  @Test
+  void invalidSegments() {
+    var parser = new FlagdParser(objectMapper);
+    Map<String, Object> flags =
+        Map.of(
+            "flag",
+            Map.of(
+                "state", "ENABLED",
+                "variants", Map.of("on", true),
+                "defaultVariant", "on",
+                "targeting", Map.of("in", List.of("x", Map.of("$segment", "missing")))));
+
+    assertThrows(
+        InvalidFlagConfigurationException.class,
+        () -> parser.parseDocument(Map.of("flags", flags)));
+    assertThrows(
+        InvalidFlagConfigurationException.class,
+        () ->
+            parser.parseDocument(Map.of("$segments", Map.of("s", List.of(1)), "flags", Map.of())));
+    assertThrows(
+        InvalidFlagConfigurationException.class,
+        () -> parser.parseDocument(Map.of("$segments", List.of(), "flags", Map.of())));
+  }
+}
@@ -0,0 +1,60 @@
+package scripts.perf;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Collects request latencies from concurrent user journeys and summarizes them. */
+public class LatencyRecorder {
+  private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+  private final AtomicLong errors = new AtomicLong();
+  private final long startedNanos = System.nanoTime();
+
+  public void record(long latencyNanos) {
+    latencies.add(latencyNanos);
+  }
+
+  public void recordError() {
+    errors.incrementAndGet();
+  }
+
+  /** Latency percentiles in milliseconds, throughput in requests per second. */
+  public record Summary(
+      long requests, long errors, double seconds, double p50, double p95, double p99) {
+    public double requestsPerSecond() {
+      return seconds > 0 ? requests / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d requests (%d errors) in %.1f s: %.1f requests/s, "
+              + "p50 %.2f ms, p95 %.2f ms, p99 %.2f ms",
+          requests, errors, seconds, requestsPerSecond(), p50, p95, p99);
+    }
+  }
+
+  public Summary summarize() {
+    long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+    Arrays.sort(sorted);
+    double seconds = (System.nanoTime() - startedNanos) / 1e9;
+    return new Summary(
+        sorted.length,
+        errors.get(),
+        seconds,
+        percentile(sorted, 50),
+        percentile(sorted, 95),
+        percentile(sorted, 99));
+  }
+
+  /** Nearest-rank percentile, in milliseconds. */
+  static double percentile(long[] sorted, int percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(rank, 1) - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
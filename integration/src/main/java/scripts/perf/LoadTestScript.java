@@ -0,0 +1,77 @@
+package scripts.perf;
+
+import bio.terra.testrunner.runner.TestScript;
+import bio.terra.testrunner.runner.config.TestUserSpecification;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scripts.client.IffyClient;
+
+/**
+ * Base for load tests. Every user journey sends requests back to back until durationSeconds have
+ * passed since setup, so concurrency is the test configuration's userJourneyThreadPoolSize. At
+ * cleanup the script logs p50, p95 and p99 latency and requests per second.
+ *
+ * <p>Parameters (parametersMap):
+ *
+ * <ul>
+ *   <li>durationSeconds: how long to send requests, default 30
+ *   <li>accessToken: a bearer token to send instead of the test user's, for running against a stub
+ *       Sam server offline
+ * </ul>
+ */
+public abstract class LoadTestScript extends TestScript {
+  private static final Logger logger = LoggerFactory.getLogger(LoadTestScript.class);
+
+  private int durationSeconds;
+  private String accessToken;
+  private LatencyRecorder recorder;
+  private long deadlineNanos;
+
+  /** Sends one request and checks the response; an exception counts as an error. */
+  protected abstract void request(IffyClient client) throws Exception;
+
+  @Override
+  public void setParametersMap(Map<String, String> parametersMap) throws Exception {
+    super.setParametersMap(parametersMap);
+    durationSeconds = Integer.parseInt(parametersMap.getOrDefault("durationSeconds", "30"));
+    accessToken = parametersMap.get("accessToken");
+  }
+
+  @Override
+  public void setup(List<TestUserSpecification> testUsers) throws Exception {
+    recorder = new LatencyRecorder();
+    deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+  }
+
+  @Override
+  public void userJourney(TestUserSpecification testUser) throws Exception {
+    IffyClient client = newClient(testUser);
+    while (System.nanoTime() < deadlineNanos) {
+      long started = System.nanoTime();
+      try {
+        request(client);
+        recorder.record(System.nanoTime() - started);
+      } catch (Exception | AssertionError e) {
+        logger.debug("Request failed", e);
+        recorder.recordError();
+      }
+    }
+  }
+
+  @Override
+  public void cleanup(List<TestUserSpecification> testUsers) throws Exception {
+    logger.info("{}: {}", getClass().getSimpleName(), recorder.summarize());
+  }
+
+  private IffyClient newClient(TestUserSpecification testUser) throws Exception {
+    if (accessToken != null) {
+      var client = new IffyClient(server);
+      client.setAccessToken(accessToken);
+      return client;
+    }
+    return new IffyClient(server, testUser);
+  }
+}
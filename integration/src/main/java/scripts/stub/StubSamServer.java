@@ -0,0 +1,78 @@
+package scripts.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stand-in for Sam, so Iffy's Sam-backed endpoints can be load tested offline. Every token is
+ * accepted and every permission check is allowed after a fixed delay that simulates Sam's latency.
+ * Start Iffy with SAM_ADDRESS pointing here.
+ *
+ * <p>Usage: StubSamServer [port, default 9099] [latencyMillis, default 20]
+ */
+public class StubSamServer {
+  private static final Logger logger = LoggerFactory.getLogger(StubSamServer.class);
+
+  private static final String STATUS = "{\"ok\": true, \"systems\": {}}";
+  private static final String USER_INFO =
+      """
+      {"userSubjectId": "stub-subject-id", "userEmail": "stub-user@test.firecloud.org",
+       "enabled": true, "adminEnabled": true, "tosAccepted": true, "googleServiceAccount": ""}""";
+
+  private final HttpServer server;
+  private final long latencyMillis;
+
+  public StubSamServer(int port, long latencyMillis) throws IOException {
+    this.latencyMillis = latencyMillis;
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/status", exchange -> respond(exchange, STATUS, false));
+    // resourcePermissionV2: /api/resources/v2/{type}/{id}/action/{action}
+    server.createContext("/api/resources/v2/", exchange -> respond(exchange, "true", true));
+    // getUserStatusInfo, used to resolve the calling user
+    server.createContext("/register/user/v2/self/info", e -> respond(e, USER_INFO, true));
+  }
+
+  public void start() {
+    server.start();
+    logger.info(
+        "Stub Sam listening on port {} with {} ms latency",
+        server.getAddress().getPort(),
+        latencyMillis);
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange, String body, boolean delayed) throws IOException {
+    try (exchange) {
+      if (delayed && latencyMillis > 0) {
+        try {
+          Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(bytes);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 9099;
+    long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+    new StubSamServer(port, latencyMillis).start();
+  }
+}
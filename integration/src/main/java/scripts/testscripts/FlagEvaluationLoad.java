@@ -0,0 +1,35 @@
+package scripts.testscripts;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.api.FlagsApi;
+import bio.terra.iffy.model.EvaluationContext;
+import com.google.api.client.http.HttpStatusCodes;
+import java.util.Map;
+import java.util.UUID;
+import scripts.client.IffyClient;
+import scripts.perf.LoadTestScript;
+
+/** Evaluates one flag for a fresh targeting key per request, so fractional rollouts vary. */
+public class FlagEvaluationLoad extends LoadTestScript {
+  private String flagKey;
+  private String email;
+
+  @Override
+  public void setParametersMap(Map<String, String> parametersMap) throws Exception {
+    super.setParametersMap(parametersMap);
+    flagKey = parametersMap.getOrDefault("flagKey", "header-color");
+    email = parametersMap.getOrDefault("email", "someone@broadinstitute.org");
+  }
+
+  @Override
+  protected void request(IffyClient client) throws Exception {
+    var context =
+        new EvaluationContext()
+            .targetingKey(UUID.randomUUID().toString())
+            .attributes(Map.<String, Object>of("email", email));
+    new FlagsApi(client).evaluateFlag(flagKey, context);
+    assertThat(client.getStatusCode(), is(HttpStatusCodes.STATUS_CODE_OK));
+  }
+}
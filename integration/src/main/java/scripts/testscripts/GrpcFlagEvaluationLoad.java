@@ -0,0 +1,74 @@
+package scripts.testscripts;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.testrunner.runner.config.TestUserSpecification;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveStringRequest;
+import dev.openfeature.flagd.grpc.evaluation.ServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import scripts.client.IffyClient;
+import scripts.perf.LoadTestScript;
+
+/**
+ * Does what {@link FlagEvaluationLoad} does over the flagd gRPC protocol instead of REST, so the
+ * two can be compared in one suite. All user journeys share one channel, which multiplexes their
+ * calls over a single HTTP/2 connection as a flagd provider would.
+ *
+ * <p>Parameters, besides those of {@link FlagEvaluationLoad}: grpcTarget, the host:port of the
+ * service's gRPC server, default localhost:8013.
+ */
+public class GrpcFlagEvaluationLoad extends LoadTestScript {
+  private String flagKey;
+  private String email;
+  private String grpcTarget;
+  private ManagedChannel channel;
+  private ServiceGrpc.ServiceBlockingStub stub;
+
+  @Override
+  public void setParametersMap(Map<String, String> parametersMap) throws Exception {
+    super.setParametersMap(parametersMap);
+    flagKey = parametersMap.getOrDefault("flagKey", "header-color");
+    email = parametersMap.getOrDefault("email", "someone@broadinstitute.org");
+    grpcTarget = parametersMap.getOrDefault("grpcTarget", "localhost:8013");
+  }
+
+  @Override
+  public void setup(List<TestUserSpecification> testUsers) throws Exception {
+    channel = ManagedChannelBuilder.forTarget(grpcTarget).usePlaintext().build();
+    stub = ServiceGrpc.newBlockingStub(channel);
+    super.setup(testUsers);
+  }
+
+  /** The REST client is not used; requests go to the shared gRPC channel. */
+  @Override
+  protected void request(IffyClient client) throws Exception {
+    var context =
+        Struct.newBuilder()
+            .putFields("targetingKey", stringValue(UUID.randomUUID().toString()))
+            .putFields("email", stringValue(email))
+            .build();
+    var response =
+        stub.resolveString(
+            ResolveStringRequest.newBuilder().setFlagKey(flagKey).setContext(context).build());
+    assertThat(response.getValue().isEmpty(), is(false));
+  }
+
+  private static Value stringValue(String value) {
+    return Value.newBuilder().setStringValue(value).build();
+  }
+
+  @Override
+  public void cleanup(List<TestUserSpecification> testUsers) throws Exception {
+    super.cleanup(testUsers);
+    channel.shutdown();
+    channel.awaitTermination(5, TimeUnit.SECONDS);
+  }
+}
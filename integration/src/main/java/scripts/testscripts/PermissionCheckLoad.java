@@ -0,0 +1,34 @@
+package scripts.testscripts;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.api.PermissionsApi;
+import com.google.api.client.http.HttpStatusCodes;
+import java.util.Map;
+import scripts.client.IffyClient;
+import scripts.perf.LoadTestScript;
+
+/**
+ * Drives the Sam-backed permission check endpoint. Run it against Iffy started in each
+ * IFFY_REQUEST_MODE (SYNC, ASYNC) to compare the execution modes.
+ */
+public class PermissionCheckLoad extends LoadTestScript {
+  private String resourceType;
+  private String resourceId;
+  private String action;
+
+  @Override
+  public void setParametersMap(Map<String, String> parametersMap) throws Exception {
+    super.setParametersMap(parametersMap);
+    resourceType = parametersMap.getOrDefault("resourceType", "workspace");
+    resourceId = parametersMap.getOrDefault("resourceId", "00000000-0000-0000-0000-000000000000");
+    action = parametersMap.getOrDefault("action", "read");
+  }
+
+  @Override
+  protected void request(IffyClient client) throws Exception {
+    new PermissionsApi(client).getAction(resourceType, resourceId, action);
+    assertThat(client.getStatusCode(), is(HttpStatusCodes.STATUS_CODE_OK));
+  }
+}
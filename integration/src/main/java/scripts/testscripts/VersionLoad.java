@@ -0,0 +1,17 @@
+package scripts.testscripts;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.api.PublicApi;
+import com.google.api.client.http.HttpStatusCodes;
+import scripts.client.IffyClient;
+import scripts.perf.LoadTestScript;
+
+public class VersionLoad extends LoadTestScript {
+  @Override
+  protected void request(IffyClient client) throws Exception {
+    new PublicApi(client).getVersion();
+    assertThat(client.getStatusCode(), is(HttpStatusCodes.STATUS_CODE_OK));
+  }
+}
@@ -25,8 +25,8 @@ import org.springframework.retry.annotation.EnableRetry;
       // Scan all service-specific packages beneath the current package
       "bio.terra.iffy"
     },
-    // exclude DataSourceAutoConfiguration because this service does not use a
-    // relational database
+    // exclude DataSourceAutoConfiguration because the database is optional, and IffyDatabase
+    // configures the DataSource when it is enabled
     exclude = {DataSourceAutoConfiguration.class})
 @ConfigurationPropertiesScan("bio.terra.iffy")
 @EnableRetry
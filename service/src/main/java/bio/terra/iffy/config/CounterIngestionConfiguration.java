@@ -0,0 +1,17 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits on the counters clients report through the batch counter ingestion API.
+ *
+ * @param maxIncrements the most entries accepted in one request
+ * @param maxCounters the most distinct counters, by name and tags, that clients may create; entries
+ *     that would create more are rejected
+ * @param maxTagsPerCounter the most tags one entry may have; entries with more are rejected
+ * @param maxTagValues the most distinct values counted for each tag of each counter; further values
+ *     are counted as "other"
+ */
+@ConfigurationProperties(prefix = "iffy.metrics.counter-ingestion")
+public record CounterIngestionConfiguration(
+    int maxIncrements, int maxCounters, int maxTagsPerCounter, int maxTagValues) {}
@@ -0,0 +1,23 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Connection settings for Iffy's Postgres database. Versioned flag storage and the exposure log
+ * need the database; without it, flags are served from their configured location alone.
+ *
+ * @param enabled whether to connect to the database
+ * @param uri JDBC URI of the database
+ * @param username database user
+ * @param password database password
+ * @param poolMaxTotal the maximum number of pooled connections
+ * @param poolMaxIdle the maximum number of idle pooled connections
+ */
+@ConfigurationProperties(prefix = "iffy.db")
+public record DatabaseConfiguration(
+    boolean enabled,
+    String uri,
+    String username,
+    String password,
+    int poolMaxTotal,
+    int poolMaxIdle) {}
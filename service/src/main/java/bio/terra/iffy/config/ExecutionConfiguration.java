@@ -0,0 +1,15 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param requestMode whether Sam-backed endpoints hold their servlet thread while Sam responds
+ *     (SYNC) or release it and complete the response from an OkHttp callback (ASYNC)
+ */
+@ConfigurationProperties(prefix = "iffy.execution")
+public record ExecutionConfiguration(RequestMode requestMode) {
+  public enum RequestMode {
+    SYNC,
+    ASYNC
+  }
+}
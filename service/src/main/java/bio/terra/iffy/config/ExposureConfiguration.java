@@ -0,0 +1,22 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the exposure log, the record of which variant each evaluation served.
+ *
+ * @param enabled whether exposures are recorded; requires the database
+ * @param bufferCapacity how many exposures may wait to be written; rounded up to a power of two
+ * @param batchSize the most exposures written in one insert
+ * @param flushIntervalMillis how often the buffer is drained
+ * @param samplingThresholdPercent once the buffer is this full, only some exposures are accepted
+ * @param samplingRate while sampling, one in this many exposures is accepted
+ */
+@ConfigurationProperties(prefix = "iffy.exposure")
+public record ExposureConfiguration(
+    boolean enabled,
+    int bufferCapacity,
+    int batchSize,
+    long flushIntervalMillis,
+    int samplingThresholdPercent,
+    int samplingRate) {}
@@ -0,0 +1,20 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Where flag definitions are loaded from.
+ *
+ * @param location Spring resource location of a flagd flag definition file; required
+ * @param pollingIntervalSeconds how often to check the location for changes; 0 disables reloading
+ * @param warmStartFile local file the served flags are saved to and restored from on restart;
+ *     blank disables it
+ * @param storedVersionCheckIntervalSeconds how often to check the database for versions stored
+ *     by other replicas, in case their change notification was missed; 0 disables the check
+ */
+@ConfigurationProperties(prefix = "iffy.flags")
+public record FlagConfiguration(
+    String location,
+    int pollingIntervalSeconds,
+    String warmStartFile,
+    int storedVersionCheckIntervalSeconds) {}
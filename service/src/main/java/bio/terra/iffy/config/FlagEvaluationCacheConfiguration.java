@@ -0,0 +1,13 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for caching flag evaluation results.
+ *
+ * @param enabled whether results are cached at all
+ * @param maximumSize the maximum number of cached results; once reached, the least recently useful
+ *     are evicted
+ */
+@ConfigurationProperties(prefix = "iffy.flags.evaluation-cache")
+public record FlagEvaluationCacheConfiguration(boolean enabled, long maximumSize) {}
@@ -0,0 +1,21 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the server-sent event stream of flag changes.
+ *
+ * @param heartbeatIntervalSeconds how often idle connections are sent a keep-alive comment
+ * @param connectionTimeoutMinutes how long a connection is held before the client must reconnect
+ * @param replayBufferSize how many recent deltas are kept for clients resuming with Last-Event-ID
+ * @param subscriberQueueSize how many events may wait to be sent to one client before it is
+ *     disconnected as too slow
+ * @param senderThreads threads shared by all clients for writing events to their connections
+ */
+@ConfigurationProperties(prefix = "iffy.flags.stream")
+public record FlagStreamConfiguration(
+    int heartbeatIntervalSeconds,
+    int connectionTimeoutMinutes,
+    int replayBufferSize,
+    int subscriberQueueSize,
+    int senderThreads) {}
@@ -0,0 +1,14 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the gRPC server that serves flagd's evaluation protocol.
+ *
+ * @param enabled whether to start the server
+ * @param port the port to listen on; flagd providers connect to 8013 by default
+ * @param keepAliveSeconds how often to send each event stream subscriber a keep_alive event, or 0
+ *     never to
+ */
+@ConfigurationProperties(prefix = "iffy.grpc")
+public record GrpcConfiguration(boolean enabled, int port, int keepAliveSeconds) {}
@@ -0,0 +1,12 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the meters Iffy registers for its own flags and operations.
+ *
+ * @param maxFlagKeys the most flags that get meters of their own; evaluations of any further flags
+ *     are recorded under the flag tag "other", so a large flag file cannot flood the registry
+ */
+@ConfigurationProperties(prefix = "iffy.metrics")
+public record MetricsConfiguration(int maxFlagKeys) {}
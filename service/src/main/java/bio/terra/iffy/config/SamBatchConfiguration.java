@@ -0,0 +1,15 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for checking many Sam permissions in one request.
+ *
+ * @param maxBatchSize the most distinct resource actions one request may check
+ * @param maxConcurrency the most Sam calls one batch may have in flight at a time
+ * @param threadPoolSize threads shared by all batches for calling Sam
+ * @param deadlineMillis how long a whole batch may take before it fails
+ */
+@ConfigurationProperties(prefix = "iffy.sam.batch")
+public record SamBatchConfiguration(
+    int maxBatchSize, int maxConcurrency, int threadPoolSize, int deadlineMillis) {}
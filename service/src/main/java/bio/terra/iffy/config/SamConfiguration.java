@@ -2,5 +2,23 @@ package bio.terra.iffy.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+/**
+ * Settings for calling Sam.
+ *
+ * @param basePath Sam's URL
+ * @param maxIdleConnections the most idle connections the shared pool keeps open
+ * @param keepAliveSeconds how long an idle connection is kept open
+ * @param maxRequests the most concurrent asynchronous calls
+ * @param maxRequestsPerHost the most concurrent asynchronous calls to one host
+ * @param connectTimeoutSeconds connect timeout for each call
+ * @param readTimeoutSeconds read timeout for each call
+ */
 @ConfigurationProperties(prefix = "iffy.sam")
-public record SamConfiguration(String basePath) {}
+public record SamConfiguration(
+    String basePath,
+    int maxIdleConnections,
+    int keepAliveSeconds,
+    int maxRequests,
+    int maxRequestsPerHost,
+    int connectTimeoutSeconds,
+    int readTimeoutSeconds) {}
@@ -0,0 +1,16 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for caching Sam permission decisions.
+ *
+ * @param enabled whether decisions are cached at all
+ * @param allowTtlSeconds how long a granted permission is cached
+ * @param denyTtlSeconds how long a denied permission is cached; usually shorter, so that newly
+ *     granted access is picked up quickly
+ * @param maximumSize the maximum number of cached decisions
+ */
+@ConfigurationProperties(prefix = "iffy.sam.permission-cache")
+public record SamPermissionCacheConfiguration(
+    boolean enabled, int allowTtlSeconds, int denyTtlSeconds, long maximumSize) {}
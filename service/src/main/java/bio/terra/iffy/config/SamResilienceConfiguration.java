@@ -0,0 +1,32 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for protecting Iffy from a slow or failing Sam.
+ *
+ * @param maxConcurrentCalls the most Sam calls in flight at once (the bulkhead)
+ * @param bulkheadWaitMillis how long a call may wait for the bulkhead before failing
+ * @param failureRateThreshold the percentage of failed calls in the sliding window that opens the
+ *     circuit
+ * @param minimumCalls calls that must be recorded before the failure rate is acted on, and before
+ *     latency percentiles are trusted for hedging
+ * @param slidingWindowSize how many recent calls the failure rate is computed over
+ * @param openStateSeconds how long the circuit stays open, failing fast, before probing Sam again
+ * @param halfOpenPermittedCalls probe calls allowed while half open; all must succeed to close
+ * @param hedgingEnabled whether slow permission checks send a second, hedged request
+ * @param hedgePercentile the latency percentile after which a permission check is hedged
+ * @param hedgeMinDelayMillis the least time to wait before hedging
+ */
+@ConfigurationProperties(prefix = "iffy.sam.resilience")
+public record SamResilienceConfiguration(
+    int maxConcurrentCalls,
+    int bulkheadWaitMillis,
+    int failureRateThreshold,
+    int minimumCalls,
+    int slidingWindowSize,
+    int openStateSeconds,
+    int halfOpenPermittedCalls,
+    boolean hedgingEnabled,
+    double hedgePercentile,
+    int hedgeMinDelayMillis) {}
@@ -0,0 +1,14 @@
+package bio.terra.iffy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for caching the Sam user a bearer token belongs to.
+ *
+ * @param enabled whether identities are cached at all
+ * @param ttlSeconds how long a validated identity is trusted; keep it short so that disabled users
+ *     lose access quickly
+ * @param maximumSize the maximum number of cached identities
+ */
+@ConfigurationProperties(prefix = "iffy.sam.user-cache")
+public record SamUserCacheConfiguration(boolean enabled, int ttlSeconds, long maximumSize) {}
@@ -1,10 +1,26 @@
 package bio.terra.iffy.config;
 
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+/**
+ * @param checkTimeoutSeconds how long a subsystem check may take before that subsystem is
+ *     reported not ok
+ * @param checkTimeoutOverrides per-subsystem timeouts in seconds, keyed by subsystem name, for
+ *     checks that need longer or shorter than checkTimeoutSeconds
+ */
 @ConfigurationProperties(prefix = "iffy.status-check")
 public record StatusCheckConfiguration(
     boolean enabled,
     int pollingIntervalSeconds,
     int startupWaitSeconds,
-    int stalenessThresholdSeconds) {}
+    int stalenessThresholdSeconds,
+    int checkTimeoutSeconds,
+    Map<String, Integer> checkTimeoutOverrides) {
+
+  public int checkTimeoutSeconds(String name) {
+    return checkTimeoutOverrides == null
+        ? checkTimeoutSeconds
+        : checkTimeoutOverrides.getOrDefault(name, checkTimeoutSeconds);
+  }
+}
@@ -0,0 +1,66 @@
+package bio.terra.iffy.controller;
+
+import bio.terra.common.iam.BearerTokenFactory;
+import bio.terra.iffy.api.PermissionsApi;
+import bio.terra.iffy.iam.SamService;
+import bio.terra.iffy.model.ResourcePermissionsRequest;
+import bio.terra.iffy.model.ResourcePermissionsResult;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+/**
+ * Sam permission checks in ASYNC request mode. Handlers return as soon as the checks are sent to
+ * Sam, so the servlet thread goes back to Tomcat's pool, and Spring MVC writes the response when
+ * the future completes on an OkHttp dispatcher thread.
+ *
+ * <p>The mappings mirror {@link PermissionsApi}, which this cannot implement because the generated
+ * methods return their response synchronously.
+ */
+@Controller
+@ConditionalOnProperty(name = "iffy.execution.request-mode", havingValue = "ASYNC")
+public class AsyncPermissionsController {
+  private final BearerTokenFactory bearerTokenFactory;
+  private final HttpServletRequest request;
+  private final SamService samService;
+
+  public AsyncPermissionsController(
+      BearerTokenFactory bearerTokenFactory, HttpServletRequest request, SamService samService) {
+    this.bearerTokenFactory = bearerTokenFactory;
+    this.request = request;
+    this.samService = samService;
+  }
+
+  @GetMapping(
+      value = "/api/example/v1/{resourceType}/{resourceId}/{action}",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity<Boolean>> getAction(
+      @PathVariable("resourceType") String resourceType,
+      @PathVariable("resourceId") String resourceId,
+      @PathVariable("action") String action) {
+    var bearerToken = bearerTokenFactory.from(request);
+    return samService
+        .getActionAsync(resourceType, resourceId, action, bearerToken)
+        .thenApply(ResponseEntity::ok);
+  }
+
+  @PostMapping(
+      value = "/api/example/v1/permissions",
+      consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity<ResourcePermissionsResult>> getActions(
+      @Valid @RequestBody ResourcePermissionsRequest body) {
+    var bearerToken = bearerTokenFactory.from(request);
+    return samService
+        .getActionsAsync(PermissionsController.toChecks(body), bearerToken)
+        .thenApply(decisions -> ResponseEntity.ok(PermissionsController.toResult(decisions)));
+  }
+}
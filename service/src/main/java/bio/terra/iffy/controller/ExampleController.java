@@ -1,16 +1,17 @@
 package bio.terra.iffy.controller;
 
-import bio.terra.common.iam.BearerTokenFactory;
 import bio.terra.common.iam.SamUser;
-import bio.terra.common.iam.SamUserFactory;
 import bio.terra.iffy.api.ExampleApi;
-import bio.terra.iffy.config.SamConfiguration;
-import bio.terra.iffy.iam.SamService;
+import bio.terra.iffy.iam.SamUserCache;
+import bio.terra.iffy.model.CounterIncrementsRequest;
+import bio.terra.iffy.model.CounterIncrementsResult;
+import bio.terra.iffy.service.CounterIngestionService;
 import bio.terra.iffy.service.ExampleService;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
-import io.micrometer.core.instrument.Tag;
 import jakarta.servlet.http.HttpServletRequest;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
@@ -20,46 +21,59 @@ public class ExampleController implements ExampleApi {
   public static final String EXAMPLE_COUNTER_TAG = "tag";
   public static final String EXAMPLE_COUNTER_NAME = "example.counter";
 
+  /** tag values beyond this many are counted under OTHER_TAG_VALUE, since callers choose them */
+  public static final int MAX_TAG_VALUES = 100;
+
+  /** reserved, like the overflow values of flag metrics, so no real tag value shares it */
+  public static final String OTHER_TAG_VALUE = "__other__";
+
   private final ExampleService exampleService;
-  private final BearerTokenFactory bearerTokenFactory;
-  private final SamUserFactory samUserFactory;
-  private final SamConfiguration samConfiguration;
+  private final SamUserCache samUserCache;
   private final HttpServletRequest request;
-
-  private final SamService samService;
+  private final CounterIngestionService counterIngestionService;
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
 
   public ExampleController(
       ExampleService exampleService,
-      BearerTokenFactory bearerTokenFactory,
-      SamUserFactory samUserFactory,
-      SamConfiguration samConfiguration,
+      SamUserCache samUserCache,
       HttpServletRequest request,
-      SamService samService) {
+      CounterIngestionService counterIngestionService) {
     this.exampleService = exampleService;
-    this.bearerTokenFactory = bearerTokenFactory;
-    this.samUserFactory = samUserFactory;
-    this.samConfiguration = samConfiguration;
+    this.samUserCache = samUserCache;
     this.request = request;
-    this.samService = samService;
+    this.counterIngestionService = counterIngestionService;
   }
 
   private SamUser getUser() {
-    // this automatically checks if the user is enabled
-    return this.samUserFactory.from(request, samConfiguration.basePath());
+    // validated by Sam, which checks that the user is enabled, at most once per cache TTL
+    return this.samUserCache.from(request);
   }
 
-  /** Example of getting the bearer token and using it to make a Sam (or other service) api call */
   @Override
-  public ResponseEntity<Boolean> getAction(String resourceType, String resourceId, String action) {
-    var bearerToken = bearerTokenFactory.from(request);
-    return ResponseEntity.ok(samService.getAction(resourceType, resourceId, action, bearerToken));
+  public ResponseEntity<Void> incrementCounter(String tag) {
+    counter(tag).increment();
+    return ResponseEntity.noContent().build();
   }
 
   @Override
-  public ResponseEntity<Void> incrementCounter(String tag) {
-    Metrics.globalRegistry
-        .counter(EXAMPLE_COUNTER_NAME, List.of(Tag.of(EXAMPLE_COUNTER_TAG, tag)))
-        .increment();
-    return ResponseEntity.noContent().build();
+  public ResponseEntity<CounterIncrementsResult> incrementCounters(CounterIncrementsRequest body) {
+    return ResponseEntity.ok(counterIngestionService.increment(body.getIncrements()));
+  }
+
+  /**
+   * Returns the tag's counter, registering it the first time the tag is seen. Registration is
+   * serialized, so that new tags arriving at once cannot take the count past MAX_TAG_VALUES.
+   */
+  private Counter counter(String tag) {
+    Counter counter = counters.get(tag);
+    if (counter != null) {
+      return counter;
+    }
+    synchronized (counters) {
+      String value =
+          counters.containsKey(tag) || counters.size() < MAX_TAG_VALUES ? tag : OTHER_TAG_VALUE;
+      return counters.computeIfAbsent(
+          value, v -> Metrics.globalRegistry.counter(EXAMPLE_COUNTER_NAME, EXAMPLE_COUNTER_TAG, v));
+    }
   }
 }
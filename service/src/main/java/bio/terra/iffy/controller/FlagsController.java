@@ -0,0 +1,106 @@
+package bio.terra.iffy.controller;
+
+import bio.terra.common.exception.BadRequestException;
+import bio.terra.iffy.api.FlagsApi;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.ResolutionDetails;
+import bio.terra.iffy.model.BulkEvaluationRequest;
+import bio.terra.iffy.model.BulkEvaluationResult;
+import bio.terra.iffy.model.EvaluationContext;
+import bio.terra.iffy.model.FlagDocument;
+import bio.terra.iffy.model.FlagEvaluation;
+import bio.terra.iffy.service.FlagChangeBroadcaster;
+import bio.terra.iffy.service.FlagDocumentService;
+import bio.terra.iffy.service.FlagEvaluationService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Controller
+public class FlagsController implements FlagsApi {
+  private final FlagEvaluationService flagEvaluationService;
+  private final FlagChangeBroadcaster flagChangeBroadcaster;
+  private final FlagDocumentService flagDocumentService;
+
+  public FlagsController(
+      FlagEvaluationService flagEvaluationService,
+      FlagChangeBroadcaster flagChangeBroadcaster,
+      FlagDocumentService flagDocumentService) {
+    this.flagEvaluationService = flagEvaluationService;
+    this.flagChangeBroadcaster = flagChangeBroadcaster;
+    this.flagDocumentService = flagDocumentService;
+  }
+
+  @Override
+  public ResponseEntity<FlagEvaluation> evaluateFlag(String flagKey, EvaluationContext body) {
+    var resolution = flagEvaluationService.evaluate(flagKey, toFlagContext(body));
+    return ResponseEntity.ok(toApiModel(resolution));
+  }
+
+  @Override
+  public ResponseEntity<BulkEvaluationResult> evaluateFlags(BulkEvaluationRequest body) {
+    boolean all = Boolean.TRUE.equals(body.isAll());
+    boolean hasFlagKeys = body.getFlagKeys() != null && !body.getFlagKeys().isEmpty();
+    if (all == hasFlagKeys) {
+      throw new BadRequestException("Exactly one of flagKeys and all must be given");
+    }
+    // the context is converted once and shared by every flag in the batch
+    var context = toFlagContext(body.getContext());
+    var resolutions = flagEvaluationService.evaluateAll(all ? null : body.getFlagKeys(), context);
+    Map<String, FlagEvaluation> flags = new LinkedHashMap<>();
+    resolutions.forEach((flagKey, resolution) -> flags.put(flagKey, toApiModel(resolution)));
+    return ResponseEntity.ok(new BulkEvaluationResult().flags(flags));
+  }
+
+  @Override
+  public ResponseEntity<FlagDocument> getFlagDocument(String ifNoneMatch) {
+    var current = flagDocumentService.current();
+    if (ifNoneMatch != null && stripQuotes(ifNoneMatch).equals(current.etag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current.etag()).build();
+    }
+    return ResponseEntity.ok()
+        .eTag(current.etag())
+        .body(new FlagDocument().etag(current.etag()).document(current.document()));
+  }
+
+  /** Accepts etags as sent in an If-None-Match header, quoted and possibly weak, or bare. */
+  private static String stripQuotes(String etag) {
+    String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+    return tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")
+        ? tag.substring(1, tag.length() - 1)
+        : tag;
+  }
+
+  /**
+   * Streams flag changes as server-sent events: a "snapshot" event with every flag, then a "delta"
+   * event per new version. Mapped by hand because the generated interfaces cannot express an event
+   * stream.
+   */
+  @GetMapping(value = "/api/flags/v1/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamFlagChanges(
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    return flagChangeBroadcaster.subscribe(lastEventId);
+  }
+
+  private static FlagContext toFlagContext(EvaluationContext context) {
+    return context == null
+        ? FlagContext.EMPTY
+        : FlagContext.of(context.getTargetingKey(), context.getAttributes());
+  }
+
+  private static FlagEvaluation toApiModel(ResolutionDetails resolution) {
+    return new FlagEvaluation()
+        .flagKey(resolution.flagKey())
+        .value(resolution.value())
+        .variant(resolution.variant())
+        .reason(resolution.reason().name())
+        .errorCode(resolution.errorCode() == null ? null : resolution.errorCode().name())
+        .errorMessage(resolution.errorMessage());
+  }
+}
@@ -0,0 +1,89 @@
+package bio.terra.iffy.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Records the latency of every API operation in a histogram tagged with the operation ID, which is
+ * the name of the controller method that serves it. A timer is registered for each operation once
+ * the handler mappings are known, so a request only reads an immutable map keyed by its handler
+ * method. Asynchronous requests are timed until their response completes.
+ */
+@Component
+public class OperationMetrics implements HandlerInterceptor, WebMvcConfigurer {
+  static final String OPERATION_METRIC = "iffy.api.operation";
+
+  private static final String START_ATTRIBUTE = OperationMetrics.class.getName() + ".start";
+
+  private final MeterRegistry meterRegistry;
+  private volatile Map<Method, Timer> timers = Map.of();
+
+  public OperationMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(this);
+  }
+
+  @EventListener
+  public void onApplicationReady(ApplicationReadyEvent event) {
+    var handlerMapping =
+        event
+            .getApplicationContext()
+            .getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+    Map<Method, Timer> registered = new HashMap<>();
+    for (HandlerMethod handler : handlerMapping.getHandlerMethods().values()) {
+      registered.computeIfAbsent(handler.getMethod(), method -> timer(method.getName()));
+    }
+    timers = Map.copyOf(registered);
+  }
+
+  private Timer timer(String operation) {
+    return Timer.builder(OPERATION_METRIC)
+        .description("Time to serve an API operation")
+        .tag("operation", operation)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofSeconds(30))
+        .register(meterRegistry);
+  }
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // an asynchronous request is handled again when it completes; keep the original start
+    if (request.getAttribute(START_ATTRIBUTE) == null) {
+      request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    if (handler instanceof HandlerMethod handlerMethod
+        && request.getAttribute(START_ATTRIBUTE) instanceof Long start) {
+      Timer timer = timers.get(handlerMethod.getMethod());
+      if (timer != null) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package bio.terra.iffy.controller;
+
+import bio.terra.common.iam.BearerTokenFactory;
+import bio.terra.iffy.api.PermissionsApi;
+import bio.terra.iffy.iam.ResourceAction;
+import bio.terra.iffy.iam.SamService;
+import bio.terra.iffy.model.ResourcePermissionResult;
+import bio.terra.iffy.model.ResourcePermissionsRequest;
+import bio.terra.iffy.model.ResourcePermissionsResult;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Sam permission checks in SYNC request mode: the servlet thread waits for Sam. See {@link
+ * AsyncPermissionsController} for ASYNC mode.
+ */
+@Controller
+@ConditionalOnProperty(
+    name = "iffy.execution.request-mode",
+    havingValue = "SYNC",
+    matchIfMissing = true)
+public class PermissionsController implements PermissionsApi {
+  private final BearerTokenFactory bearerTokenFactory;
+  private final HttpServletRequest request;
+  private final SamService samService;
+
+  public PermissionsController(
+      BearerTokenFactory bearerTokenFactory, HttpServletRequest request, SamService samService) {
+    this.bearerTokenFactory = bearerTokenFactory;
+    this.request = request;
+    this.samService = samService;
+  }
+
+  /** Example of getting the bearer token and using it to make a Sam (or other service) api call */
+  @Override
+  public ResponseEntity<Boolean> getAction(String resourceType, String resourceId, String action) {
+    var bearerToken = bearerTokenFactory.from(request);
+    return ResponseEntity.ok(samService.getAction(resourceType, resourceId, action, bearerToken));
+  }
+
+  /** Example of checking many Sam permissions with one bearer token */
+  @Override
+  public ResponseEntity<ResourcePermissionsResult> getActions(ResourcePermissionsRequest body) {
+    var bearerToken = bearerTokenFactory.from(request);
+    return ResponseEntity.ok(toResult(samService.getActions(toChecks(body), bearerToken)));
+  }
+
+  static List<ResourceAction> toChecks(ResourcePermissionsRequest body) {
+    return body.getPermissions().stream()
+        .map(p -> new ResourceAction(p.getResourceType(), p.getResourceId(), p.getAction()))
+        .toList();
+  }
+
+  static ResourcePermissionsResult toResult(Map<ResourceAction, Boolean> decisions) {
+    var result = new ResourcePermissionsResult();
+    decisions.forEach(
+        (check, allowed) ->
+            result.addPermissionsItem(
+                new ResourcePermissionResult()
+                    .resourceType(check.resourceType())
+                    .resourceId(check.resourceId())
+                    .action(check.action())
+                    .allowed(allowed)));
+    return result;
+  }
+}
@@ -1,44 +1,76 @@
 package bio.terra.iffy.controller;
 
-import bio.terra.iffy.api.PublicApi;
 import bio.terra.iffy.config.VersionConfiguration;
-import bio.terra.iffy.model.SystemStatus;
 import bio.terra.iffy.model.VersionProperties;
+import bio.terra.iffy.service.SerializedResponse;
 import bio.terra.iffy.service.StatusService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 
+/**
+ * Serves /status and /version, as described by the public API, from bodies serialized ahead of
+ * time. They are mapped by hand rather than through the generated interface, whose methods return
+ * the API models, because what is written is the serialized bytes.
+ */
 @Controller
-public class PublicApiController implements PublicApi {
+public class PublicApiController {
   private final StatusService statusService;
-  private final VersionConfiguration versionConfiguration;
+  private final HttpServletRequest request;
+
+  /** the version never changes while running, so it is serialized once */
+  private final SerializedResponse version;
 
   @Autowired
   public PublicApiController(
-      StatusService statusService, VersionConfiguration versionConfiguration) {
+      StatusService statusService,
+      VersionConfiguration versionConfiguration,
+      ObjectMapper objectMapper,
+      HttpServletRequest request) {
     this.statusService = statusService;
-    this.versionConfiguration = versionConfiguration;
-  }
-
-  @Override
-  public ResponseEntity<SystemStatus> getStatus() {
-    SystemStatus systemStatus = statusService.getCurrentStatus();
-    HttpStatus httpStatus = systemStatus.isOk() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
-    return new ResponseEntity<>(systemStatus, httpStatus);
-  }
-
-  @Override
-  public ResponseEntity<VersionProperties> getVersion() {
+    this.request = request;
     VersionProperties currentVersion =
         new VersionProperties()
             .gitTag(versionConfiguration.gitTag())
             .gitHash(versionConfiguration.gitHash())
             .github(versionConfiguration.github())
             .build(versionConfiguration.build());
-    return ResponseEntity.ok(currentVersion);
+    this.version = SerializedResponse.of(objectMapper, currentVersion);
+  }
+
+  @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<byte[]> getStatus() {
+    var currentStatus = statusService.getCurrentSerializedStatus();
+    boolean ok = currentStatus.status().isOk();
+    HttpStatus httpStatus = ok ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+    // a failing status is always sent in full so that probes see the failure
+    return serialized(httpStatus, currentStatus.response(), ok);
+  }
+
+  @GetMapping(value = "/version", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<byte[]> getVersion() {
+    return serialized(HttpStatus.OK, version, true);
+  }
+
+  /**
+   * Responds with an already serialized body, or with 304 Not Modified if revalidation is allowed
+   * and the request's If-None-Match matches the body's ETag.
+   */
+  private ResponseEntity<byte[]> serialized(
+      HttpStatus httpStatus, SerializedResponse response, boolean allowNotModified) {
+    if (allowNotModified && response.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.etag()).build();
+    }
+    return ResponseEntity.status(httpStatus)
+        .contentType(MediaType.APPLICATION_JSON)
+        .eTag(response.etag())
+        .body(response.body());
   }
 
   @GetMapping(value = "/")
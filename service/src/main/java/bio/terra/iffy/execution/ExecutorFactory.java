@@ -0,0 +1,36 @@
+package bio.terra.iffy.execution;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the executors for blocking work: status checks, Sam fan-out and flag streams. Their
+ * threads are named after the work they do and are daemons, so a stuck task never holds up
+ * shutdown.
+ */
+@Component
+public class ExecutorFactory {
+
+  /** Returns an executor with no thread limit: a cached pool of threads. */
+  public ExecutorService newUnboundedExecutor(String name) {
+    return Executors.newCachedThreadPool(threads(name));
+  }
+
+  /** Returns an executor for blocking work: a fixed pool of threads. */
+  public ExecutorService newBlockingExecutor(String name, int threads) {
+    return Executors.newFixedThreadPool(threads, threads(name));
+  }
+
+  /** Returns a single-threaded scheduler. */
+  public ScheduledExecutorService newScheduler(String name) {
+    return Executors.newSingleThreadScheduledExecutor(threads(name));
+  }
+
+  private static ThreadFactory threads(String name) {
+    return new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build();
+  }
+}
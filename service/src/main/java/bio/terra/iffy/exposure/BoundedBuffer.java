@@ -0,0 +1,103 @@
+package bio.terra.iffy.exposure;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer, after Dmitry Vyukov's
+ * bounded MPMC queue. Each slot carries a sequence number saying whose turn it is: producers claim
+ * a position with one compare-and-set and publish the element by advancing the slot's sequence,
+ * so {@link #offer} never blocks or waits on a lock, and fails immediately when the buffer is full.
+ */
+final class BoundedBuffer<E> {
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+
+  /** next position to take; written only by the consumer */
+  private volatile long head;
+
+  /**
+   * @param minimumCapacity rounded up to a power of two
+   */
+  BoundedBuffer(int minimumCapacity) {
+    this.capacity = Integer.highestOneBit(Math.max(minimumCapacity - 1, 1)) << 1;
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Adds an element unless the buffer is full. Safe to call from any number of threads.
+   *
+   * @return false if the buffer is full
+   */
+  boolean offer(E element) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.getAcquire(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.setPlain(index, element);
+          // publishes the element to the consumer
+          sequences.setRelease(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // the consumer has not yet taken the element a lap ago
+        return false;
+      } else {
+        // another producer claimed this position first
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Removes up to maximum elements, oldest first. Must only be called from one thread at a time.
+   *
+   * @return the number of elements removed
+   */
+  int drain(Consumer<? super E> consumer, int maximum) {
+    int drained = 0;
+    long position = head;
+    try {
+      while (drained < maximum) {
+        int index = (int) position & mask;
+        if (sequences.getAcquire(index) != position + 1) {
+          // empty, or the producer that claimed this position has not published yet
+          break;
+        }
+        E element = elements.getPlain(index);
+        elements.setPlain(index, null);
+        // frees the slot for the producer one lap ahead
+        sequences.setRelease(index, position + capacity);
+        position++;
+        drained++;
+        consumer.accept(element);
+      }
+    } finally {
+      head = position;
+    }
+    return drained;
+  }
+
+  /** Returns the approximate number of elements waiting. */
+  int size() {
+    long size = tail.get() - head;
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+
+  int capacity() {
+    return capacity;
+  }
+}
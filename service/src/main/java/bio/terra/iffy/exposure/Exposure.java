@@ -0,0 +1,25 @@
+package bio.terra.iffy.exposure;
+
+import java.time.Instant;
+
+/**
+ * One evaluation's outcome, as recorded in the exposure log.
+ *
+ * @param time when the flag was evaluated
+ * @param flagKey the flag evaluated
+ * @param configVersion the stored version of the flag definition document evaluated, or 0 if it
+ *     had not been stored
+ * @param contentHash the SHA-256 of the flag definition document evaluated, as stored alongside it
+ *     in flag_config, or null if the flags were not loaded from a document
+ * @param targetingKey the evaluation context's targeting key, or null if it had none
+ * @param variant the variant served
+ * @param reason why that variant was served
+ */
+public record Exposure(
+    Instant time,
+    String flagKey,
+    long configVersion,
+    String contentHash,
+    String targetingKey,
+    String variant,
+    String reason) {}
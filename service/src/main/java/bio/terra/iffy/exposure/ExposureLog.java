@@ -0,0 +1,168 @@
+package bio.terra.iffy.exposure;
+
+import bio.terra.iffy.config.ExposureConfiguration;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.ResolutionDetails;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records which variant each evaluation served, without slowing evaluation down. Evaluating
+ * threads only add an exposure to a lock-free {@link BoundedBuffer}; a single background thread
+ * drains it in batches to the {@link ExposureWriter}. When writing falls behind, the buffer fills
+ * and exposures are shed rather than making callers wait: past the sampling threshold only one in
+ * samplingRate is accepted, and once the buffer is full the rest are dropped. Every shed exposure
+ * is counted.
+ */
+@Component
+public class ExposureLog {
+  private static final Logger logger = LoggerFactory.getLogger(ExposureLog.class);
+
+  static final String EXPOSURE_METRIC = "iffy.exposure";
+
+  private final ExposureConfiguration configuration;
+  private final ExposureWriter writer;
+  private final Clock clock;
+  private final BoundedBuffer<Exposure> buffer;
+  private final int samplingThreshold;
+  private final ScheduledExecutorService writerThread;
+  private final Counter written;
+  private final Counter droppedFull;
+  private final Counter droppedSampled;
+  private final Counter droppedWriteFailed;
+  private final Timer flushTimer;
+
+  @Autowired
+  public ExposureLog(
+      ExposureConfiguration configuration,
+      Optional<ExposureWriter> writer,
+      MeterRegistry meterRegistry) {
+    this(configuration, writer, meterRegistry, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  ExposureLog(
+      ExposureConfiguration configuration,
+      Optional<ExposureWriter> writer,
+      MeterRegistry meterRegistry,
+      Clock clock) {
+    this.configuration = configuration;
+    this.writer = configuration.enabled() ? writer.orElse(null) : null;
+    this.clock = clock;
+    this.buffer = new BoundedBuffer<>(this.writer == null ? 1 : configuration.bufferCapacity());
+    this.samplingThreshold =
+        (int) ((long) buffer.capacity() * configuration.samplingThresholdPercent() / 100);
+    this.writerThread = Executors.newSingleThreadScheduledExecutor();
+    this.written =
+        Counter.builder(EXPOSURE_METRIC + ".written")
+            .description("Exposures written to the database")
+            .register(meterRegistry);
+    this.droppedFull = dropped(meterRegistry, "full");
+    this.droppedSampled = dropped(meterRegistry, "sampled");
+    this.droppedWriteFailed = dropped(meterRegistry, "write_failed");
+    this.flushTimer =
+        Timer.builder(EXPOSURE_METRIC + ".flush")
+            .description("Time to write one batch of exposures")
+            .register(meterRegistry);
+    Gauge.builder(EXPOSURE_METRIC + ".buffer.depth", buffer, BoundedBuffer::size)
+        .description("Exposures waiting to be written")
+        .register(meterRegistry);
+  }
+
+  private static Counter dropped(MeterRegistry meterRegistry, String reason) {
+    return Counter.builder(EXPOSURE_METRIC + ".dropped")
+        .description("Exposures discarded without being written")
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  private void start() {
+    if (writer != null) {
+      writerThread.scheduleWithFixedDelay(
+          this::flush,
+          configuration.flushIntervalMillis(),
+          configuration.flushIntervalMillis(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  private void stop() throws InterruptedException {
+    writerThread.shutdown();
+    if (writer != null && writerThread.awaitTermination(10, TimeUnit.SECONDS)) {
+      // write what is left; nothing else drains the buffer any more
+      flush();
+    }
+  }
+
+  public boolean isEnabled() {
+    return writer != null;
+  }
+
+  /**
+   * Records an evaluation's outcome if it served a variant, identifying the flags by the document
+   * they were loaded from rather than by the snapshot's version, which only this process knows.
+   * Never blocks.
+   */
+  public void record(FlagSnapshot snapshot, FlagContext context, ResolutionDetails resolution) {
+    if (writer == null || resolution.variant() == null) {
+      return;
+    }
+    if (buffer.size() >= samplingThreshold
+        && configuration.samplingRate() > 1
+        && ThreadLocalRandom.current().nextInt(configuration.samplingRate()) != 0) {
+      droppedSampled.increment();
+      return;
+    }
+    var exposure =
+        new Exposure(
+            clock.instant(),
+            resolution.flagKey(),
+            snapshot.configVersion(),
+            snapshot.contentHash(),
+            context.targetingKey(),
+            resolution.variant(),
+            resolution.reason().name());
+    if (!buffer.offer(exposure)) {
+      droppedFull.increment();
+    }
+  }
+
+  /** Writes everything buffered, one batch at a time. Never called concurrently. */
+  @VisibleForTesting
+  void flush() {
+    List<Exposure> batch = new ArrayList<>(configuration.batchSize());
+    while (buffer.drain(batch::add, configuration.batchSize()) > 0) {
+      long start = System.nanoTime();
+      try {
+        writer.write(batch);
+        written.increment(batch.size());
+      } catch (Exception e) {
+        logger.warn("Failed to write {} exposures", batch.size(), e);
+        droppedWriteFailed.increment(batch.size());
+      } finally {
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+      batch.clear();
+    }
+  }
+}
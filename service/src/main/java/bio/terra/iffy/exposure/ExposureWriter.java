@@ -0,0 +1,12 @@
+package bio.terra.iffy.exposure;
+
+import java.util.List;
+
+/** Persists batches of exposures. */
+@FunctionalInterface
+public interface ExposureWriter {
+  /**
+   * @throws Exception if the batch could not be written; it is not retried
+   */
+  void write(List<Exposure> exposures) throws Exception;
+}
@@ -0,0 +1,96 @@
+package bio.terra.iffy.exposure;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes exposures to the exposure table with one multi-row INSERT per batch, so a batch costs a
+ * single round trip and statement rather than one per exposure. A batch too large for one
+ * statement is split, and its statements share a transaction: a batch that fails writes nothing,
+ * so every exposure counted as dropped really was.
+ */
+@Component
+@ConditionalOnProperty(
+    name = {"iffy.db.enabled", "iffy.exposure.enabled"},
+    havingValue = "true")
+public class JdbcExposureWriter implements ExposureWriter {
+  private static final String INSERT =
+      "INSERT INTO exposure"
+          + " (exposed_at, flag_key, config_version, content_hash, targeting_key, variant, reason)"
+          + " VALUES ";
+  private static final String ROW = "(?, ?, ?, ?, ?, ?, ?)";
+  private static final int COLUMNS = 7;
+
+  /** Postgres allows at most 65535 parameters per statement. */
+  @VisibleForTesting static final int MAX_ROWS = 65535 / COLUMNS;
+
+  private final DataSource dataSource;
+
+  public JdbcExposureWriter(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void write(List<Exposure> exposures) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        for (int from = 0; from < exposures.size(); from += MAX_ROWS) {
+          insert(connection, exposures.subList(from, Math.min(from + MAX_ROWS, exposures.size())));
+        }
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+  }
+
+  private static void insert(Connection connection, List<Exposure> rows) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(insertSql(rows.size()))) {
+      int parameter = 1;
+      for (Exposure exposure : rows) {
+        statement.setTimestamp(parameter++, Timestamp.from(exposure.time()));
+        statement.setString(parameter++, exposure.flagKey());
+        if (exposure.configVersion() == 0) {
+          statement.setNull(parameter++, Types.BIGINT);
+        } else {
+          statement.setLong(parameter++, exposure.configVersion());
+        }
+        setNullableString(statement, parameter++, exposure.contentHash());
+        setNullableString(statement, parameter++, exposure.targetingKey());
+        statement.setString(parameter++, exposure.variant());
+        statement.setString(parameter++, exposure.reason());
+      }
+      statement.executeUpdate();
+    }
+  }
+
+  private static void setNullableString(PreparedStatement statement, int parameter, String value)
+      throws SQLException {
+    if (value == null) {
+      statement.setNull(parameter, Types.VARCHAR);
+    } else {
+      statement.setString(parameter, value);
+    }
+  }
+
+  @VisibleForTesting
+  static String insertSql(int rows) {
+    var sql = new StringBuilder(INSERT.length() + rows * (ROW.length() + 2)).append(INSERT);
+    for (int i = 0; i < rows; i++) {
+      sql.append(i == 0 ? "" : ", ").append(ROW);
+    }
+    return sql.toString();
+  }
+}
@@ -0,0 +1,362 @@
+package bio.terra.iffy.grpc;
+
+import bio.terra.common.exception.NotFoundException;
+import bio.terra.iffy.config.GrpcConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.ResolutionDetails;
+import bio.terra.iffy.service.FlagEvaluationService;
+import bio.terra.iffy.service.FlagSnapshotPublishedEvent;
+import bio.terra.iffy.service.FlagStore;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.Struct;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.AnyFlag;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.EventStreamRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.EventStreamResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveAllRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveAllResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveBooleanRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveBooleanResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveFloatRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveFloatResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveIntRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveIntResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveObjectRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveObjectResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveStringRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveStringResponse;
+import dev.openfeature.flagd.grpc.evaluation.ServiceGrpc;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves flagd's evaluation protocol (flagd.evaluation.v1) from the {@link FlagEvaluationService},
+ * so OpenFeature flagd providers in RPC mode can use Iffy in place of flagd. Errors are reported as
+ * flagd reports them, as gRPC statuses, which providers turn into their callers' default values: an
+ * unknown or disabled flag is NOT_FOUND and a flag of the wrong type is INVALID_ARGUMENT.
+ *
+ * <p>EventStream subscribers are sent provider_ready, then a configuration_change event naming the
+ * flags written, updated or deleted by each published snapshot, so providers can drop cached
+ * results. All subscriber bookkeeping and sends happen on a single stream thread.
+ */
+@Component
+@ConditionalOnProperty("iffy.grpc.enabled")
+public class FlagdGrpcService extends ServiceGrpc.ServiceImplBase {
+  private static final Logger logger = LoggerFactory.getLogger(FlagdGrpcService.class);
+
+  static final String PROVIDER_READY = "provider_ready";
+  static final String CONFIGURATION_CHANGE = "configuration_change";
+  static final String KEEP_ALIVE = "keep_alive";
+
+  private final GrpcConfiguration configuration;
+  private final FlagEvaluationService flagEvaluationService;
+  private final FlagStore flagStore;
+  private final ScheduledExecutorService streamThread;
+
+  // The fields below are only accessed from the stream thread.
+  private final List<StreamObserver<EventStreamResponse>> subscribers = new ArrayList<>();
+  private FlagSnapshot announcedSnapshot = FlagSnapshot.EMPTY;
+
+  public FlagdGrpcService(
+      GrpcConfiguration configuration,
+      FlagEvaluationService flagEvaluationService,
+      FlagStore flagStore,
+      ExecutorFactory executorFactory) {
+    this.configuration = configuration;
+    this.flagEvaluationService = flagEvaluationService;
+    this.flagStore = flagStore;
+    this.streamThread = executorFactory.newScheduler("grpc-events");
+  }
+
+  @PostConstruct
+  private void start() {
+    onStreamThread(() -> announcedSnapshot = flagStore.current());
+    if (configuration.keepAliveSeconds() > 0) {
+      streamThread.scheduleWithFixedDelay(
+          () -> sendToAll(event(KEEP_ALIVE, null)),
+          configuration.keepAliveSeconds(),
+          configuration.keepAliveSeconds(),
+          TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  private void stop() {
+    // open streams are cancelled when the server shuts down
+    streamThread.shutdownNow();
+  }
+
+  @Override
+  public void resolveBoolean(
+      ResolveBooleanRequest request, StreamObserver<ResolveBooleanResponse> observer) {
+    resolve(
+        request.getFlagKey(),
+        request.getContext(),
+        value -> value instanceof Boolean bool ? bool : null,
+        (resolution, value) ->
+            ResolveBooleanResponse.newBuilder()
+                .setValue(value)
+                .setReason(resolution.reason().name())
+                .setVariant(resolution.variant())
+                .build(),
+        observer);
+  }
+
+  @Override
+  public void resolveString(
+      ResolveStringRequest request, StreamObserver<ResolveStringResponse> observer) {
+    resolve(
+        request.getFlagKey(),
+        request.getContext(),
+        value -> value instanceof String string ? string : null,
+        (resolution, value) ->
+            ResolveStringResponse.newBuilder()
+                .setValue(value)
+                .setReason(resolution.reason().name())
+                .setVariant(resolution.variant())
+                .build(),
+        observer);
+  }
+
+  @Override
+  public void resolveFloat(
+      ResolveFloatRequest request, StreamObserver<ResolveFloatResponse> observer) {
+    resolve(
+        request.getFlagKey(),
+        request.getContext(),
+        value -> value instanceof Number number ? number.doubleValue() : null,
+        (resolution, value) ->
+            ResolveFloatResponse.newBuilder()
+                .setValue(value)
+                .setReason(resolution.reason().name())
+                .setVariant(resolution.variant())
+                .build(),
+        observer);
+  }
+
+  @Override
+  public void resolveInt(ResolveIntRequest request, StreamObserver<ResolveIntResponse> observer) {
+    resolve(
+        request.getFlagKey(),
+        request.getContext(),
+        Structs::toLong,
+        (resolution, value) ->
+            ResolveIntResponse.newBuilder()
+                .setValue(value)
+                .setReason(resolution.reason().name())
+                .setVariant(resolution.variant())
+                .build(),
+        observer);
+  }
+
+  @Override
+  public void resolveObject(
+      ResolveObjectRequest request, StreamObserver<ResolveObjectResponse> observer) {
+    resolve(
+        request.getFlagKey(),
+        request.getContext(),
+        value -> value instanceof Map<?, ?> map ? Structs.toStruct(map) : null,
+        (resolution, value) ->
+            ResolveObjectResponse.newBuilder()
+                .setValue(value)
+                .setReason(resolution.reason().name())
+                .setVariant(resolution.variant())
+                .build(),
+        observer);
+  }
+
+  /**
+   * Evaluates one flag and responds with its value, if it has one of the requested type.
+   *
+   * @param convert converts the flag's value to the requested type, or returns null if it is not
+   *     of that type
+   */
+  private <T, R> void resolve(
+      String flagKey,
+      Struct context,
+      Function<Object, T> convert,
+      BiFunction<ResolutionDetails, T, R> response,
+      StreamObserver<R> observer) {
+    ResolutionDetails resolution;
+    try {
+      resolution = flagEvaluationService.evaluate(flagKey, Structs.toFlagContext(context));
+    } catch (NotFoundException e) {
+      observer.onError(Status.NOT_FOUND.withDescription("flag not found").asRuntimeException());
+      return;
+    }
+    Status error = errorStatus(resolution);
+    if (error == null) {
+      T value = convert.apply(resolution.value());
+      if (value != null) {
+        observer.onNext(response.apply(resolution, value));
+        observer.onCompleted();
+        return;
+      }
+      error = Status.INVALID_ARGUMENT.withDescription("type mismatch error");
+    }
+    observer.onError(error.asRuntimeException());
+  }
+
+  /** Returns the status flagd would respond with for an unsuccessful resolution, or null. */
+  @VisibleForTesting
+  static Status errorStatus(ResolutionDetails resolution) {
+    if (resolution.errorCode() != null) {
+      return switch (resolution.errorCode()) {
+        case FLAG_NOT_FOUND -> Status.NOT_FOUND.withDescription("flag not found");
+        case TYPE_MISMATCH -> Status.INVALID_ARGUMENT.withDescription("type mismatch error");
+        case PARSE_ERROR -> Status.DATA_LOSS.withDescription("parse error");
+        case GENERAL -> Status.UNKNOWN.withDescription(resolution.errorMessage());
+      };
+    }
+    if (resolution.value() == null) {
+      // disabled; providers serve their caller's default
+      return Status.NOT_FOUND.withDescription("flag disabled");
+    }
+    return null;
+  }
+
+  /** Evaluates every flag. As in flagd, flags that resolve to no value are left out. */
+  @Override
+  public void resolveAll(ResolveAllRequest request, StreamObserver<ResolveAllResponse> observer) {
+    var response = ResolveAllResponse.newBuilder();
+    flagEvaluationService
+        .evaluateAll(null, Structs.toFlagContext(request.getContext()))
+        .forEach(
+            (flagKey, resolution) -> {
+              if (errorStatus(resolution) == null) {
+                AnyFlag flag = toAnyFlag(resolution);
+                if (flag != null) {
+                  response.putFlags(flagKey, flag);
+                }
+              }
+            });
+    observer.onNext(response.build());
+    observer.onCompleted();
+  }
+
+  /**
+   * @return the resolution, or null if its value has no AnyFlag representation, such as a list
+   */
+  private static AnyFlag toAnyFlag(ResolutionDetails resolution) {
+    var flag =
+        AnyFlag.newBuilder()
+            .setReason(resolution.reason().name())
+            .setVariant(resolution.variant());
+    Object value = resolution.value();
+    if (value instanceof Boolean bool) {
+      flag.setBoolValue(bool);
+    } else if (value instanceof String string) {
+      flag.setStringValue(string);
+    } else if (value instanceof Number number) {
+      flag.setDoubleValue(number.doubleValue());
+    } else if (value instanceof Map<?, ?> map) {
+      flag.setObjectValue(Structs.toStruct(map));
+    } else {
+      return null;
+    }
+    return flag.build();
+  }
+
+  @Override
+  public void eventStream(
+      EventStreamRequest request, StreamObserver<EventStreamResponse> observer) {
+    if (observer instanceof ServerCallStreamObserver<EventStreamResponse> serverObserver) {
+      serverObserver.setOnCancelHandler(() -> onStreamThread(() -> subscribers.remove(observer)));
+    }
+    onStreamThread(
+        () -> {
+          if (send(observer, event(PROVIDER_READY, null))) {
+            subscribers.add(observer);
+          }
+        });
+  }
+
+  @EventListener
+  public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+    onStreamThread(
+        () -> {
+          FlagSnapshot snapshot = event.snapshot();
+          if (snapshot.version() <= announcedSnapshot.version()) {
+            return;
+          }
+          Map<String, Object> changes = changes(announcedSnapshot, snapshot);
+          announcedSnapshot = snapshot;
+          if (!changes.isEmpty()) {
+            sendToAll(event(CONFIGURATION_CHANGE, Map.of("flags", changes)));
+          }
+        });
+  }
+
+  /** Describes the changed flags as flagd does: each key maps to {"type": write|update|delete}. */
+  @VisibleForTesting
+  static Map<String, Object> changes(FlagSnapshot previous, FlagSnapshot current) {
+    Map<String, Object> changes = new LinkedHashMap<>();
+    for (FlagDefinition flag : current.flags()) {
+      FlagDefinition old = previous.get(flag.key());
+      if (old == null) {
+        changes.put(flag.key(), Map.of("type", "write"));
+      } else if (!old.equals(flag)) {
+        changes.put(flag.key(), Map.of("type", "update"));
+      }
+    }
+    for (FlagDefinition flag : previous.flags()) {
+      if (current.get(flag.key()) == null) {
+        changes.put(flag.key(), Map.of("type", "delete"));
+      }
+    }
+    return changes;
+  }
+
+  private static EventStreamResponse event(String type, Map<String, Object> data) {
+    var event = EventStreamResponse.newBuilder().setType(type);
+    if (data != null) {
+      event.setData(Structs.toStruct(data));
+    }
+    return event.build();
+  }
+
+  private void sendToAll(EventStreamResponse event) {
+    subscribers.removeIf(observer -> !send(observer, event));
+  }
+
+  /**
+   * @return false if the subscriber has gone away
+   */
+  private static boolean send(
+      StreamObserver<EventStreamResponse> observer, EventStreamResponse event) {
+    try {
+      observer.onNext(event);
+      return true;
+    } catch (RuntimeException e) {
+      // cancelled by the client
+      logger.debug("Dropping event stream subscriber", e);
+      return false;
+    }
+  }
+
+  private void onStreamThread(Runnable task) {
+    try {
+      streamThread.execute(task);
+    } catch (RejectedExecutionException e) {
+      // shutting down
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package bio.terra.iffy.grpc;
+
+import bio.terra.iffy.config.GrpcConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves {@link FlagdGrpcService} over HTTP/2 on its own port, next to the REST API. A client can
+ * multiplex any number of concurrent evaluations and event streams over one connection. Calls run
+ * on the same kind of threads as requests, see {@link ExecutorFactory}.
+ */
+@Component
+@ConditionalOnProperty("iffy.grpc.enabled")
+public class GrpcServer {
+  private static final Logger logger = LoggerFactory.getLogger(GrpcServer.class);
+
+  private final Server server;
+
+  public GrpcServer(
+      GrpcConfiguration configuration,
+      FlagdGrpcService flagdGrpcService,
+      ExecutorFactory executorFactory) {
+    this.server =
+        NettyServerBuilder.forPort(configuration.port())
+            .addService(flagdGrpcService)
+            .executor(executorFactory.newUnboundedExecutor("grpc"))
+            .build();
+  }
+
+  @PostConstruct
+  private void start() throws IOException {
+    server.start();
+    logger.info("Serving flagd evaluation over gRPC on port {}", server.getPort());
+  }
+
+  @PreDestroy
+  private void stop() throws InterruptedException {
+    server.shutdown();
+    if (!server.awaitTermination(5, TimeUnit.SECONDS)) {
+      // event streams only end when cancelled
+      server.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package bio.terra.iffy.grpc;
+
+import bio.terra.iffy.flags.FlagContext;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts between protobuf's JSON-like Struct values and the plain Java values flags are
+ * evaluated with: null, Boolean, String, Number, List and Map.
+ */
+final class Structs {
+  private Structs() {}
+
+  /** Reads an evaluation context; its targetingKey field becomes the targeting key. */
+  static FlagContext toFlagContext(Struct context) {
+    return FlagContext.of(null, toMap(context));
+  }
+
+  static Map<String, Object> toMap(Struct struct) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    struct.getFieldsMap().forEach((key, value) -> map.put(key, toObject(value)));
+    return map;
+  }
+
+  static Object toObject(Value value) {
+    return switch (value.getKindCase()) {
+      case BOOL_VALUE -> value.getBoolValue();
+      case STRING_VALUE -> value.getStringValue();
+      case NUMBER_VALUE -> value.getNumberValue();
+      case STRUCT_VALUE -> toMap(value.getStructValue());
+      case LIST_VALUE -> {
+        List<Object> list = new ArrayList<>(value.getListValue().getValuesCount());
+        value.getListValue().getValuesList().forEach(element -> list.add(toObject(element)));
+        yield list;
+      }
+      case NULL_VALUE, KIND_NOT_SET -> null;
+    };
+  }
+
+  static Struct toStruct(Map<?, ?> map) {
+    Struct.Builder struct = Struct.newBuilder();
+    map.forEach((key, value) -> struct.putFields(String.valueOf(key), toValue(value)));
+    return struct.build();
+  }
+
+  static Value toValue(Object object) {
+    Value.Builder value = Value.newBuilder();
+    if (object instanceof Boolean bool) {
+      value.setBoolValue(bool);
+    } else if (object instanceof String string) {
+      value.setStringValue(string);
+    } else if (object instanceof Number number) {
+      value.setNumberValue(number.doubleValue());
+    } else if (object instanceof Map<?, ?> map) {
+      value.setStructValue(toStruct(map));
+    } else if (object instanceof List<?> list) {
+      ListValue.Builder elements = ListValue.newBuilder();
+      list.forEach(element -> elements.addValues(toValue(element)));
+      value.setListValue(elements);
+    } else {
+      value.setNullValue(NullValue.NULL_VALUE);
+    }
+    return value.build();
+  }
+
+  /**
+   * @return the value as a long if it is an integer that fits in one, otherwise null
+   */
+  static Long toLong(Object value) {
+    if (value instanceof Integer || value instanceof Long) {
+      return ((Number) value).longValue();
+    }
+    if (value instanceof BigInteger bigInteger && bigInteger.bitLength() < Long.SIZE) {
+      return bigInteger.longValue();
+    }
+    return null;
+  }
+}
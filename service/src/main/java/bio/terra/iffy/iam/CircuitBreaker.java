@@ -0,0 +1,139 @@
+package bio.terra.iffy.iam;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A count-based circuit breaker. While CLOSED it records the outcome of the last slidingWindowSize
+ * calls and opens once the failure rate reaches the threshold. While OPEN it refuses calls until
+ * the open period has passed, then goes HALF_OPEN and lets a few probe calls through: if they all
+ * succeed it closes, and if any fails it opens again.
+ */
+class CircuitBreaker {
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureRateThreshold;
+  private final int minimumCalls;
+  private final long openNanos;
+  private final int halfOpenPermittedCalls;
+  private final LongSupplier nanoClock;
+
+  // guarded by this
+  private final boolean[] failed;
+  private int nextSlot;
+  private int recordedCalls;
+  private int failedCalls;
+  private State state = State.CLOSED;
+  private long openedAt;
+  private int halfOpenCalls;
+  private int halfOpenSuccesses;
+
+  CircuitBreaker(
+      int failureRateThreshold,
+      int minimumCalls,
+      int slidingWindowSize,
+      long openNanos,
+      int halfOpenPermittedCalls,
+      LongSupplier nanoClock) {
+    this.failureRateThreshold = failureRateThreshold;
+    this.minimumCalls = minimumCalls;
+    this.openNanos = openNanos;
+    this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+    this.nanoClock = nanoClock;
+    this.failed = new boolean[slidingWindowSize];
+  }
+
+  synchronized State state() {
+    if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+      state = State.HALF_OPEN;
+      halfOpenCalls = 0;
+      halfOpenSuccesses = 0;
+    }
+    return state;
+  }
+
+  /**
+   * Returns whether a call may go ahead. Every permitted call must be followed by onSuccess,
+   * onFailure or onAbandoned.
+   */
+  synchronized boolean tryAcquirePermission() {
+    return switch (state()) {
+      case CLOSED -> true;
+      case OPEN -> false;
+      case HALF_OPEN -> {
+        if (halfOpenCalls >= halfOpenPermittedCalls) {
+          yield false;
+        }
+        halfOpenCalls++;
+        yield true;
+      }
+    };
+  }
+
+  synchronized void onSuccess() {
+    switch (state) {
+      case CLOSED -> record(false);
+      case HALF_OPEN -> {
+        if (++halfOpenSuccesses >= halfOpenPermittedCalls) {
+          close();
+        }
+      }
+      case OPEN -> {
+        // a call that started before the circuit opened; it says nothing new
+      }
+    }
+  }
+
+  synchronized void onFailure() {
+    switch (state) {
+      case CLOSED -> {
+        record(true);
+        if (recordedCalls >= minimumCalls
+            && failedCalls * 100L >= (long) failureRateThreshold * recordedCalls) {
+          open();
+        }
+      }
+      case HALF_OPEN -> open();
+      case OPEN -> {
+        // already open
+      }
+    }
+  }
+
+  /** Releases a permission whose call was never made. */
+  synchronized void onAbandoned() {
+    if (state == State.HALF_OPEN && halfOpenCalls > 0) {
+      halfOpenCalls--;
+    }
+  }
+
+  private void record(boolean failure) {
+    if (recordedCalls == failed.length) {
+      if (failed[nextSlot]) {
+        failedCalls--;
+      }
+    } else {
+      recordedCalls++;
+    }
+    failed[nextSlot] = failure;
+    if (failure) {
+      failedCalls++;
+    }
+    nextSlot = (nextSlot + 1) % failed.length;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = nanoClock.getAsLong();
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    nextSlot = 0;
+    recordedCalls = 0;
+    failedCalls = 0;
+  }
+}
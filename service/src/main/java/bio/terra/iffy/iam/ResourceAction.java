@@ -0,0 +1,4 @@
+package bio.terra.iffy.iam;
+
+/** An action on a Sam resource, the unit a permission check answers. */
+public record ResourceAction(String resourceType, String resourceId, String action) {}
@@ -0,0 +1,19 @@
+package bio.terra.iffy.iam;
+
+import bio.terra.common.exception.ErrorReportException;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+
+/** Thrown when a batch of Sam permission checks does not finish before its deadline. */
+public class SamBatchTimeoutException extends ErrorReportException {
+  public SamBatchTimeoutException(String message) {
+    super(message, List.of(), HttpStatus.GATEWAY_TIMEOUT);
+  }
+
+  /**
+   * @param causes describes each check that did not finish
+   */
+  public SamBatchTimeoutException(String message, List<String> causes) {
+    super(message, causes, HttpStatus.GATEWAY_TIMEOUT);
+  }
+}
@@ -2,53 +2,208 @@ package bio.terra.iffy.iam;
 
 import bio.terra.common.tracing.OkHttpClientTracingInterceptor;
 import bio.terra.iffy.config.SamConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.api.OpenTelemetry;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.broadinstitute.dsde.workbench.client.sam.ApiCallback;
 import org.broadinstitute.dsde.workbench.client.sam.ApiClient;
+import org.broadinstitute.dsde.workbench.client.sam.ApiException;
 import org.broadinstitute.dsde.workbench.client.sam.api.ResourcesApi;
 import org.broadinstitute.dsde.workbench.client.sam.api.StatusApi;
 import org.broadinstitute.dsde.workbench.client.sam.api.UsersApi;
 import org.springframework.stereotype.Component;
 
+/**
+ * Holds one long-lived Sam {@link ApiClient}, and so one OkHttp connection pool and dispatcher,
+ * shared by every request. The caller's access token is not stored on the shared client; {@link
+ * #withAccessToken} makes it available to an interceptor that adds the Authorization header to
+ * calls made on the current thread, and {@link #executeAsync} puts it on the request itself.
+ */
 @Component
 public class SamClient {
-  private final SamConfiguration samConfig;
-  private final OkHttpClient okHttpClient;
-
-  public SamClient(SamConfiguration samConfig, Optional<OpenTelemetry> openTelemetry) {
-    this.samConfig = samConfig;
-    this.okHttpClient =
-        openTelemetry
-            .map(
-                otel ->
-                    new ApiClient()
-                        .getHttpClient()
-                        .newBuilder()
-                        .addInterceptor(new OkHttpClientTracingInterceptor(otel))
-                        .build())
-            .orElse(new ApiClient().getHttpClient());
-  }
-
-  private ApiClient getApiClient(String accessToken) {
-    ApiClient apiClient = getApiClient();
-    apiClient.setAccessToken(accessToken);
-    return apiClient;
+  static final String POOL_METRIC = "iffy.sam.http.pool";
+  static final String STATE_TAG = "state";
+
+  private static final String AUTHORIZATION = "Authorization";
+  private static final String BEARER = "Bearer ";
+  private static final ThreadLocal<String> ACCESS_TOKEN = new ThreadLocal<>();
+
+  /** A Sam call made with the current thread's access token. */
+  @FunctionalInterface
+  public interface SamCall<T> {
+    T call() throws ApiException;
+  }
+
+  /** Builds, but does not execute, a Sam call, e.g. with ResourcesApi.resourcePermissionV2Call. */
+  @FunctionalInterface
+  interface SamCallBuilder {
+    Call build() throws ApiException;
+  }
+
+  private final ApiClient apiClient;
+  private final UsersApi usersApi;
+  private final ResourcesApi resourcesApi;
+  private final StatusApi statusApi;
+
+  public SamClient(
+      SamConfiguration samConfig,
+      Optional<OpenTelemetry> openTelemetry,
+      MeterRegistry meterRegistry) {
+    var connectionPool =
+        new ConnectionPool(
+            samConfig.maxIdleConnections(), samConfig.keepAliveSeconds(), TimeUnit.SECONDS);
+    var dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(samConfig.maxRequests());
+    dispatcher.setMaxRequestsPerHost(samConfig.maxRequestsPerHost());
+
+    var apiClient = new ApiClient();
+    var httpClientBuilder =
+        apiClient
+            .getHttpClient()
+            .newBuilder()
+            .connectionPool(connectionPool)
+            .dispatcher(dispatcher)
+            .connectTimeout(samConfig.connectTimeoutSeconds(), TimeUnit.SECONDS)
+            .readTimeout(samConfig.readTimeoutSeconds(), TimeUnit.SECONDS)
+            .addInterceptor(new AccessTokenInterceptor());
+    openTelemetry.ifPresent(
+        otel -> httpClientBuilder.addInterceptor(new OkHttpClientTracingInterceptor(otel)));
+    this.apiClient =
+        apiClient.setHttpClient(httpClientBuilder.build()).setBasePath(samConfig.basePath());
+    this.usersApi = new UsersApi(this.apiClient);
+    this.resourcesApi = new ResourcesApi(this.apiClient);
+    this.statusApi = new StatusApi(this.apiClient);
+
+    gauge(meterRegistry, "idle", connectionPool, ConnectionPool::idleConnectionCount);
+    gauge(
+        meterRegistry,
+        "active",
+        connectionPool,
+        pool -> pool.connectionCount() - pool.idleConnectionCount());
+    gauge(meterRegistry, "running", dispatcher, Dispatcher::runningCallsCount);
+    gauge(meterRegistry, "queued", dispatcher, Dispatcher::queuedCallsCount);
+  }
+
+  /**
+   * Runs Sam calls on this thread with the given access token. Calls made by the APIs returned
+   * from this client without an access token are unauthenticated.
+   */
+  public <T> T withAccessToken(String accessToken, SamCall<T> call) throws ApiException {
+    String previous = ACCESS_TOKEN.get();
+    ACCESS_TOKEN.set(accessToken);
+    try {
+      return call.call();
+    } finally {
+      if (previous == null) {
+        ACCESS_TOKEN.remove();
+      } else {
+        ACCESS_TOKEN.set(previous);
+      }
+    }
   }
 
-  private ApiClient getApiClient() {
-    return new ApiClient().setHttpClient(this.okHttpClient).setBasePath(samConfig.basePath());
+  /**
+   * Makes a Sam call without blocking the calling thread. The call is built on this thread and sent
+   * with the given access token from an OkHttp dispatcher thread, where the returned future
+   * completes, exceptionally with an {@link ApiException} if the call fails. Cancelling the future
+   * cancels the call.
+   */
+  <T> CompletableFuture<T> executeAsync(
+      String accessToken, SamCallBuilder callBuilder, Type returnType) {
+    var future = new CompletableFuture<T>();
+    try {
+      // the interceptor's thread local is not visible on the dispatcher thread
+      Request request =
+          callBuilder
+              .build()
+              .request()
+              .newBuilder()
+              .header(AUTHORIZATION, BEARER + accessToken)
+              .build();
+      Call call = apiClient.getHttpClient().newCall(request);
+      future.whenComplete(
+          (result, error) -> {
+            if (future.isCancelled()) {
+              call.cancel();
+            }
+          });
+      apiClient.executeAsync(call, returnType, new FutureCallback<>(future));
+    } catch (ApiException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
   }
 
-  UsersApi usersApi(String accessToken) {
-    return new UsersApi(getApiClient(accessToken));
+  ApiClient apiClient() {
+    return apiClient;
+  }
+
+  UsersApi usersApi() {
+    return usersApi;
   }
 
-  ResourcesApi resourcesApi(String accessToken) {
-    return new ResourcesApi(getApiClient(accessToken));
+  ResourcesApi resourcesApi() {
+    return resourcesApi;
   }
 
   StatusApi statusApi() {
-    return new StatusApi(getApiClient());
+    return statusApi;
+  }
+
+  private static <T> void gauge(
+      MeterRegistry meterRegistry, String state, T source, ToDoubleFunction<T> value) {
+    Gauge.builder(POOL_METRIC, source, value)
+        .description("Sam HTTP connections (idle, active) and dispatcher calls (running, queued)")
+        .tag(STATE_TAG, state)
+        .register(meterRegistry);
+  }
+
+  /** Adds the current thread's access token, if any, as a bearer Authorization header. */
+  static class AccessTokenInterceptor implements Interceptor {
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+      Request request = chain.request();
+      String accessToken = ACCESS_TOKEN.get();
+      if (accessToken == null) {
+        return chain.proceed(request);
+      }
+      return chain.proceed(
+          request.newBuilder().header(AUTHORIZATION, BEARER + accessToken).build());
+    }
+  }
+
+  /** Completes a future with the outcome of an asynchronous Sam call. */
+  private record FutureCallback<T>(CompletableFuture<T> future) implements ApiCallback<T> {
+    @Override
+    public void onFailure(
+        ApiException e, int statusCode, Map<String, List<String>> responseHeaders) {
+      future.completeExceptionally(e);
+    }
+
+    @Override
+    public void onSuccess(T result, int statusCode, Map<String, List<String>> responseHeaders) {
+      future.complete(result);
+    }
+
+    @Override
+    public void onUploadProgress(long bytesWritten, long contentLength, boolean done) {}
+
+    @Override
+    public void onDownloadProgress(long bytesRead, long contentLength, boolean done) {}
   }
 }
@@ -0,0 +1,202 @@
+package bio.terra.iffy.iam;
+
+import bio.terra.common.iam.BearerToken;
+import bio.terra.iffy.config.SamPermissionCacheConfiguration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches Sam permission decisions keyed by a hash of the caller's bearer token and the resource
+ * and action checked. Granted and denied decisions have separate TTLs, the cache is bounded by
+ * size, and concurrent misses for the same key share a single Sam call.
+ */
+@Component
+public class SamPermissionCache {
+  static final String CACHE_METRIC = "iffy.sam.permission.cache";
+  static final String RESULT_TAG = "result";
+
+  record PermissionKey(String tokenHash, String resourceType, String resourceId, String action) {}
+
+  private final SamPermissionCacheConfiguration configuration;
+  private final Cache<PermissionKey, Boolean> decisions;
+  private final ConcurrentHashMap<PermissionKey, CompletableFuture<Boolean>> inFlight;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter coalesced;
+
+  public SamPermissionCache(
+      SamPermissionCacheConfiguration configuration, MeterRegistry meterRegistry) {
+    this.configuration = configuration;
+    this.decisions =
+        Caffeine.newBuilder()
+            .maximumSize(configuration.maximumSize())
+            .expireAfter(new DecisionExpiry(configuration))
+            .build();
+    this.inFlight = new ConcurrentHashMap<>();
+    this.hits = counter(meterRegistry, "hit");
+    this.misses = counter(meterRegistry, "miss");
+    this.coalesced = counter(meterRegistry, "coalesced");
+    Gauge.builder(CACHE_METRIC + ".size", decisions, Cache::estimatedSize)
+        .description("Number of cached Sam permission decisions")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns the cached decision, or calls the loader to ask Sam. If another thread is already
+   * loading the same decision, waits for its result instead. Loader exceptions are rethrown to
+   * every waiting caller and are not cached.
+   */
+  public boolean getDecision(
+      BearerToken bearerToken,
+      String resourceType,
+      String resourceId,
+      String action,
+      BooleanSupplier loader) {
+    if (!configuration.enabled()) {
+      return loader.getAsBoolean();
+    }
+    var key =
+        new PermissionKey(
+            TokenHashes.sha256(bearerToken.getToken()), resourceType, resourceId, action);
+    Boolean cached = decisions.getIfPresent(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+    var load = new CompletableFuture<Boolean>();
+    var existing = inFlight.putIfAbsent(key, load);
+    if (existing != null) {
+      coalesced.increment();
+      return await(existing);
+    }
+    try {
+      // another load may have finished between the cache check and claiming the key
+      cached = decisions.getIfPresent(key);
+      if (cached == null) {
+        misses.increment();
+        cached = loader.getAsBoolean();
+        decisions.put(key, cached);
+      } else {
+        hits.increment();
+      }
+      load.complete(cached);
+      return cached;
+    } catch (RuntimeException e) {
+      load.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, load);
+    }
+  }
+
+  /**
+   * Like {@link #getDecision}, but for a loader that asks Sam asynchronously. The returned future
+   * may be cancelled without affecting other callers waiting on the same load.
+   */
+  public CompletableFuture<Boolean> getDecisionAsync(
+      BearerToken bearerToken,
+      String resourceType,
+      String resourceId,
+      String action,
+      Supplier<CompletableFuture<Boolean>> loader) {
+    if (!configuration.enabled()) {
+      return loader.get();
+    }
+    var key =
+        new PermissionKey(
+            TokenHashes.sha256(bearerToken.getToken()), resourceType, resourceId, action);
+    Boolean cached = decisions.getIfPresent(key);
+    if (cached != null) {
+      hits.increment();
+      return CompletableFuture.completedFuture(cached);
+    }
+    var load = new CompletableFuture<Boolean>();
+    var existing = inFlight.putIfAbsent(key, load);
+    if (existing != null) {
+      coalesced.increment();
+      return existing.copy();
+    }
+    // another load may have finished between the cache check and claiming the key
+    cached = decisions.getIfPresent(key);
+    if (cached != null) {
+      hits.increment();
+      inFlight.remove(key, load);
+      load.complete(cached);
+      return load.copy();
+    }
+    misses.increment();
+    CompletableFuture<Boolean> loading;
+    try {
+      loading = loader.get();
+    } catch (RuntimeException e) {
+      loading = CompletableFuture.failedFuture(e);
+    }
+    loading.whenComplete(
+        (allowed, error) -> {
+          if (error == null) {
+            decisions.put(key, allowed);
+          }
+          inFlight.remove(key, load);
+          if (error == null) {
+            load.complete(allowed);
+          } else {
+            load.completeExceptionally(
+                error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error);
+          }
+        });
+    return load.copy();
+  }
+
+  private static boolean await(CompletableFuture<Boolean> load) {
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private static Counter counter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder(CACHE_METRIC)
+        .description("Sam permission decisions served from cache, loaded, or shared with a load")
+        .tag(RESULT_TAG, result)
+        .register(meterRegistry);
+  }
+
+  /** Expires granted and denied decisions after their own TTLs. */
+  private record DecisionExpiry(SamPermissionCacheConfiguration configuration)
+      implements Expiry<PermissionKey, Boolean> {
+    @Override
+    public long expireAfterCreate(PermissionKey key, Boolean allowed, long currentTime) {
+      return TimeUnit.SECONDS.toNanos(
+          allowed ? configuration.allowTtlSeconds() : configuration.denyTtlSeconds());
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        PermissionKey key, Boolean allowed, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, allowed, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        PermissionKey key, Boolean allowed, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
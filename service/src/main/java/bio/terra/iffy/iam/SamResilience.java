@@ -0,0 +1,361 @@
+package bio.terra.iffy.iam;
+
+import bio.terra.iffy.config.SamResilienceConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.iam.CircuitBreaker.State;
+import bio.terra.iffy.iam.SamClient.SamCall;
+import bio.terra.iffy.model.SystemStatusSystems;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.broadinstitute.dsde.workbench.client.sam.ApiException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guards calls to Sam with a circuit breaker, which fails fast while Sam is failing, and a
+ * bulkhead, which bounds how many calls may be in flight. Permission checks may also be hedged: a
+ * check still running after the configured latency percentile gets a second request, and the first
+ * successful response wins. Each request holds a bulkhead permit until it actually ends, so the
+ * losing request, which is cancelled but may not stop at once, is still counted.
+ *
+ * <p>Sam errors count as failures when they are server errors, rate limiting or connection
+ * failures. Other errors, such as 404 for an unknown resource, mean Sam is healthy.
+ */
+@Component
+public class SamResilience {
+  static final String CALL_METRIC = "iffy.sam.call";
+  static final String REJECTED_METRIC = "iffy.sam.call.rejected";
+  static final String HEDGED_METRIC = "iffy.sam.call.hedged";
+  static final String BREAKER_METRIC = "iffy.sam.circuit.state";
+
+  private static final String CIRCUIT_OPEN_MESSAGE =
+      "Sam is failing; not calling it until it recovers";
+  private static final String BULKHEAD_FULL_MESSAGE = "Too many concurrent calls to Sam";
+
+  private final SamResilienceConfiguration configuration;
+  private final CircuitBreaker circuitBreaker;
+  private final Semaphore bulkhead;
+  private final ExecutorService hedgeExecutor;
+  private final Timer callTimer;
+  private final Counter rejectedOpen;
+  private final Counter rejectedFull;
+  private final Counter hedged;
+
+  public SamResilience(
+      SamResilienceConfiguration configuration,
+      ExecutorFactory executorFactory,
+      MeterRegistry meterRegistry) {
+    this.configuration = configuration;
+    this.circuitBreaker =
+        new CircuitBreaker(
+            configuration.failureRateThreshold(),
+            configuration.minimumCalls(),
+            configuration.slidingWindowSize(),
+            TimeUnit.SECONDS.toNanos(configuration.openStateSeconds()),
+            configuration.halfOpenPermittedCalls(),
+            System::nanoTime);
+    this.bulkhead = new Semaphore(configuration.maxConcurrentCalls());
+    this.hedgeExecutor = executorFactory.newUnboundedExecutor("sam-hedge");
+    this.callTimer =
+        Timer.builder(CALL_METRIC)
+            .description("Latency of successful Sam calls")
+            .publishPercentiles(configuration.hedgePercentile() / 100)
+            .register(meterRegistry);
+    this.rejectedOpen = rejectedCounter(meterRegistry, "circuit_open");
+    this.rejectedFull = rejectedCounter(meterRegistry, "bulkhead_full");
+    this.hedged =
+        Counter.builder(HEDGED_METRIC)
+            .description("Permission checks that sent a second request")
+            .register(meterRegistry);
+    Gauge.builder(BREAKER_METRIC, circuitBreaker, breaker -> breaker.state().ordinal())
+        .description("Sam circuit breaker state: 0 closed, 1 open, 2 half open")
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  private void stop() {
+    hedgeExecutor.shutdownNow();
+  }
+
+  /** Makes a Sam call through the circuit breaker and bulkhead. */
+  public <T> T call(SamCall<T> call) throws ApiException {
+    return guarded(call, false);
+  }
+
+  /** Makes a Sam call through the circuit breaker and bulkhead, hedging it if it is slow. */
+  public <T> T callHedged(SamCall<T> call) throws ApiException {
+    return guarded(call, configuration.hedgingEnabled());
+  }
+
+  /**
+   * Makes an asynchronous Sam call through the circuit breaker and bulkhead. Unlike {@link #call},
+   * this never waits for room in the bulkhead, since waiting would block the calling thread; the
+   * returned future fails at once instead. Asynchronous calls are not hedged.
+   */
+  public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+    if (!circuitBreaker.tryAcquirePermission()) {
+      rejectedOpen.increment();
+      return CompletableFuture.failedFuture(new SamUnavailableException(CIRCUIT_OPEN_MESSAGE));
+    }
+    if (!bulkhead.tryAcquire()) {
+      circuitBreaker.onAbandoned();
+      rejectedFull.increment();
+      return CompletableFuture.failedFuture(new SamUnavailableException(BULKHEAD_FULL_MESSAGE));
+    }
+    long started = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      bulkhead.release();
+      circuitBreaker.onFailure();
+      throw e;
+    }
+    return future.whenComplete(
+        (result, error) -> {
+          bulkhead.release();
+          if (error == null) {
+            callTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+          } else {
+            recordFailure(error instanceof CompletionException ? error.getCause() : error);
+          }
+        });
+  }
+
+  public SystemStatusSystems status() {
+    State state = circuitBreaker.state();
+    var status = new SystemStatusSystems().ok(state != State.OPEN);
+    if (state != State.CLOSED) {
+      status.addMessagesItem("Sam circuit breaker is " + state);
+    }
+    return status;
+  }
+
+  State circuitState() {
+    return circuitBreaker.state();
+  }
+
+  int bulkheadAvailablePermits() {
+    return bulkhead.availablePermits();
+  }
+
+  private <T> T guarded(SamCall<T> call, boolean hedge) throws ApiException {
+    if (!circuitBreaker.tryAcquirePermission()) {
+      rejectedOpen.increment();
+      throw new SamUnavailableException(CIRCUIT_OPEN_MESSAGE);
+    }
+    if (!acquireBulkhead()) {
+      circuitBreaker.onAbandoned();
+      rejectedFull.increment();
+      throw new SamUnavailableException(BULKHEAD_FULL_MESSAGE);
+    }
+    long started = System.nanoTime();
+    long delayNanos = hedge ? hedgeDelayNanos() : -1;
+    try {
+      T result;
+      if (delayNanos < 0) {
+        try {
+          result = call.call();
+        } finally {
+          bulkhead.release();
+        }
+      } else {
+        // the permit passes to the first request, which releases it when it ends
+        result = hedged(call, delayNanos);
+      }
+      callTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      circuitBreaker.onSuccess();
+      return result;
+    } catch (ApiException | RuntimeException e) {
+      recordFailure(e);
+      throw e;
+    }
+  }
+
+  private void recordFailure(Throwable error) {
+    if (error instanceof CancellationException) {
+      // the caller gave up; says nothing about Sam
+      circuitBreaker.onAbandoned();
+    } else if (error instanceof ApiException e && !isSamFailure(e)) {
+      circuitBreaker.onSuccess();
+    } else {
+      circuitBreaker.onFailure();
+    }
+  }
+
+  private boolean acquireBulkhead() {
+    try {
+      return bulkhead.tryAcquire(configuration.bulkheadWaitMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Makes the call on the hedge executor, racing a second request if it takes longer than the
+   * delay. Once there is a result, or the caller gives up, requests still running are cancelled.
+   */
+  private <T> T hedged(SamCall<T> call, long delayNanos) throws ApiException {
+    var primary = new HedgeRequest<>(call);
+    HedgeRequest<T> hedge = null;
+    try {
+      return primary.result.get(delayNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // slower than usual: race a second request, if the bulkhead has room for one
+      if (!bulkhead.tryAcquire()) {
+        return await(primary.result);
+      }
+      hedged.increment();
+      hedge = new HedgeRequest<>(call);
+      return await(firstSuccessful(primary.result, hedge.result));
+    } catch (ExecutionException e) {
+      // rethrows the primary's failure
+      return await(primary.result);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SamUnavailableException("Interrupted waiting for Sam");
+    } finally {
+      primary.cancel();
+      if (hedge != null) {
+        hedge.cancel();
+      }
+    }
+  }
+
+  /** Returns the hedging delay, or -1 if too few calls have been timed to know it. */
+  private long hedgeDelayNanos() {
+    if (callTimer.count() < configuration.minimumCalls()) {
+      return -1;
+    }
+    double percentileNanos = 0;
+    for (ValueAtPercentile value : callTimer.takeSnapshot().percentileValues()) {
+      percentileNanos = value.value(TimeUnit.NANOSECONDS);
+    }
+    return Math.max(
+        (long) percentileNanos, TimeUnit.MILLISECONDS.toNanos(configuration.hedgeMinDelayMillis()));
+  }
+
+  /**
+   * A request running on the hedge executor. It holds a bulkhead permit, acquired by the caller,
+   * until the call ends, or until it is cancelled before it starts.
+   */
+  private final class HedgeRequest<T> {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Future<?> task;
+
+    HedgeRequest(SamCall<T> call) {
+      Future<?> submitted = null;
+      try {
+        submitted = hedgeExecutor.submit(() -> run(call));
+      } catch (RejectedExecutionException e) {
+        // shutting down
+        cancelUnstarted();
+      }
+      task = submitted;
+    }
+
+    private void run(SamCall<T> call) {
+      if (!started.compareAndSet(false, true)) {
+        return;
+      }
+      T value = null;
+      Exception error = null;
+      try {
+        value = call.call();
+      } catch (Exception e) {
+        error = e;
+      } finally {
+        // released first, so the permit is free by the time the caller sees the result
+        bulkhead.release();
+      }
+      if (error == null) {
+        result.complete(value);
+      } else {
+        result.completeExceptionally(error);
+      }
+    }
+
+    /** Interrupts the call if it is running; its permit is released when it actually ends. */
+    void cancel() {
+      if (task != null) {
+        task.cancel(true);
+      }
+      cancelUnstarted();
+    }
+
+    private void cancelUnstarted() {
+      if (started.compareAndSet(false, true)) {
+        bulkhead.release();
+        result.cancel(false);
+      }
+    }
+  }
+
+  /** Completes with the first successful result, or with the last failure if both fail. */
+  static <T> CompletableFuture<T> firstSuccessful(
+      CompletableFuture<T> first, CompletableFuture<T> second) {
+    var result = new CompletableFuture<T>();
+    var failures = new AtomicInteger();
+    for (CompletableFuture<T> future : List.of(first, second)) {
+      future.whenComplete(
+          (value, error) -> {
+            if (error == null) {
+              result.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+              result.completeExceptionally(error);
+            }
+          });
+    }
+    return result;
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws ApiException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ApiException apiException) {
+        throw apiException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Sam call failed", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SamUnavailableException("Interrupted waiting for Sam");
+    }
+  }
+
+  static boolean isSamFailure(ApiException e) {
+    int code = e.getCode();
+    return code == 0 || code == 429 || code >= 500;
+  }
+
+  private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+    return Counter.builder(REJECTED_METRIC)
+        .description("Sam calls refused without calling Sam")
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+}
@@ -1,10 +1,30 @@
 package bio.terra.iffy.iam;
 
+import bio.terra.common.exception.BadRequestException;
 import bio.terra.common.iam.BearerToken;
 import bio.terra.common.sam.SamRetry;
 import bio.terra.common.sam.exception.SamExceptionFactory;
+import bio.terra.iffy.config.SamBatchConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
 import bio.terra.iffy.model.SystemStatusSystems;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import org.broadinstitute.dsde.workbench.client.sam.ApiException;
 import org.broadinstitute.dsde.workbench.client.sam.model.SystemStatus;
 import org.slf4j.Logger;
@@ -15,21 +35,218 @@ import org.springframework.stereotype.Component;
 @Component
 public class SamService {
   private static final Logger logger = LoggerFactory.getLogger(SamService.class);
+
+  // SamRetry sleeps between attempts, so asynchronous checks retry on their own schedule
+  private static final int ASYNC_ATTEMPTS = 3;
+  private static final long ASYNC_RETRY_DELAY_MILLIS = 100;
+
   private final SamClient samClient;
+  private final SamPermissionCache permissionCache;
+  private final SamBatchConfiguration batchConfiguration;
+  private final ExecutorService batchExecutor;
+  private final SamResilience samResilience;
 
   @Autowired
-  public SamService(SamClient samClient) {
+  public SamService(
+      SamClient samClient,
+      SamPermissionCache permissionCache,
+      SamBatchConfiguration batchConfiguration,
+      ExecutorFactory executorFactory,
+      SamResilience samResilience) {
     this.samClient = samClient;
+    this.permissionCache = permissionCache;
+    this.batchConfiguration = batchConfiguration;
+    this.batchExecutor =
+        executorFactory.newBlockingExecutor("sam-batch", batchConfiguration.threadPoolSize());
+    this.samResilience = samResilience;
+  }
+
+  @PreDestroy
+  private void stop() {
+    batchExecutor.shutdownNow();
   }
 
   public boolean getAction(
       String resourceType, String resourceId, String action, BearerToken bearerToken) {
+    return permissionCache.getDecision(
+        bearerToken,
+        resourceType,
+        resourceId,
+        action,
+        () -> checkPermission(resourceType, resourceId, action, bearerToken));
+  }
+
+  /**
+   * Checks several resource actions for one caller. Duplicates are checked once, at most
+   * maxConcurrency checks run at a time, and the whole batch fails, naming the checks that did not
+   * finish, if it is not done by the deadline.
+   *
+   * @return whether each distinct resource action is allowed, in request order
+   */
+  public Map<ResourceAction, Boolean> getActions(
+      Collection<ResourceAction> resourceActions, BearerToken bearerToken) {
+    var distinct = distinct(resourceActions);
+    Map<ResourceAction, Boolean> results = new ConcurrentHashMap<>();
+    if (distinct.size() <= 1) {
+      // nothing to fan out
+      distinct.forEach(check -> results.put(check, getAction(check, bearerToken)));
+    } else {
+      fanOut(distinct, bearerToken, results);
+    }
+    return ordered(distinct, results);
+  }
+
+  /**
+   * Like {@link #getAction}, but without blocking the calling thread: the returned future
+   * completes when Sam responds, or at once if the decision is cached.
+   */
+  public CompletableFuture<Boolean> getActionAsync(
+      String resourceType, String resourceId, String action, BearerToken bearerToken) {
+    return permissionCache.getDecisionAsync(
+        bearerToken,
+        resourceType,
+        resourceId,
+        action,
+        () -> checkPermissionAsync(resourceType, resourceId, action, bearerToken));
+  }
+
+  /**
+   * Like {@link #getActions}, but without blocking the calling thread. At most maxConcurrency
+   * checks are in flight at a time, each started as the previous one completes, and the returned
+   * future fails with {@link SamBatchTimeoutException} if they are not done by the deadline.
+   *
+   * @throws BadRequestException if there are more distinct resource actions than maxBatchSize
+   */
+  public CompletableFuture<Map<ResourceAction, Boolean>> getActionsAsync(
+      Collection<ResourceAction> resourceActions, BearerToken bearerToken) {
+    var distinct = distinct(resourceActions);
+    Map<ResourceAction, Boolean> results = new ConcurrentHashMap<>();
+    Queue<ResourceAction> pending = new ConcurrentLinkedQueue<>(distinct);
+    int chainCount = Math.min(distinct.size(), batchConfiguration.maxConcurrency());
+    var chains = new CompletableFuture<?>[chainCount];
+    for (int i = 0; i < chainCount; i++) {
+      chains[i] = checkPending(pending, bearerToken, results);
+    }
+    return CompletableFuture.allOf(chains)
+        .orTimeout(batchConfiguration.deadlineMillis(), TimeUnit.MILLISECONDS)
+        .handle(
+            (ignored, error) -> {
+              if (error == null) {
+                return ordered(distinct, results);
+              }
+              // stop the remaining checks once the batch has failed or timed out
+              pending.clear();
+              if (unwrap(error) instanceof TimeoutException) {
+                throw new SamBatchTimeoutException(
+                    "Sam permission checks did not finish within "
+                        + batchConfiguration.deadlineMillis()
+                        + "ms");
+              }
+              throw error instanceof CompletionException completion
+                  ? completion
+                  : new CompletionException(error);
+            });
+  }
+
+  /** Checks pending resource actions one after another until none are left. */
+  private CompletableFuture<Void> checkPending(
+      Queue<ResourceAction> pending,
+      BearerToken bearerToken,
+      Map<ResourceAction, Boolean> results) {
+    ResourceAction check = pending.poll();
+    if (check == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return getActionAsync(check.resourceType(), check.resourceId(), check.action(), bearerToken)
+        .thenCompose(
+            allowed -> {
+              results.put(check, allowed);
+              return checkPending(pending, bearerToken, results);
+            });
+  }
+
+  private LinkedHashSet<ResourceAction> distinct(Collection<ResourceAction> resourceActions) {
+    var distinct = new LinkedHashSet<>(resourceActions);
+    if (distinct.size() > batchConfiguration.maxBatchSize()) {
+      throw new BadRequestException(
+          "At most " + batchConfiguration.maxBatchSize() + " permissions may be checked at once");
+    }
+    return distinct;
+  }
+
+  private static Map<ResourceAction, Boolean> ordered(
+      Collection<ResourceAction> distinct, Map<ResourceAction, Boolean> results) {
+    Map<ResourceAction, Boolean> ordered = new LinkedHashMap<>();
+    distinct.forEach(check -> ordered.put(check, results.get(check)));
+    return ordered;
+  }
+
+  private void fanOut(
+      Collection<ResourceAction> checks,
+      BearerToken bearerToken,
+      Map<ResourceAction, Boolean> results) {
+    long deadline =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchConfiguration.deadlineMillis());
+    Queue<ResourceAction> pending = new ConcurrentLinkedQueue<>(checks);
+    Runnable worker =
+        () -> {
+          ResourceAction check;
+          while (!Thread.currentThread().isInterrupted() && (check = pending.poll()) != null) {
+            results.put(check, getAction(check, bearerToken));
+          }
+        };
+    int workerCount = Math.min(checks.size(), batchConfiguration.maxConcurrency());
+    List<Future<?>> workers = new ArrayList<>(workerCount);
+    try {
+      for (int i = 0; i < workerCount; i++) {
+        workers.add(batchExecutor.submit(worker));
+      }
+      for (Future<?> future : workers) {
+        future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      }
+    } catch (TimeoutException e) {
+      throw new SamBatchTimeoutException(
+          "Sam permission checks did not finish within "
+              + batchConfiguration.deadlineMillis()
+              + "ms",
+          checks.stream()
+              .filter(check -> !results.containsKey(check))
+              .map(check -> "Timed out: " + check)
+              .toList());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Sam permission check failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw SamExceptionFactory.create("Sam permission checks interrupted", e);
+    } finally {
+      // Stop the remaining checks once the batch has failed or timed out, without interrupting
+      // those in progress: a check may be loading a cached decision other callers are waiting on.
+      pending.clear();
+      workers.forEach(future -> future.cancel(false));
+    }
+  }
+
+  private boolean getAction(ResourceAction check, BearerToken bearerToken) {
+    return getAction(check.resourceType(), check.resourceId(), check.action(), bearerToken);
+  }
+
+  private boolean checkPermission(
+      String resourceType, String resourceId, String action, BearerToken bearerToken) {
     try {
+      // each attempt is guarded, so retries stop as soon as the circuit opens
       return SamRetry.retry(
           () ->
-              samClient
-                  .resourcesApi(bearerToken.getToken())
-                  .resourcePermissionV2(resourceType, resourceId, action));
+              samResilience.callHedged(
+                  () ->
+                      samClient.withAccessToken(
+                          bearerToken.getToken(),
+                          () ->
+                              samClient
+                                  .resourcesApi()
+                                  .resourcePermissionV2(resourceType, resourceId, action))));
     } catch (ApiException e) {
       throw SamExceptionFactory.create(e);
     } catch (InterruptedException e) {
@@ -38,6 +255,59 @@ public class SamService {
     }
   }
 
+  private CompletableFuture<Boolean> checkPermissionAsync(
+      String resourceType, String resourceId, String action, BearerToken bearerToken) {
+    Supplier<CompletableFuture<Boolean>> attempt =
+        () ->
+            samResilience.callAsync(
+                () ->
+                    samClient.executeAsync(
+                        bearerToken.getToken(),
+                        () ->
+                            samClient
+                                .resourcesApi()
+                                .resourcePermissionV2Call(resourceType, resourceId, action, null),
+                        Boolean.class));
+    return retryAsync(attempt, ASYNC_ATTEMPTS, ASYNC_RETRY_DELAY_MILLIS)
+        .handle(
+            (allowed, error) -> {
+              if (error == null) {
+                return allowed;
+              }
+              Throwable cause = unwrap(error);
+              if (cause instanceof ApiException e) {
+                throw SamExceptionFactory.create(e);
+              }
+              throw cause instanceof RuntimeException e
+                  ? e
+                  : new IllegalStateException("Sam permission check failed", cause);
+            });
+  }
+
+  /** Retries Sam failures, waiting twice as long before each attempt, without holding a thread. */
+  private static <T> CompletableFuture<T> retryAsync(
+      Supplier<CompletableFuture<T>> attempt, int attempts, long delayMillis) {
+    return attempt
+        .get()
+        .exceptionallyCompose(
+            error -> {
+              Throwable cause = unwrap(error);
+              if (attempts <= 1
+                  || !(cause instanceof ApiException e && SamResilience.isSamFailure(e))) {
+                return CompletableFuture.failedFuture(cause);
+              }
+              var delayed = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+              return CompletableFuture.runAsync(() -> {}, delayed)
+                  .thenCompose(ignored -> retryAsync(attempt, attempts - 1, delayMillis * 2));
+            });
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+
   public SystemStatusSystems status() {
     // No access token needed since this is an unauthenticated API.
     try {
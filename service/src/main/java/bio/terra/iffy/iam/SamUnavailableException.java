@@ -0,0 +1,12 @@
+package bio.terra.iffy.iam;
+
+import bio.terra.common.exception.ErrorReportException;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+
+/** Thrown without calling Sam when Sam is known to be failing or too many calls are in flight. */
+public class SamUnavailableException extends ErrorReportException {
+  public SamUnavailableException(String message) {
+    super(message, List.of(), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
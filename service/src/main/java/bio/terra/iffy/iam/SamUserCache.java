@@ -0,0 +1,68 @@
+package bio.terra.iffy.iam;
+
+import bio.terra.common.iam.BearerToken;
+import bio.terra.common.iam.BearerTokenFactory;
+import bio.terra.common.iam.SamUser;
+import bio.terra.common.iam.SamUserFactory;
+import bio.terra.iffy.config.SamConfiguration;
+import bio.terra.iffy.config.SamUserCacheConfiguration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the Sam user each bearer token resolves to, so that a caller is validated by Sam once per
+ * TTL rather than on every request. Entries are keyed by a hash of the token and hold only the
+ * user's email and subject id; the token itself is never cached. Concurrent requests with the same
+ * uncached token share one Sam call. Failed lookups, such as for a disabled user, are not cached.
+ */
+@Component
+public class SamUserCache {
+  private record Identity(String email, String subjectId) {}
+
+  private final SamUserCacheConfiguration configuration;
+  private final SamUserFactory samUserFactory;
+  private final BearerTokenFactory bearerTokenFactory;
+  private final SamConfiguration samConfiguration;
+  private final Cache<String, Identity> identities;
+
+  public SamUserCache(
+      SamUserCacheConfiguration configuration,
+      SamUserFactory samUserFactory,
+      BearerTokenFactory bearerTokenFactory,
+      SamConfiguration samConfiguration,
+      MeterRegistry meterRegistry) {
+    this.configuration = configuration;
+    this.samUserFactory = samUserFactory;
+    this.bearerTokenFactory = bearerTokenFactory;
+    this.samConfiguration = samConfiguration;
+    this.identities =
+        Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(configuration.ttlSeconds()))
+            .maximumSize(configuration.maximumSize())
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, identities, "samUserIdentity");
+  }
+
+  /** Returns the enabled Sam user making the request, asking Sam only on a cache miss. */
+  public SamUser from(HttpServletRequest request) {
+    if (!configuration.enabled()) {
+      return samUserFactory.from(request, samConfiguration.basePath());
+    }
+    BearerToken bearerToken = bearerTokenFactory.from(request);
+    Identity identity =
+        identities.get(
+            TokenHashes.sha256(bearerToken.getToken()),
+            tokenHash -> {
+              // this automatically checks if the user is enabled
+              SamUser samUser = samUserFactory.from(request, samConfiguration.basePath());
+              return new Identity(samUser.getEmail(), samUser.getSubjectId());
+            });
+    return new SamUser(identity.email(), identity.subjectId(), bearerToken);
+  }
+}
@@ -0,0 +1,22 @@
+package bio.terra.iffy.iam;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/** Derives cache keys from bearer tokens so that raw tokens are never held in memory by caches. */
+final class TokenHashes {
+  private TokenHashes() {}
+
+  static String sha256(String token) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      // every JRE is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
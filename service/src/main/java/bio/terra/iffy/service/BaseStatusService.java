@@ -1,27 +1,53 @@
 package bio.terra.iffy.service;
 
 import bio.terra.iffy.config.StatusCheckConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
 import bio.terra.iffy.model.SystemStatus;
 import bio.terra.iffy.model.SystemStatusSystems;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class BaseStatusService {
   private static final Logger logger = LoggerFactory.getLogger(BaseStatusService.class);
 
+  static final String CHECK_METRIC = "iffy.status.check";
+  static final String SYSTEM_TAG = "system";
+  static final String OUTCOME_TAG = "outcome";
+
+  /** A status together with its serialized response, so /status never re-serializes. */
+  public record SerializedStatus(SystemStatus status, SerializedResponse response) {}
+
   /** cached status */
-  private final AtomicReference<SystemStatus> cachedStatus;
+  private final AtomicReference<SerializedStatus> cachedStatus;
+
+  /** serializes statuses once per refresh */
+  private final ObjectMapper objectMapper;
+
+  /** the status reported before the first check and when the status is stale */
+  private final SerializedStatus notOkStatus;
+
+  /** the status reported when status checking is disabled */
+  private final SerializedStatus okStatus;
 
   /** configuration parameters */
   private final StatusCheckConfiguration configuration;
@@ -32,15 +58,30 @@ public class BaseStatusService {
   /** scheduler */
   private final ScheduledExecutorService scheduler;
 
+  /** runs the status checks concurrently; unbounded so a hung check never delays the others */
+  private final ExecutorService checkExecutor;
+
+  /** records how long each check takes */
+  private final MeterRegistry meterRegistry;
+
   /** last time cache was updated */
   private final AtomicReference<Instant> lastStatusUpdate;
 
-  public BaseStatusService(StatusCheckConfiguration configuration) {
+  public BaseStatusService(
+      StatusCheckConfiguration configuration,
+      MeterRegistry meterRegistry,
+      ExecutorFactory executorFactory,
+      ObjectMapper objectMapper) {
     this.configuration = configuration;
+    this.meterRegistry = meterRegistry;
+    this.objectMapper = objectMapper;
     statusCheckMap = new ConcurrentHashMap<>();
-    cachedStatus = new AtomicReference<>(new SystemStatus().ok(false));
+    notOkStatus = serialize(new SystemStatus().ok(false));
+    okStatus = serialize(new SystemStatus().ok(true));
+    cachedStatus = new AtomicReference<>(notOkStatus);
     lastStatusUpdate = new AtomicReference<>(Instant.now());
-    scheduler = Executors.newScheduledThreadPool(1);
+    scheduler = executorFactory.newScheduler("status-scheduler");
+    checkExecutor = executorFactory.newUnboundedExecutor("status-check");
   }
 
   @PostConstruct
@@ -54,30 +95,113 @@ public class BaseStatusService {
     }
   }
 
+  @PreDestroy
+  private void stopStatusChecking() {
+    scheduler.shutdownNow();
+    checkExecutor.shutdownNow();
+  }
+
   void registerStatusCheck(String name, Supplier<SystemStatusSystems> checkFn) {
     statusCheckMap.put(name, checkFn);
   }
 
+  /**
+   * Runs every registered check concurrently. A check that fails or does not finish within its
+   * timeout makes only its own subsystem not ok, so the refresh takes as long as the slowest
+   * timeout rather than the sum of all checks.
+   */
   @VisibleForTesting
   void checkStatus() {
     if (configuration.enabled()) {
       var newStatus = new SystemStatus();
       try {
-        var systems =
-            statusCheckMap.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get()));
+        long started = System.nanoTime();
+        Map<String, RunningCheck> running = new HashMap<>();
+        statusCheckMap.forEach(
+            (name, checkFn) -> {
+              var recorded = new AtomicBoolean();
+              running.put(
+                  name,
+                  new RunningCheck(
+                      checkExecutor.submit(() -> timed(name, checkFn, recorded)), recorded));
+            });
+        Map<String, SystemStatusSystems> systems = new HashMap<>();
+        running.forEach((name, check) -> systems.put(name, await(name, check, started)));
         newStatus.setOk(systems.values().stream().allMatch(SystemStatusSystems::isOk));
         newStatus.setSystems(systems);
       } catch (Exception e) {
         logger.warn("Status check exception", e);
         newStatus.setOk(false);
       }
-      cachedStatus.set(newStatus);
+      cachedStatus.set(serialize(newStatus));
       lastStatusUpdate.set(Instant.now());
     }
   }
 
+  /**
+   * A submitted check. Its outcome is recorded once, by whichever of the check and its waiter
+   * finishes with it first, so a check abandoned on timeout is not also recorded when it ends.
+   */
+  private record RunningCheck(Future<SystemStatusSystems> future, AtomicBoolean recorded) {}
+
+  private SystemStatusSystems timed(
+      String name, Supplier<SystemStatusSystems> checkFn, AtomicBoolean recorded) {
+    long started = System.nanoTime();
+    String outcome = "error";
+    try {
+      SystemStatusSystems result = checkFn.get();
+      outcome = Boolean.TRUE.equals(result.isOk()) ? "ok" : "not_ok";
+      return result;
+    } finally {
+      recordCheck(name, outcome, started, recorded);
+    }
+  }
+
+  private SystemStatusSystems await(String name, RunningCheck check, long started) {
+    Future<SystemStatusSystems> future = check.future();
+    long deadline = started + TimeUnit.SECONDS.toNanos(configuration.checkTimeoutSeconds(name));
+    try {
+      return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      recordCheck(name, "timeout", started, check.recorded());
+      future.cancel(true);
+      return notOk(name + " status check timed out", null);
+    } catch (ExecutionException e) {
+      return notOk(name + " status check failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return notOk(name + " status check interrupted", e);
+    }
+  }
+
+  private static SystemStatusSystems notOk(String message, Throwable cause) {
+    logger.warn(message, cause);
+    return new SystemStatusSystems().ok(false).messages(List.of(message));
+  }
+
+  private void recordCheck(String name, String outcome, long started, AtomicBoolean recorded) {
+    if (!recorded.compareAndSet(false, true)) {
+      return;
+    }
+    Timer.builder(CHECK_METRIC)
+        .description("Time taken by each subsystem status check")
+        .tag(SYSTEM_TAG, name)
+        .tag(OUTCOME_TAG, outcome)
+        .register(meterRegistry)
+        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+  }
+
+  private SerializedStatus serialize(SystemStatus status) {
+    return new SerializedStatus(status, SerializedResponse.of(objectMapper, status));
+  }
+
   public SystemStatus getCurrentStatus() {
+    return getCurrentSerializedStatus().status();
+  }
+
+  /** Returns the current status along with its serialized response. */
+  public SerializedStatus getCurrentSerializedStatus() {
     if (configuration.enabled()) {
       // If staleness time (last update + stale threshold) is before the current time, then
       // we are officially not OK.
@@ -86,10 +210,10 @@ public class BaseStatusService {
           .plusSeconds(configuration.stalenessThresholdSeconds())
           .isBefore(Instant.now())) {
         logger.warn("Status has not been updated since {}", lastStatusUpdate);
-        cachedStatus.set(new SystemStatus().ok(false));
+        cachedStatus.set(notOkStatus);
       }
       return cachedStatus.get();
     }
-    return new SystemStatus().ok(true);
+    return okStatus;
   }
 }
@@ -0,0 +1,219 @@
+package bio.terra.iffy.service;
+
+import bio.terra.common.exception.BadRequestException;
+import bio.terra.iffy.config.CounterIngestionConfiguration;
+import bio.terra.iffy.model.CounterIncrement;
+import bio.terra.iffy.model.CounterIncrementsResult;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Service;
+
+/**
+ * Adds counts reported by clients in batches to counters named client.&lt;name&gt;. Each counter is
+ * a {@link LongAdder}, which spreads concurrent additions over separate cells rather than having
+ * every request contend for one value, exported as a {@link FunctionCounter}. Counters are cached
+ * by name and tag set, so the registry is only involved the first time a counter is seen, and a
+ * batch adds to each counter once however many of its entries name it.
+ *
+ * <p>Since clients choose names, tags and values, the registry is kept bounded: entries with too
+ * many tags, or that would create more than maxCounters counters, are rejected, and values of each
+ * tag beyond the first maxTagValues are counted as "other". All counters with the same name must
+ * have the same tag keys. Tag values are only tracked for names that have a counter, so rejected
+ * entries take up no memory either.
+ */
+@Service
+public class CounterIngestionService {
+  static final String NAME_PREFIX = "client.";
+  static final String OTHER = "other";
+
+  private static final Pattern NAME = Pattern.compile("[a-z][a-z0-9_]*(\\.[a-z][a-z0-9_]*)*");
+  /** longest name, tag key or tag value accepted */
+  private static final int MAX_NAME_LENGTH = 100;
+
+  private record CounterKey(String name, Tags tags) {}
+
+  private record TagKey(String name, String tag) {}
+
+  /** what one batch adds to one counter */
+  private static final class Sum {
+    long delta;
+    int entries;
+  }
+
+  /** the counter to add to, and whether any tag values were counted as "other" to fit in it */
+  private record Admission(LongAdder counter, boolean bucketed) {}
+
+  private final CounterIngestionConfiguration configuration;
+  private final MeterRegistry meterRegistry;
+  private final Map<CounterKey, LongAdder> counters = new ConcurrentHashMap<>();
+  /** admitted values of each tag of each registered name; only added to while holding counters */
+  private final Map<TagKey, Set<String>> tagValues = new ConcurrentHashMap<>();
+  /** tag keys of the first counter registered with each name; guarded by counters */
+  private final Map<String, List<String>> tagKeysByName = new HashMap<>();
+
+  public CounterIngestionService(
+      CounterIngestionConfiguration configuration, MeterRegistry meterRegistry) {
+    this.configuration = configuration;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Adds each entry's delta to its counter.
+   *
+   * @throws BadRequestException if there are more than maxIncrements entries
+   */
+  public CounterIncrementsResult increment(List<CounterIncrement> increments) {
+    if (increments.size() > configuration.maxIncrements()) {
+      throw new BadRequestException(
+          "At most %d counter increments may be sent at once, not %d"
+              .formatted(configuration.maxIncrements(), increments.size()));
+    }
+    int rejected = 0;
+    // sum the batch first, so each counter is added to once
+    Map<CounterKey, Sum> sums = new LinkedHashMap<>();
+    for (CounterIncrement increment : increments) {
+      long delta = increment.getDelta() == null ? 1 : increment.getDelta();
+      Map<String, String> tags = increment.getTags() == null ? Map.of() : increment.getTags();
+      if (delta < 0 || !isValidName(increment.getName()) || !areValidTags(tags)) {
+        rejected++;
+        continue;
+      }
+      var key = new CounterKey(increment.getName(), Tags.of(toTags(tags)));
+      Sum sum = sums.computeIfAbsent(key, k -> new Sum());
+      sum.delta += delta;
+      sum.entries++;
+    }
+    int bucketed = 0;
+    for (Map.Entry<CounterKey, Sum> entry : sums.entrySet()) {
+      Admission admission = admit(entry.getKey());
+      Sum sum = entry.getValue();
+      if (admission == null) {
+        rejected += sum.entries;
+      } else {
+        admission.counter().add(sum.delta);
+        bucketed += admission.bucketed() ? sum.entries : 0;
+      }
+    }
+    return new CounterIncrementsResult()
+        .accepted(increments.size() - rejected)
+        .rejected(rejected)
+        .bucketed(bucketed);
+  }
+
+  private boolean areValidTags(Map<String, String> tags) {
+    if (tags.size() > configuration.maxTagsPerCounter()) {
+      return false;
+    }
+    for (Map.Entry<String, String> tag : tags.entrySet()) {
+      if (!isValidName(tag.getKey())
+          || tag.getValue() == null
+          || tag.getValue().length() > MAX_NAME_LENGTH) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<Tag> toTags(Map<String, String> tags) {
+    List<Tag> list = new ArrayList<>(tags.size());
+    tags.forEach((key, value) -> list.add(Tag.of(key, value)));
+    return list;
+  }
+
+  private static boolean isValidName(String name) {
+    return name != null && name.length() <= MAX_NAME_LENGTH && NAME.matcher(name).matches();
+  }
+
+  /**
+   * Finds the counter for the given name and tag values, counting tag values beyond the first
+   * maxTagValues of each tag as "other", and registers it if this is its first count.
+   *
+   * @return the counter; or null if there are already maxCounters counters, or if counters of this
+   *     name have different tag keys, which Prometheus does not allow
+   */
+  private Admission admit(CounterKey key) {
+    // most entries name a counter that exists, and need no lock
+    Admission existing = findExisting(key);
+    if (existing != null) {
+      return existing;
+    }
+    synchronized (counters) {
+      List<String> keys = key.tags().stream().map(Tag::getKey).toList();
+      List<String> registeredKeys = tagKeysByName.get(key.name());
+      if (registeredKeys == null
+          ? counters.size() >= configuration.maxCounters()
+          : !registeredKeys.equals(keys)) {
+        return null;
+      }
+      List<Tag> bounded = new ArrayList<>(keys.size());
+      boolean bucketed = false;
+      for (Tag tag : key.tags()) {
+        Set<String> values =
+            tagValues.computeIfAbsent(
+                new TagKey(key.name(), tag.getKey()), k -> ConcurrentHashMap.newKeySet());
+        if (values.size() < configuration.maxTagValues()) {
+          values.add(tag.getValue());
+        }
+        boolean admitted = values.contains(tag.getValue());
+        bucketed |= !admitted;
+        bounded.add(admitted ? tag : Tag.of(tag.getKey(), OTHER));
+      }
+      var boundedKey = new CounterKey(key.name(), Tags.of(bounded));
+      LongAdder counter = counters.get(boundedKey);
+      if (counter == null) {
+        if (counters.size() >= configuration.maxCounters()) {
+          return null;
+        }
+        counter = new LongAdder();
+        FunctionCounter.builder(NAME_PREFIX + key.name(), counter, LongAdder::sum)
+            .description("Counted by clients through the counter ingestion API")
+            .tags(boundedKey.tags())
+            .register(meterRegistry);
+        counters.put(boundedKey, counter);
+        tagKeysByName.putIfAbsent(key.name(), keys);
+      }
+      return new Admission(counter, bucketed);
+    }
+  }
+
+  /**
+   * @return the counter, if it exists and no tag values need to be admitted first; otherwise null
+   */
+  private Admission findExisting(CounterKey key) {
+    List<Tag> bounded = new ArrayList<>();
+    boolean bucketed = false;
+    for (Tag tag : key.tags()) {
+      Set<String> values = tagValues.get(new TagKey(key.name(), tag.getKey()));
+      if (values == null) {
+        return null;
+      }
+      if (values.contains(tag.getValue())) {
+        bounded.add(tag);
+      } else if (values.size() >= configuration.maxTagValues()) {
+        bucketed = true;
+        bounded.add(Tag.of(tag.getKey(), OTHER));
+      } else {
+        return null;
+      }
+    }
+    LongAdder counter = counters.get(new CounterKey(key.name(), Tags.of(bounded)));
+    return counter == null ? null : new Admission(counter, bucketed);
+  }
+
+  @VisibleForTesting
+  int trackedTags() {
+    return tagValues.size();
+  }
+}
@@ -0,0 +1,370 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.config.FlagStreamConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.FlagdParser;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Fans flag changes out to server-sent event subscribers. A new subscriber receives the full flag
+ * snapshot, then one delta per published version. Event ids have the form "epoch:version"; a
+ * client reconnecting with a Last-Event-ID from this process is sent only the deltas it missed,
+ * while an id from another process (or one too old to replay) gets a fresh snapshot.
+ *
+ * <p>Flags are sent as {@link FlagdParser#toDocument} writes them, with shared evaluators inlined
+ * and segments referenced by name, and events carry the segments that were added or changed, so a
+ * change to only an evaluator or a segment is visible to subscribers.
+ *
+ * <p>Subscribers hold no servlet thread: emitters are asynchronous. Subscriber bookkeeping and
+ * replay run on a single stream thread, which keeps events in version order. Each subscriber has
+ * its own bounded queue of events, and a fixed pool of senderThreads threads takes turns sending
+ * them, a few events per subscriber at a time. A client that stops reading holds a sender thread
+ * until its write fails, but meanwhile its queue fills up: once it is subscriberQueueSize events
+ * behind it is disconnected, and resumes from its Last-Event-ID when it reconnects.
+ */
+@Service
+public class FlagChangeBroadcaster {
+  private static final Logger logger = LoggerFactory.getLogger(FlagChangeBroadcaster.class);
+
+  static final String SNAPSHOT_EVENT = "snapshot";
+  static final String DELTA_EVENT = "delta";
+
+  /** how many events a sender writes to one subscriber before moving on to the next */
+  private static final int SENDS_PER_TURN = 8;
+
+  /** The full set of flags, in flagd definition format, and every segment's members. */
+  public record SnapshotEvent(
+      long version, Map<String, Object> flags, Map<String, List<String>> segments) {}
+
+  /**
+   * Flags added or changed since the previous version, and flags removed; likewise for segments.
+   */
+  public record DeltaEvent(
+      long version,
+      Map<String, Object> changed,
+      List<String> removed,
+      Map<String, List<String>> changedSegments,
+      List<String> removedSegments) {}
+
+  /** the events a subscriber is sent, in the order they are sent */
+  private sealed interface Outgoing {}
+
+  private record DataEvent(long version, String name, Object data) implements Outgoing {}
+
+  private record Heartbeat() implements Outgoing {}
+
+  /** distinguishes this process's versions from those of another replica */
+  private final String epoch = UUID.randomUUID().toString();
+
+  private final FlagStreamConfiguration configuration;
+  private final FlagStore flagStore;
+  private final ScheduledExecutorService streamThread;
+  private final ExecutorService senders;
+
+  // The fields below are only accessed from the stream thread.
+  private final List<Subscriber> subscribers = new ArrayList<>();
+  private final Deque<DeltaEvent> recentDeltas = new ArrayDeque<>();
+  private FlagSnapshot broadcastSnapshot = FlagSnapshot.EMPTY;
+
+  public FlagChangeBroadcaster(
+      FlagStreamConfiguration configuration,
+      FlagStore flagStore,
+      ExecutorFactory executorFactory) {
+    this.configuration = configuration;
+    this.flagStore = flagStore;
+    this.streamThread = executorFactory.newScheduler("flag-stream");
+    this.senders =
+        executorFactory.newBlockingExecutor("flag-stream-sender", configuration.senderThreads());
+  }
+
+  @PostConstruct
+  private void start() {
+    onStreamThread(() -> advanceTo(flagStore.current()));
+    if (configuration.heartbeatIntervalSeconds() > 0) {
+      streamThread.scheduleWithFixedDelay(
+          this::sendHeartbeat,
+          configuration.heartbeatIntervalSeconds(),
+          configuration.heartbeatIntervalSeconds(),
+          TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  private void stop() {
+    streamThread.shutdownNow();
+    senders.shutdownNow();
+  }
+
+  public SseEmitter subscribe(String lastEventId) {
+    var emitter =
+        new SseEmitter(TimeUnit.MINUTES.toMillis(configuration.connectionTimeoutMinutes()));
+    var subscriber = new Subscriber(emitter);
+    emitter.onCompletion(() -> onStreamThread(() -> subscribers.remove(subscriber)));
+    emitter.onTimeout(emitter::complete);
+    onStreamThread(
+        () -> {
+          if (subscriber.offer(eventsSince(lastEventId))) {
+            subscribers.add(subscriber);
+          }
+        });
+    return emitter;
+  }
+
+  @EventListener
+  public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+    onStreamThread(
+        () -> {
+          DeltaEvent delta = advanceTo(event.snapshot());
+          if (delta != null) {
+            var events = List.<Object>of(delta);
+            subscribers.removeIf(subscriber -> !subscriber.offer(events));
+          }
+        });
+  }
+
+  /**
+   * Moves the broadcast state to the given snapshot, remembering the delta for replay.
+   *
+   * @return the delta, or null if the snapshot is not newer than the last one broadcast
+   */
+  @VisibleForTesting
+  DeltaEvent advanceTo(FlagSnapshot snapshot) {
+    if (snapshot.version() <= broadcastSnapshot.version()) {
+      return null;
+    }
+    DeltaEvent delta = delta(broadcastSnapshot, snapshot);
+    broadcastSnapshot = snapshot;
+    recentDeltas.addLast(delta);
+    while (recentDeltas.size() > configuration.replayBufferSize()) {
+      recentDeltas.removeFirst();
+    }
+    return delta;
+  }
+
+  /** Returns the events a subscriber resuming after the given event id needs. */
+  @VisibleForTesting
+  List<Object> eventsSince(String lastEventId) {
+    long lastVersion = parseVersion(lastEventId);
+    if (lastVersion == broadcastSnapshot.version()) {
+      return List.of();
+    }
+    if (lastVersion > 0
+        && !recentDeltas.isEmpty()
+        && recentDeltas.getFirst().version() <= lastVersion + 1
+        && lastVersion < broadcastSnapshot.version()) {
+      return recentDeltas.stream()
+          .filter(delta -> delta.version() > lastVersion)
+          .map(Object.class::cast)
+          .toList();
+    }
+    Map<String, Object> flags = new LinkedHashMap<>();
+    for (FlagDefinition flag : broadcastSnapshot.flags()) {
+      flags.put(flag.key(), FlagdParser.toDefinition(flag));
+    }
+    Map<String, List<String>> segments = new LinkedHashMap<>();
+    broadcastSnapshot.segments().forEach((name, segment) -> segments.put(name, segment.members()));
+    return List.of(new SnapshotEvent(broadcastSnapshot.version(), flags, segments));
+  }
+
+  /**
+   * Compares two snapshots. Flags are compared with their evaluators and segments resolved, so a
+   * flag whose shared evaluator or segment changed counts as changed.
+   */
+  @VisibleForTesting
+  static DeltaEvent delta(FlagSnapshot previous, FlagSnapshot current) {
+    Map<String, Object> changed = new LinkedHashMap<>();
+    for (FlagDefinition flag : current.flags()) {
+      if (!flag.equals(previous.get(flag.key()))) {
+        changed.put(flag.key(), FlagdParser.toDefinition(flag));
+      }
+    }
+    List<String> removed =
+        previous.flags().stream()
+            .map(FlagDefinition::key)
+            .filter(key -> current.get(key) == null)
+            .toList();
+    Map<String, List<String>> changedSegments = new LinkedHashMap<>();
+    current
+        .segments()
+        .forEach(
+            (name, segment) -> {
+              if (!segment.equals(previous.segments().get(name))) {
+                changedSegments.put(name, segment.members());
+              }
+            });
+    List<String> removedSegments =
+        previous.segments().keySet().stream()
+            .filter(name -> !current.segments().containsKey(name))
+            .toList();
+    return new DeltaEvent(current.version(), changed, removed, changedSegments, removedSegments);
+  }
+
+  @VisibleForTesting
+  String eventId(long version) {
+    return epoch + ":" + version;
+  }
+
+  /** Returns -1 unless the id was issued by this process. */
+  private long parseVersion(String lastEventId) {
+    if (lastEventId == null || !lastEventId.startsWith(epoch + ":")) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(lastEventId.substring(epoch.length() + 1));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private void sendHeartbeat() {
+    subscribers.removeIf(subscriber -> !subscriber.offerHeartbeat());
+  }
+
+  /**
+   * One subscriber's queue of events waiting to be sent. Offers come from the stream thread;
+   * while there are events, one sender task at a time takes them off the queue and sends them,
+   * handing the thread on after SENDS_PER_TURN of them.
+   */
+  private final class Subscriber {
+    private final SseEmitter emitter;
+    // guarded by this
+    private final Deque<Outgoing> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean closed;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    /**
+     * @return false if the subscriber has gone away, or has fallen too far behind and been closed
+     */
+    boolean offer(List<Object> events) {
+      List<Outgoing> outgoing = new ArrayList<>(events.size());
+      for (Object event : events) {
+        outgoing.add(
+            event instanceof SnapshotEvent snapshot
+                ? new DataEvent(snapshot.version(), SNAPSHOT_EVENT, snapshot)
+                : new DataEvent(((DeltaEvent) event).version(), DELTA_EVENT, event));
+      }
+      return enqueue(outgoing);
+    }
+
+    /** Queues a keep-alive comment, unless events are already waiting to be sent. */
+    boolean offerHeartbeat() {
+      synchronized (this) {
+        if (!queue.isEmpty()) {
+          return !closed;
+        }
+      }
+      return enqueue(List.of(new Heartbeat()));
+    }
+
+    private boolean enqueue(List<Outgoing> outgoing) {
+      boolean fallenBehind;
+      synchronized (this) {
+        if (closed) {
+          return false;
+        }
+        // an empty queue takes any batch, such as a long replay to a resuming subscriber
+        fallenBehind =
+            !queue.isEmpty()
+                && queue.size() + outgoing.size() > configuration.subscriberQueueSize();
+        if (fallenBehind) {
+          closed = true;
+          queue.clear();
+        } else {
+          queue.addAll(outgoing);
+          if (sending) {
+            return true;
+          }
+          sending = true;
+        }
+      }
+      if (fallenBehind) {
+        logger.debug("Dropping flag stream subscriber that fell behind");
+        emitter.complete();
+        return false;
+      }
+      scheduleDrain();
+      return true;
+    }
+
+    private void scheduleDrain() {
+      try {
+        senders.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // shutting down; subscribers are being closed anyway
+      }
+    }
+
+    private void drain() {
+      for (int sent = 0; ; sent++) {
+        Outgoing next;
+        synchronized (this) {
+          next = queue.peekFirst();
+          if (next == null || closed) {
+            sending = false;
+            return;
+          }
+          if (sent == SENDS_PER_TURN) {
+            // go to the back of the line; sending stays set, so no second sender starts meanwhile
+            break;
+          }
+          queue.removeFirst();
+        }
+        try {
+          if (next instanceof DataEvent event) {
+            emitter.send(
+                SseEmitter.event()
+                    .id(eventId(event.version()))
+                    .name(event.name())
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+          } else {
+            emitter.send(SseEmitter.event().comment("keep-alive"));
+          }
+        } catch (IOException | IllegalStateException e) {
+          logger.debug("Dropping flag stream subscriber", e);
+          synchronized (this) {
+            closed = true;
+            queue.clear();
+            sending = false;
+          }
+          emitter.completeWithError(e);
+          return;
+        }
+      }
+      scheduleDrain();
+    }
+  }
+
+  private void onStreamThread(Runnable task) {
+    try {
+      streamThread.execute(task);
+    } catch (RejectedExecutionException e) {
+      // shutting down; subscribers are being closed anyway
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.storage.FlagChangeFeed;
+import bio.terra.iffy.storage.FlagChangeFeed.FlagChange;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads flag config versions that other replicas announce on the {@link FlagChangeFeed}, so that a
+ * change reaches every replica as soon as one has stored it rather than on each one's next poll.
+ * Only flags that changed are compiled again. The time from a version being stored to this replica
+ * serving it is recorded as iffy.flags.propagation.lag.
+ */
+@Component
+public class FlagChangeSubscriber {
+  static final String LAG_METRIC = "iffy.flags.propagation.lag";
+
+  private final FlagStore flagStore;
+  private final FlagChangeFeed feed;
+  private final Clock clock;
+  private final Timer lag;
+  private FlagChangeFeed.Subscription subscription;
+
+  @Autowired
+  public FlagChangeSubscriber(
+      FlagStore flagStore, Optional<FlagChangeFeed> feed, MeterRegistry meterRegistry) {
+    this(flagStore, feed, meterRegistry, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  FlagChangeSubscriber(
+      FlagStore flagStore,
+      Optional<FlagChangeFeed> feed,
+      MeterRegistry meterRegistry,
+      Clock clock) {
+    this.flagStore = flagStore;
+    this.feed = feed.orElse(null);
+    this.clock = clock;
+    this.lag =
+        Timer.builder(LAG_METRIC)
+            .description("Time from a flag config version being stored to this replica serving it")
+            .register(meterRegistry);
+  }
+
+  @PostConstruct
+  @VisibleForTesting
+  void start() {
+    if (feed != null) {
+      subscription = feed.subscribe(this::onChange);
+    }
+  }
+
+  @PreDestroy
+  private void stop() {
+    if (subscription != null) {
+      subscription.close();
+    }
+  }
+
+  @VisibleForTesting
+  CompletableFuture<Boolean> onChange(FlagChange change) {
+    return flagStore
+        .loadStored(change.version())
+        .whenComplete(
+            (published, error) -> {
+              if (Boolean.TRUE.equals(published)) {
+                Duration elapsed = Duration.between(change.storedAt(), clock.instant());
+                lag.record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+              }
+            });
+  }
+}
@@ -0,0 +1,56 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.FlagdParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+
+/**
+ * Serves the current flags as one flagd document, for clients that evaluate flags in their own
+ * process. The document and its etag are built once per snapshot. The etag is a hash of the
+ * document's content, so replicas serving the same flags agree on it and a client polling through
+ * a load balancer is not sent the same flags again.
+ */
+@Service
+public class FlagDocumentService {
+
+  /** A document and the etag that identifies its content. */
+  public record FlagDocument(String etag, Map<String, Object> document) {}
+
+  private record Built(long version, FlagDocument document) {}
+
+  private final FlagStore flagStore;
+  private final ObjectMapper objectMapper;
+  private volatile Built built;
+
+  public FlagDocumentService(FlagStore flagStore, ObjectMapper objectMapper) {
+    this.flagStore = flagStore;
+    this.objectMapper = objectMapper;
+  }
+
+  public FlagDocument current() {
+    FlagSnapshot snapshot = flagStore.current();
+    Built current = built;
+    if (current == null || current.version() != snapshot.version()) {
+      // concurrent callers may build the same document twice, which is harmless
+      current = new Built(snapshot.version(), build(snapshot));
+      built = current;
+    }
+    return current.document();
+  }
+
+  private FlagDocument build(FlagSnapshot snapshot) {
+    Map<String, Object> document = FlagdParser.toDocument(snapshot);
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(document);
+      String etag = Hashing.sha256().hashBytes(json).toString().substring(0, 32);
+      return new FlagDocument(etag, document);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
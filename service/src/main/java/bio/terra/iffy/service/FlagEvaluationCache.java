@@ -0,0 +1,65 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.config.FlagEvaluationCacheConfiguration;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagEvaluator;
+import bio.terra.iffy.flags.ResolutionDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches flag evaluation results for callers that evaluate the same flag with the same context over
+ * and over. A result is keyed by the flag key, the version of the snapshot the flag came from, and
+ * the values of just the context variables the flag's targeting reads, so contexts that differ only
+ * in attributes the flag ignores share an entry. Publishing a snapshot changes the version, which
+ * leaves results of older versions unreachable until they are evicted; the cache is never cleared.
+ *
+ * <p>Flags without targeting are evaluated directly, since that is cheaper than a lookup, as are
+ * flags whose targeting reads the context in ways a key cannot capture, such as the current time.
+ */
+@Component
+public class FlagEvaluationCache {
+  static final String CACHE_NAME = "flagEvaluation";
+
+  /**
+   * @param reads the values of the flag's context reads, in {@link
+   *     bio.terra.iffy.flags.CompiledRule#contextReads()} order
+   */
+  private record ResultKey(String flagKey, long version, List<Object> reads) {}
+
+  private final FlagEvaluationCacheConfiguration configuration;
+  private final Cache<ResultKey, ResolutionDetails> results;
+
+  public FlagEvaluationCache(
+      FlagEvaluationCacheConfiguration configuration, MeterRegistry meterRegistry) {
+    this.configuration = configuration;
+    this.results =
+        Caffeine.newBuilder().maximumSize(configuration.maximumSize()).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, results, CACHE_NAME);
+  }
+
+  /**
+   * Evaluates the flag, or returns the result of an earlier evaluation with equivalent context.
+   *
+   * @param version the version of the snapshot the flag was read from
+   */
+  public ResolutionDetails evaluate(FlagDefinition flag, long version, FlagContext context) {
+    List<String> paths = flag.compiledTargeting().contextReads();
+    if (!configuration.enabled() || !flag.enabled() || !flag.hasTargeting() || paths == null) {
+      return FlagEvaluator.evaluate(flag, context);
+    }
+    Object[] reads = new Object[paths.size()];
+    for (int i = 0; i < reads.length; i++) {
+      reads[i] = context.resolve(paths.get(i), flag.key());
+    }
+    return results.get(
+        new ResultKey(flag.key(), version, Arrays.asList(reads)),
+        key -> FlagEvaluator.evaluate(flag, context));
+  }
+}
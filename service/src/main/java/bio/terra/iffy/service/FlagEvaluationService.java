@@ -0,0 +1,88 @@
+package bio.terra.iffy.service;
+
+import bio.terra.common.exception.NotFoundException;
+import bio.terra.iffy.exposure.ExposureLog;
+import bio.terra.iffy.flags.ErrorCode;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.ResolutionDetails;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+
+/**
+ * Evaluates flags in-process against the definitions held by the {@link FlagStore}, through the
+ * {@link FlagEvaluationCache}, and records each variant served in the {@link ExposureLog} and each
+ * evaluation's latency and outcome in {@link FlagMetrics}.
+ */
+@Service
+public class FlagEvaluationService {
+  private final FlagStore flagStore;
+  private final FlagEvaluationCache evaluationCache;
+  private final ExposureLog exposureLog;
+  private final FlagMetrics flagMetrics;
+
+  public FlagEvaluationService(
+      FlagStore flagStore,
+      FlagEvaluationCache evaluationCache,
+      ExposureLog exposureLog,
+      FlagMetrics flagMetrics) {
+    this.flagStore = flagStore;
+    this.evaluationCache = evaluationCache;
+    this.exposureLog = exposureLog;
+    this.flagMetrics = flagMetrics;
+  }
+
+  /**
+   * @throws NotFoundException if there is no flag with the given key
+   */
+  public ResolutionDetails evaluate(String flagKey, FlagContext context) {
+    FlagSnapshot snapshot = flagStore.current();
+    FlagDefinition flag = snapshot.get(flagKey);
+    if (flag == null) {
+      throw new NotFoundException("Flag not found: " + flagKey);
+    }
+    return resolve(flag, snapshot, context);
+  }
+
+  /**
+   * Evaluates several flags against one context. All flags are read from the same snapshot, so a
+   * concurrent reload cannot mix old and new definitions within one response. Unknown keys
+   * resolve to a FLAG_NOT_FOUND error rather than failing the whole batch.
+   *
+   * @param flagKeys the flags to evaluate, or null to evaluate every flag
+   * @return resolutions keyed by flag key, in request order
+   */
+  public Map<String, ResolutionDetails> evaluateAll(
+      Collection<String> flagKeys, FlagContext context) {
+    FlagSnapshot snapshot = flagStore.current();
+    Map<String, ResolutionDetails> resolutions = new LinkedHashMap<>();
+    if (flagKeys == null) {
+      for (FlagDefinition flag : snapshot.flags()) {
+        resolutions.put(flag.key(), resolve(flag, snapshot, context));
+      }
+      return resolutions;
+    }
+    for (String flagKey : flagKeys) {
+      FlagDefinition flag = snapshot.get(flagKey);
+      resolutions.put(
+          flagKey,
+          flag == null
+              ? ResolutionDetails.error(flagKey, ErrorCode.FLAG_NOT_FOUND, "Flag not found")
+              : resolve(flag, snapshot, context));
+    }
+    return resolutions;
+  }
+
+  private ResolutionDetails resolve(
+      FlagDefinition flag, FlagSnapshot snapshot, FlagContext context) {
+    FlagMetrics.FlagMeters meters = flagMetrics.forFlag(snapshot, flag.key());
+    long start = System.nanoTime();
+    ResolutionDetails resolution = evaluationCache.evaluate(flag, snapshot.version(), context);
+    meters.record(resolution, System.nanoTime() - start);
+    exposureLog.record(snapshot, context, resolution);
+    return resolution;
+  }
+}
@@ -0,0 +1,212 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.config.MetricsConfiguration;
+import bio.terra.iffy.flags.EvaluationReason;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.FlagdParser;
+import bio.terra.iffy.flags.ResolutionDetails;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the latency of each flag evaluation, and how many evaluations served each variant for
+ * each reason, tagged with the flag key. Meters are registered when a snapshot is published, so an
+ * evaluation only reads an immutable map of its flag's meters and never looks anything up in the
+ * registry. Only the first maxFlagKeys flags get meters of their own; any beyond that share the
+ * flag tag "__other__". Tag values Iffy makes up are reserved names, see {@link
+ * FlagdParser#isReserved}, so they never merge with a real flag's or variant's meters. Meters of
+ * flags that are removed are removed from the registry.
+ */
+@Component
+public class FlagMetrics {
+  static final String LATENCY_METRIC = "iffy.flags.evaluation.latency";
+  static final String EVALUATIONS_METRIC = "iffy.flags.evaluations";
+  static final String OTHER = "__other__";
+  static final String NO_VARIANT = "__none__";
+
+  private static final EvaluationReason[] REASONS = EvaluationReason.values();
+
+  private record Registered(long version, Map<String, FlagMeters> meters) {}
+
+  private final FlagStore flagStore;
+  private final MeterRegistry meterRegistry;
+  private final int maxFlagKeys;
+  private final FlagMeters overflow;
+  private volatile Registered registered = new Registered(-1, Map.of());
+
+  public FlagMetrics(
+      FlagStore flagStore, MetricsConfiguration configuration, MeterRegistry meterRegistry) {
+    this.flagStore = flagStore;
+    this.meterRegistry = meterRegistry;
+    this.maxFlagKeys = configuration.maxFlagKeys();
+    this.overflow = new FlagMeters(OTHER, new String[0]);
+  }
+
+  @PostConstruct
+  private void start() {
+    // flags may have been published before this listener was registered
+    register(flagStore.current());
+  }
+
+  @EventListener
+  public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+    register(event.snapshot());
+  }
+
+  /**
+   * Returns the meters for a flag in the given snapshot. Registers the snapshot's meters first in
+   * the rare case an evaluation reads it before it has been announced.
+   */
+  public FlagMeters forFlag(FlagSnapshot snapshot, String flagKey) {
+    Registered current = registered;
+    if (current.version() < snapshot.version()) {
+      current = register(snapshot);
+    }
+    FlagMeters meters = current.meters().get(flagKey);
+    return meters == null ? overflow : meters;
+  }
+
+  private synchronized Registered register(FlagSnapshot snapshot) {
+    Registered previous = registered;
+    if (snapshot.version() <= previous.version()) {
+      return previous;
+    }
+    Map<String, FlagMeters> meters = new HashMap<>();
+    // flags that already have meters keep them, so removing one flag frees a single slot
+    for (FlagDefinition flag : snapshot.flags()) {
+      FlagMeters existing = previous.meters().get(flag.key());
+      if (existing != null) {
+        meters.put(flag.key(), existing.withVariants(flag));
+      }
+    }
+    for (FlagDefinition flag : snapshot.flags()) {
+      if (meters.size() >= maxFlagKeys) {
+        break;
+      }
+      meters.computeIfAbsent(flag.key(), key -> new FlagMeters(key, variants(flag)));
+    }
+    for (Map.Entry<String, FlagMeters> entry : previous.meters().entrySet()) {
+      if (!meters.containsKey(entry.getKey())) {
+        entry.getValue().remove();
+      }
+    }
+    var current = new Registered(snapshot.version(), Map.copyOf(meters));
+    registered = current;
+    return current;
+  }
+
+  private static String[] variants(FlagDefinition flag) {
+    String[] variants = flag.variants().keySet().toArray(String[]::new);
+    Arrays.sort(variants);
+    return variants;
+  }
+
+  /**
+   * The meters of one flag. Its latency timer is registered up front; a counter for each variant
+   * and reason is registered the first time an evaluation reports that combination, and is then
+   * held in an array slot, so flags do not export a series for every combination that never occurs.
+   */
+  public final class FlagMeters {
+    private final String flagKey;
+    private final String[] variants;
+    private final Timer latency;
+
+    /**
+     * counters indexed by variant, then reason; the last two variant rows are for evaluations that
+     * served no variant and for variants not in the definition
+     */
+    private final AtomicReferenceArray<Counter> counts;
+
+    private FlagMeters(String flagKey, String[] variants) {
+      this.flagKey = flagKey;
+      this.variants = variants;
+      this.counts = new AtomicReferenceArray<>((variants.length + 2) * REASONS.length);
+      this.latency =
+          Timer.builder(LATENCY_METRIC)
+              .description("Time to evaluate a flag, including the result cache")
+              .tag("flag", flagKey)
+              .publishPercentileHistogram()
+              .minimumExpectedValue(Duration.ofNanos(100))
+              .maximumExpectedValue(Duration.ofMillis(10))
+              .register(meterRegistry);
+    }
+
+    /**
+     * Returns these meters if the flag's variants are unchanged. Otherwise the variant counters
+     * start over, so that counters of variants the flag no longer has are removed.
+     */
+    private FlagMeters withVariants(FlagDefinition flag) {
+      String[] updated = variants(flag);
+      if (Arrays.equals(updated, variants)) {
+        return this;
+      }
+      removeCounters();
+      return new FlagMeters(flagKey, updated);
+    }
+
+    /** Records one evaluation of the flag. */
+    public void record(ResolutionDetails resolution, long elapsedNanos) {
+      latency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+      int variant = variantIndex(resolution.variant());
+      int slot = variant * REASONS.length + resolution.reason().ordinal();
+      Counter counter = counts.get(slot);
+      if (counter == null) {
+        counter = register(variant, resolution.reason());
+        counts.set(slot, counter);
+      }
+      counter.increment();
+    }
+
+    private int variantIndex(String variant) {
+      if (variant == null) {
+        return variants.length;
+      }
+      // variants are few, and usually the very instances the definition holds
+      for (int i = 0; i < variants.length; i++) {
+        if (variants[i] == variant || variants[i].equals(variant)) {
+          return i;
+        }
+      }
+      return variants.length + 1;
+    }
+
+    private Counter register(int variant, EvaluationReason reason) {
+      String variantTag =
+          variant < variants.length
+              ? variants[variant]
+              : variant == variants.length ? NO_VARIANT : OTHER;
+      return Counter.builder(EVALUATIONS_METRIC)
+          .description("Flag evaluations by the variant served and why")
+          .tag("flag", flagKey)
+          .tag("variant", variantTag)
+          .tag("reason", reason.name())
+          .register(meterRegistry);
+    }
+
+    private void remove() {
+      meterRegistry.remove(latency);
+      removeCounters();
+    }
+
+    private void removeCounters() {
+      for (int i = 0; i < counts.length(); i++) {
+        Meter counter = counts.get(i);
+        if (counter != null) {
+          meterRegistry.remove(counter);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,6 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.flags.FlagSnapshot;
+
+/** Published by {@link FlagStore} after a new snapshot has been swapped in. */
+public record FlagSnapshotPublishedEvent(FlagSnapshot snapshot) {}
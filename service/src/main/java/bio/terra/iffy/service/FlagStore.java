@@ -0,0 +1,343 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.config.FlagConfiguration;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.FlagdParser;
+import bio.terra.iffy.flags.InvalidFlagConfigurationException;
+import bio.terra.iffy.flags.Segment;
+import bio.terra.iffy.model.SystemStatusSystems;
+import bio.terra.iffy.storage.FlagConfigRepository;
+import bio.terra.iffy.storage.FlagConfigRepository.StoredConfig;
+import bio.terra.iffy.storage.FlagStorageException;
+import bio.terra.iffy.storage.WarmStartFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the current flag definitions in memory. Definitions, and the segments they reference, are
+ * loaded from the configured flagd file into an immutable {@link FlagSnapshot}; a reload builds a
+ * complete new snapshot and swaps it in atomically, so evaluations never wait on I/O or see a
+ * partially loaded set of flags.
+ *
+ * <p>When the database is enabled, each distinct document loaded is stored as a new version in the
+ * {@link FlagConfigRepository}, and the latest stored version is served while the configured
+ * location cannot be read. Versions stored by other replicas are picked up when they are
+ * announced, see {@link FlagChangeSubscriber}, or failing that by a slow periodic check. Whatever
+ * is served is also written to the {@link WarmStartFile}; on restart that file is published before
+ * anything else, and the sources are reconciled with it in the background.
+ */
+@Component
+public class FlagStore {
+  private static final Logger logger = LoggerFactory.getLogger(FlagStore.class);
+
+  private final FlagConfiguration configuration;
+  private final ResourceLoader resourceLoader;
+  private final ObjectMapper objectMapper;
+  private final FlagdParser parser;
+  private final Optional<FlagConfigRepository> repository;
+  private final WarmStartFile warmStartFile;
+  private final ApplicationEventPublisher eventPublisher;
+  private final AtomicReference<FlagSnapshot> snapshot;
+  private final ScheduledExecutorService scheduler;
+
+  /** last-modified time of the loaded resource, used to skip reloading an unchanged file */
+  private volatile long loadedModificationTime = -1;
+
+  /** error from the most recent load attempt, or null if it succeeded */
+  private volatile String loadError = "Flag definitions have not been loaded";
+
+  public FlagStore(
+      FlagConfiguration configuration,
+      ResourceLoader resourceLoader,
+      ObjectMapper objectMapper,
+      Optional<FlagConfigRepository> repository,
+      ApplicationEventPublisher eventPublisher) {
+    if (configuration.location() == null || configuration.location().isBlank()) {
+      throw new IllegalStateException(
+          "No flag definitions to serve: set FLAGS_LOCATION (iffy.flags.location) to a Spring"
+              + " resource location such as file:/etc/iffy/flags.json");
+    }
+    this.configuration = configuration;
+    this.resourceLoader = resourceLoader;
+    this.objectMapper = objectMapper;
+    this.parser = new FlagdParser(objectMapper);
+    this.repository = repository;
+    this.warmStartFile =
+        configuration.warmStartFile() == null || configuration.warmStartFile().isBlank()
+            ? null
+            : new WarmStartFile(Path.of(configuration.warmStartFile()));
+    this.eventPublisher = eventPublisher;
+    this.snapshot = new AtomicReference<>(FlagSnapshot.EMPTY);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @PostConstruct
+  private void startLoading() {
+    if (warmStart()) {
+      // already serving; don't hold up startup waiting for the sources
+      scheduler.execute(this::reload);
+    } else {
+      reload();
+    }
+    if (configuration.pollingIntervalSeconds() > 0) {
+      scheduler.scheduleWithFixedDelay(
+          this::reload,
+          configuration.pollingIntervalSeconds(),
+          configuration.pollingIntervalSeconds(),
+          TimeUnit.SECONDS);
+    }
+    if (repository.isPresent() && configuration.storedVersionCheckIntervalSeconds() > 0) {
+      // catches versions whose change notification was missed
+      scheduler.scheduleWithFixedDelay(
+          this::loadStored,
+          configuration.storedVersionCheckIntervalSeconds(),
+          configuration.storedVersionCheckIntervalSeconds(),
+          TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  private void stopLoading() {
+    scheduler.shutdownNow();
+  }
+
+  public FlagSnapshot current() {
+    return snapshot.get();
+  }
+
+  /**
+   * Replaces all flags with the given definitions, and removes all segments.
+   *
+   * @return the current snapshot after publishing
+   */
+  public FlagSnapshot publish(Map<String, FlagDefinition> flags) {
+    return publish(flags, Map.of());
+  }
+
+  /**
+   * Replaces all flags and segments with the given ones, which were not loaded from a document.
+   *
+   * @return the current snapshot after publishing
+   */
+  public FlagSnapshot publish(Map<String, FlagDefinition> flags, Map<String, Segment> segments) {
+    return publish(flags, segments, 0, null);
+  }
+
+  /**
+   * Replaces all flags and segments with the given ones and notifies listeners with a {@link
+   * FlagSnapshotPublishedEvent}. Publishers are serialized so that versions are announced in order;
+   * readers never block. If nothing changed, the current snapshot is kept.
+   *
+   * @return the current snapshot after publishing
+   */
+  private synchronized FlagSnapshot publish(
+      Map<String, FlagDefinition> flags,
+      Map<String, Segment> segments,
+      long configVersion,
+      String contentHash) {
+    FlagSnapshot previous = snapshot.get();
+    if (previous.version() > 0
+        && previous.asMap().equals(flags)
+        && previous.segments().equals(segments)
+        && previous.configVersion() == configVersion
+        && Objects.equals(previous.contentHash(), contentHash)) {
+      return previous;
+    }
+    var published =
+        new FlagSnapshot(previous.version() + 1, flags, segments, configVersion, contentHash);
+    snapshot.set(published);
+    logger.info("Published {} flags as version {}", published.size(), published.version());
+    eventPublisher.publishEvent(new FlagSnapshotPublishedEvent(published));
+    return published;
+  }
+
+  /**
+   * Publishes the document in the warm start file, if there is a valid one.
+   *
+   * @return whether flags were published
+   */
+  @VisibleForTesting
+  boolean warmStart() {
+    if (warmStartFile == null) {
+      return false;
+    }
+    long start = System.nanoTime();
+    try {
+      Optional<WarmStartFile.Contents> contents = warmStartFile.read();
+      if (contents.isEmpty()) {
+        return false;
+      }
+      FlagdParser.Document document = parser.parseDocument(contents.get().document());
+      FlagSnapshot published =
+          publish(
+              document.flags(),
+              document.segments(),
+              contents.get().configVersion(),
+              FlagConfigRepository.contentHash(
+                  objectMapper.writeValueAsString(contents.get().document())));
+      loadError = null;
+      logger.info(
+          "Warm started {} flags from {} in {} ms",
+          published.size(),
+          warmStartFile.path(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return true;
+    } catch (IOException | InvalidFlagConfigurationException e) {
+      logger.warn("Ignoring warm start file {}", warmStartFile.path(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Reloads flag definitions from the configured location if they have changed, storing them as a
+   * new version. If the location cannot be read, falls back to the latest stored version.
+   */
+  @VisibleForTesting
+  void reload() {
+    Resource resource = resourceLoader.getResource(configuration.location());
+    try {
+      long modificationTime = lastModified(resource);
+      if (modificationTime > 0 && modificationTime == loadedModificationTime) {
+        return;
+      }
+      Map<String, Object> document;
+      try (InputStream inputStream = resource.getInputStream()) {
+        document = parser.readDocument(inputStream);
+      }
+      FlagdParser.Document parsed = parser.parseDocument(document, current().asMap());
+      String json = objectMapper.writeValueAsString(document);
+      Optional<Long> storedVersion = store(json);
+      publish(parsed, document, storedVersion.orElse(0L), FlagConfigRepository.contentHash(json));
+      if (storedVersion.isPresent()) {
+        // otherwise keep trying to store it on the following polls
+        loadedModificationTime = modificationTime;
+      }
+      loadError = null;
+    } catch (IOException | InvalidFlagConfigurationException e) {
+      loadError = "Failed to load flag definitions from " + configuration.location();
+      logger.error(loadError, e);
+      loadStored();
+    }
+  }
+
+  /**
+   * Stores the document in the repository, if there is one.
+   *
+   * @return the stored config version; 0 if there is no repository, or empty if storing failed
+   */
+  private Optional<Long> store(String document) {
+    if (repository.isEmpty()) {
+      return Optional.of(0L);
+    }
+    try {
+      return Optional.of(repository.get().store(document).version());
+    } catch (FlagStorageException e) {
+      logger.warn("Failed to store flag definitions", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Publishes the latest stored version if it is at least the given version and newer than the
+   * one being served. Used when another replica announces that it stored a new version.
+   *
+   * @return completes, on the loading thread, with whether a stored version was published
+   */
+  public CompletableFuture<Boolean> loadStored(long version) {
+    return CompletableFuture.supplyAsync(
+        () -> version > current().configVersion() && loadStored(), scheduler);
+  }
+
+  /**
+   * Publishes the latest stored version, unless it is older than the document being served. A
+   * document that has been loaded but not stored is kept, since it may be newer than anything
+   * stored.
+   *
+   * @return whether a stored version was published
+   */
+  @VisibleForTesting
+  boolean loadStored() {
+    if (repository.isEmpty()) {
+      return false;
+    }
+    try {
+      Optional<StoredConfig> latest = repository.get().latest();
+      long configVersion = current().configVersion();
+      if (latest.isEmpty()
+          || (current().version() > 0
+              && (configVersion == 0 || latest.get().version() <= configVersion))) {
+        return false;
+      }
+      Map<String, Object> document =
+          parser.readDocument(
+              new ByteArrayInputStream(latest.get().document().getBytes(StandardCharsets.UTF_8)));
+      publish(
+          parser.parseDocument(document, current().asMap()),
+          document,
+          latest.get().version(),
+          FlagConfigRepository.contentHash(latest.get().document()));
+      logger.info("Serving stored flag definitions version {}", latest.get().version());
+      return true;
+    } catch (FlagStorageException | InvalidFlagConfigurationException e) {
+      logger.error("Failed to load stored flag definitions", e);
+      return false;
+    }
+  }
+
+  /** Publishes a loaded document and, if anything changed, writes it to the warm start file. */
+  private void publish(
+      FlagdParser.Document parsed,
+      Map<String, Object> document,
+      long storedVersion,
+      String contentHash) {
+    FlagSnapshot previous = current();
+    FlagSnapshot published =
+        publish(parsed.flags(), parsed.segments(), storedVersion, contentHash);
+    if (published != previous && warmStartFile != null) {
+      try {
+        warmStartFile.write(storedVersion, document);
+      } catch (IOException e) {
+        logger.warn("Failed to write warm start file {}", warmStartFile.path(), e);
+      }
+    }
+  }
+
+  public SystemStatusSystems status() {
+    String error = loadError;
+    return error == null
+        ? new SystemStatusSystems().ok(true)
+        : new SystemStatusSystems().ok(false).messages(List.of(error));
+  }
+
+  private static long lastModified(Resource resource) {
+    try {
+      return resource.lastModified();
+    } catch (IOException e) {
+      // not all resources, e.g. those inside a jar, can report modification time
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package bio.terra.iffy.service;
+
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.Segment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.MultiGauge.Row;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports the size and memory footprint of each segment in the current flag snapshot, tagged with
+ * the segment name. Gauges of segments that are removed go away with the snapshot that held them.
+ */
+@Component
+public class SegmentMetrics {
+  static final String SEGMENT_METRIC = "iffy.flags.segment";
+
+  private final FlagStore flagStore;
+  private final MultiGauge members;
+  private final MultiGauge footprint;
+  private long recordedVersion = -1;
+
+  public SegmentMetrics(FlagStore flagStore, MeterRegistry meterRegistry) {
+    this.flagStore = flagStore;
+    this.members =
+        MultiGauge.builder(SEGMENT_METRIC + ".members")
+            .description("Number of members in each flag targeting segment")
+            .register(meterRegistry);
+    this.footprint =
+        MultiGauge.builder(SEGMENT_METRIC + ".footprint")
+            .description("Approximate heap used by each flag targeting segment")
+            .baseUnit(BaseUnits.BYTES)
+            .register(meterRegistry);
+  }
+
+  @PostConstruct
+  private void start() {
+    // flags may have been published before this listener was registered
+    record(flagStore.current());
+  }
+
+  @EventListener
+  public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+    record(event.snapshot());
+  }
+
+  private synchronized void record(FlagSnapshot snapshot) {
+    if (snapshot.version() <= recordedVersion) {
+      return;
+    }
+    recordedVersion = snapshot.version();
+    members.register(rows(snapshot, Segment::size), true);
+    footprint.register(rows(snapshot, Segment::footprintBytes), true);
+  }
+
+  private static List<Row<?>> rows(FlagSnapshot snapshot, ToDoubleFunction<Segment> value) {
+    return snapshot.segments().values().stream()
+        .<Row<?>>map(segment -> Row.of(Tags.of("segment", segment.name()), segment, value))
+        .toList();
+  }
+}
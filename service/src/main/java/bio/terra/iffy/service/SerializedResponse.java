@@ -0,0 +1,70 @@
+package bio.terra.iffy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * A JSON response body serialized once and served many times, with a strong ETag derived from its
+ * bytes.
+ */
+public final class SerializedResponse {
+  private final byte[] body;
+  private final String etag;
+
+  private SerializedResponse(byte[] body) {
+    this.body = body;
+    this.etag = "\"" + digest(body) + "\"";
+  }
+
+  public static SerializedResponse of(ObjectMapper objectMapper, Object value) {
+    try {
+      return new SerializedResponse(objectMapper.writeValueAsBytes(value));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize " + value.getClass().getSimpleName(), e);
+    }
+  }
+
+  /** The serialized JSON. Shared by every response, so it must not be modified. */
+  public byte[] body() {
+    return body;
+  }
+
+  /** The quoted strong ETag. */
+  public String etag() {
+    return etag;
+  }
+
+  /**
+   * Returns whether an If-None-Match header matches this response, using the weak comparison
+   * RFC 9110 specifies for If-None-Match.
+   */
+  public boolean matches(String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String digest(byte[] body) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+      // 128 bits is plenty to tell versions of one resource apart
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22);
+    } catch (NoSuchAlgorithmException e) {
+      // every JRE is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package bio.terra.iffy.service;
 
 import bio.terra.iffy.config.StatusCheckConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.iam.SamResilience;
 import bio.terra.iffy.iam.SamService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,9 +16,17 @@ public class StatusService extends BaseStatusService {
   private static final Logger logger = LoggerFactory.getLogger(StatusService.class);
 
   @Autowired
-  public StatusService(StatusCheckConfiguration configuration, SamService samService) {
-    super(configuration);
-    // TODO - check status of flagd sidecar
+  public StatusService(
+      StatusCheckConfiguration configuration,
+      MeterRegistry meterRegistry,
+      ExecutorFactory executorFactory,
+      ObjectMapper objectMapper,
+      SamService samService,
+      SamResilience samResilience,
+      FlagStore flagStore) {
+    super(configuration, meterRegistry, executorFactory, objectMapper);
     registerStatusCheck("Sam", samService::status);
+    registerStatusCheck("SamCircuitBreaker", samResilience::status);
+    registerStatusCheck("Flags", flagStore::status);
   }
 }
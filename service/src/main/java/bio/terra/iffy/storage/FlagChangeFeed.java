@@ -0,0 +1,24 @@
+package bio.terra.iffy.storage;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Announcements, delivered to every replica, that a new flag config version has been stored.
+ * Delivery is best effort: announcements made while a subscriber is disconnected are lost, so
+ * subscribers must also check the {@link FlagConfigRepository} now and then.
+ */
+public interface FlagChangeFeed {
+
+  /** A version that was stored, and when. */
+  record FlagChange(long version, Instant storedAt) {}
+
+  /** Stops delivery to a subscriber. */
+  interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /** Delivers each announcement to the listener, on a thread of the feed's, until closed. */
+  Subscription subscribe(Consumer<FlagChange> listener);
+}
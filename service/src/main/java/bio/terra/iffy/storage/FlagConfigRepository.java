@@ -0,0 +1,36 @@
+package bio.terra.iffy.storage;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Durable, versioned storage of flag definition documents. Every distinct document Iffy loads is
+ * kept as a new version, so that flags can be served from the latest one when their configured
+ * location is unreachable.
+ */
+public interface FlagConfigRepository {
+
+  /** One stored version of the flag definition document, as JSON. */
+  record StoredConfig(long version, String document) {}
+
+  /** The SHA-256 by which stored documents are compared, as a hex string. */
+  static String contentHash(String document) {
+    return Hashing.sha256().hashString(document, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * @return the latest stored version, or empty if nothing has been stored
+   * @throws FlagStorageException if the storage cannot be read
+   */
+  Optional<StoredConfig> latest();
+
+  /**
+   * Stores the document as a new version, unless it is the same as the latest stored version.
+   *
+   * @return the stored version holding the document, which may be older than the latest if
+   *     another version has been stored since
+   * @throws FlagStorageException if the storage cannot be read or written
+   */
+  StoredConfig store(String document);
+}
@@ -0,0 +1,12 @@
+package bio.terra.iffy.storage;
+
+/** Thrown when stored flag configuration cannot be read or written. */
+public class FlagStorageException extends RuntimeException {
+  public FlagStorageException(String message) {
+    super(message);
+  }
+
+  public FlagStorageException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,28 @@
+package bio.terra.iffy.storage;
+
+import bio.terra.iffy.config.DatabaseConfiguration;
+import javax.sql.DataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Connects to the database only when it is enabled. Spring Boot's Liquibase support then applies
+ * the changelog to it at startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "iffy.db.enabled", havingValue = "true")
+public class IffyDatabase {
+
+  @Bean
+  public DataSource dataSource(DatabaseConfiguration configuration) {
+    var dataSource = new BasicDataSource();
+    dataSource.setUrl(configuration.uri());
+    dataSource.setUsername(configuration.username());
+    dataSource.setPassword(configuration.password());
+    dataSource.setMaxTotal(configuration.poolMaxTotal());
+    dataSource.setMaxIdle(configuration.poolMaxIdle());
+    return dataSource;
+  }
+}
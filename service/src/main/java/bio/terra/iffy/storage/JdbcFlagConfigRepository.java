@@ -0,0 +1,111 @@
+package bio.terra.iffy.storage;
+
+import bio.terra.iffy.storage.FlagChangeFeed.FlagChange;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps flag definition documents in the flag_config table, one row per version. Documents are
+ * compared by their SHA-256 hash, so storing an unchanged document only reads the latest row.
+ * Replicas storing a new document at once race for the same version number, and the losers'
+ * inserts do nothing. A loser then reads the winner's row: if it holds the same document, that is
+ * the stored version; otherwise the loser tries again with the next version number, so that the
+ * version returned always holds the document that was stored. The winner of each version
+ * announces it through the {@link PostgresFlagChangeFeed} in the same transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "iffy.db.enabled", havingValue = "true")
+public class JdbcFlagConfigRepository implements FlagConfigRepository {
+  private static final String SELECT_LATEST =
+      "SELECT version, content_hash, document FROM flag_config ORDER BY version DESC LIMIT 1";
+  private static final String INSERT =
+      "INSERT INTO flag_config (version, content_hash, document) VALUES (?, ?, ?)"
+          + " ON CONFLICT (version) DO NOTHING";
+  /** how many versions to try before giving up on storing a document */
+  private static final int MAX_INSERT_ATTEMPTS = 5;
+
+  private final DataSource dataSource;
+
+  public JdbcFlagConfigRepository(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public Optional<StoredConfig> latest() {
+    try (Connection connection = dataSource.getConnection()) {
+      return selectLatest(connection).map(Row::config);
+    } catch (SQLException e) {
+      throw new FlagStorageException("Failed to read stored flag config", e);
+    }
+  }
+
+  @Override
+  public StoredConfig store(String document) {
+    String hash = FlagConfigRepository.contentHash(document);
+    try (Connection connection = dataSource.getConnection()) {
+      for (int attempt = 0; attempt < MAX_INSERT_ATTEMPTS; attempt++) {
+        Optional<Row> latest = selectLatest(connection);
+        if (latest.isPresent() && latest.get().hash().equals(hash)) {
+          return latest.get().config();
+        }
+        long version = latest.map(row -> row.config().version()).orElse(0L) + 1;
+        if (insert(connection, version, hash, document)) {
+          return new StoredConfig(version, document);
+        }
+        // another replica stored this version first; see whether it stored the same document
+      }
+      throw new FlagStorageException(
+          "Failed to store flag config: version kept being taken by other replicas");
+    } catch (SQLException e) {
+      throw new FlagStorageException("Failed to store flag config", e);
+    }
+  }
+
+  /**
+   * Inserts the document as the given version and announces it, in one transaction.
+   *
+   * @return false if the version already exists
+   */
+  private static boolean insert(Connection connection, long version, String hash, String document)
+      throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+      statement.setLong(1, version);
+      statement.setString(2, hash);
+      statement.setString(3, document);
+      boolean inserted = statement.executeUpdate() == 1;
+      if (inserted) {
+        PostgresFlagChangeFeed.announce(connection, new FlagChange(version, Instant.now()));
+      }
+      connection.commit();
+      return inserted;
+    } catch (SQLException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  private static Optional<Row> selectLatest(Connection connection) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(SELECT_LATEST);
+        ResultSet resultSet = statement.executeQuery()) {
+      if (!resultSet.next()) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          new Row(
+              new StoredConfig(resultSet.getLong("version"), resultSet.getString("document")),
+              resultSet.getString("content_hash")));
+    }
+  }
+
+  private record Row(StoredConfig config, String hash) {}
+}
@@ -0,0 +1,114 @@
+package bio.terra.iffy.storage;
+
+import bio.terra.iffy.config.DatabaseConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Announces stored versions with Postgres NOTIFY and receives them with LISTEN. Each subscriber
+ * holds one connection of its own, outside the pool, since a listening connection is never given
+ * back; if it is lost, the subscriber reconnects after a delay.
+ *
+ * <p>The payload is "version:storedAtEpochMillis". storedAt comes from the storing replica's
+ * clock, so lag measured against it includes any clock skew between replicas.
+ */
+@Component
+@ConditionalOnProperty(name = "iffy.db.enabled", havingValue = "true")
+public class PostgresFlagChangeFeed implements FlagChangeFeed {
+  private static final Logger logger = LoggerFactory.getLogger(PostgresFlagChangeFeed.class);
+
+  static final String CHANNEL = "iffy_flag_config";
+  private static final String NOTIFY = "SELECT pg_notify('" + CHANNEL + "', ?)";
+  private static final int POLL_TIMEOUT_MILLIS = 1000;
+  private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+  private final DatabaseConfiguration configuration;
+
+  public PostgresFlagChangeFeed(DatabaseConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Announces a change on the given connection. Postgres delivers it when, and only if, the
+   * connection's transaction commits.
+   */
+  static void announce(Connection connection, FlagChange change) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(NOTIFY)) {
+      statement.setString(1, payload(change));
+      statement.execute();
+    }
+  }
+
+  @Override
+  public Subscription subscribe(Consumer<FlagChange> listener) {
+    var thread = new Thread(() -> listen(listener), "flag-change-listener");
+    thread.setDaemon(true);
+    thread.start();
+    return thread::interrupt;
+  }
+
+  private void listen(Consumer<FlagChange> listener) {
+    while (!Thread.currentThread().isInterrupted()) {
+      try (Connection connection =
+          DriverManager.getConnection(
+              configuration.uri(), configuration.username(), configuration.password())) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        logger.info("Listening for flag changes");
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (!Thread.currentThread().isInterrupted()) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications == null) {
+            continue;
+          }
+          for (PGNotification notification : notifications) {
+            parse(notification.getParameter()).ifPresent(listener);
+          }
+        }
+      } catch (SQLException e) {
+        logger.warn("Lost flag change listener connection, reconnecting", e);
+        try {
+          Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  static String payload(FlagChange change) {
+    return change.version() + ":" + change.storedAt().toEpochMilli();
+  }
+
+  @VisibleForTesting
+  static Optional<FlagChange> parse(String payload) {
+    int separator = payload == null ? -1 : payload.indexOf(':');
+    try {
+      if (separator > 0) {
+        return Optional.of(
+            new FlagChange(
+                Long.parseLong(payload.substring(0, separator)),
+                Instant.ofEpochMilli(Long.parseLong(payload.substring(separator + 1)))));
+      }
+    } catch (NumberFormatException e) {
+      // fall through
+    }
+    logger.warn("Ignoring malformed flag change notification {}", payload);
+    return Optional.empty();
+  }
+}
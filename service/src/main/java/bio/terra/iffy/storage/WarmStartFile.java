@@ -0,0 +1,130 @@
+package bio.terra.iffy.storage;
+
+import bio.terra.iffy.flags.BinaryDocument;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * The last flag definition document a node served, kept in a local file so that after a restart
+ * flags can be served before their configured location or the database is reachable.
+ *
+ * <p>The file is a fixed header - magic number, format version, the document's stored config
+ * version, payload length and payload CRC32 - followed by the document in {@link BinaryDocument}
+ * encoding. It is read through a memory mapping, without copying it onto the heap first. Writes go
+ * to a temporary file that is then moved into place, so readers and crashes never see a partly
+ * written file.
+ */
+public class WarmStartFile {
+  /** "IFFYSNAP" */
+  private static final long MAGIC = 0x4946_4659_534e_4150L;
+
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES =
+      Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+  /** A document read back from the file. */
+  public record Contents(long configVersion, Map<String, Object> document) {}
+
+  private final Path path;
+
+  public WarmStartFile(Path path) {
+    this.path = path;
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * @return the document in the file, or empty if there is no file
+   * @throws IOException if the file cannot be read or is not a valid warm start file
+   */
+  @SuppressWarnings("unchecked")
+  public Optional<Contents> read() throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+        throw corrupt("unexpected size " + channel.size());
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    }
+    if (buffer.getLong() != MAGIC) {
+      throw corrupt("not a warm start file");
+    }
+    int formatVersion = buffer.getInt();
+    if (formatVersion != FORMAT_VERSION) {
+      throw corrupt("unsupported format version " + formatVersion);
+    }
+    long configVersion = buffer.getLong();
+    int length = buffer.getInt();
+    int checksum = buffer.getInt();
+    if (length != buffer.remaining()) {
+      throw corrupt("payload is " + buffer.remaining() + " bytes, expected " + length);
+    }
+    var crc = new CRC32();
+    crc.update(buffer.slice());
+    if ((int) crc.getValue() != checksum) {
+      throw corrupt("checksum mismatch");
+    }
+    try {
+      if (BinaryDocument.decode(buffer) instanceof Map<?, ?> document) {
+        return Optional.of(new Contents(configVersion, (Map<String, Object>) document));
+      }
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid warm start file " + path, e);
+    }
+    throw corrupt("payload is not an object");
+  }
+
+  /**
+   * Replaces the file with the given document.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void write(long configVersion, Map<String, Object> document) throws IOException {
+    byte[] payload = BinaryDocument.encode(document);
+    var crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer header =
+        ByteBuffer.allocate(HEADER_BYTES)
+            .putLong(MAGIC)
+            .putInt(FORMAT_VERSION)
+            .putLong(configVersion)
+            .putInt(payload.length)
+            .putInt((int) crc.getValue())
+            .flip();
+
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      ByteBuffer[] buffers = {header, ByteBuffer.wrap(payload)};
+      while (buffers[1].hasRemaining()) {
+        channel.write(buffers);
+      }
+      channel.force(false);
+    }
+    Files.move(
+        temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private IOException corrupt(String reason) {
+    return new IOException("Invalid warm start file " + path + ": " + reason);
+  }
+}
@@ -0,0 +1,112 @@
+package bio.terra.iffy.api;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import bio.terra.common.iam.BearerToken;
+import bio.terra.common.iam.BearerTokenFactory;
+import bio.terra.iffy.controller.AsyncPermissionsController;
+import bio.terra.iffy.controller.GlobalExceptionHandler;
+import bio.terra.iffy.iam.ResourceAction;
+import bio.terra.iffy.iam.SamBatchTimeoutException;
+import bio.terra.iffy.iam.SamService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+@ContextConfiguration(classes = {AsyncPermissionsController.class, GlobalExceptionHandler.class})
+@WebMvcTest(properties = "iffy.execution.requestMode=ASYNC")
+class AsyncPermissionsControllerTest {
+  @MockBean BearerTokenFactory bearerTokenFactory;
+  @MockBean SamService samService;
+
+  @Autowired private MockMvc mockMvc;
+
+  private final BearerToken bearerToken = new BearerToken("token");
+
+  @BeforeEach
+  void beforeEach() {
+    when(bearerTokenFactory.from(any(HttpServletRequest.class))).thenReturn(bearerToken);
+  }
+
+  @Test
+  void testGetAction() throws Exception {
+    var decision = new CompletableFuture<Boolean>();
+    when(samService.getActionAsync("workspace", "a", "read", bearerToken)).thenReturn(decision);
+
+    var started =
+        mockMvc
+            .perform(get("/api/example/v1/workspace/a/read"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    // the handler has returned while Sam is still deciding
+    decision.complete(true);
+
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("true"));
+  }
+
+  @Test
+  void testGetActions() throws Exception {
+    var results = new LinkedHashMap<ResourceAction, Boolean>();
+    results.put(new ResourceAction("workspace", "a", "read"), true);
+    results.put(new ResourceAction("workspace", "b", "read"), false);
+    when(samService.getActionsAsync(anyList(), eq(bearerToken)))
+        .thenReturn(CompletableFuture.completedFuture(results));
+
+    var started =
+        mockMvc
+            .perform(
+                post("/api/example/v1/permissions")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(PermissionsControllerTest.PERMISSIONS_REQUEST))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.permissions[0].resourceId").value("a"))
+        .andExpect(jsonPath("$.permissions[0].allowed").value(true))
+        .andExpect(jsonPath("$.permissions[1].allowed").value(false));
+  }
+
+  @Test
+  void testGetActionsTimeout() throws Exception {
+    when(samService.getActionsAsync(anyList(), eq(bearerToken)))
+        .thenReturn(
+            CompletableFuture.<Map<ResourceAction, Boolean>>failedFuture(
+                new SamBatchTimeoutException("too slow")));
+
+    var started =
+        mockMvc
+            .perform(
+                post("/api/example/v1/permissions")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(PermissionsControllerTest.PERMISSIONS_REQUEST))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc.perform(asyncDispatch(started)).andExpect(status().isGatewayTimeout());
+  }
+}
@@ -2,23 +2,33 @@ package bio.terra.iffy.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import bio.terra.common.iam.BearerToken;
-import bio.terra.common.iam.BearerTokenFactory;
 import bio.terra.common.iam.SamUser;
-import bio.terra.common.iam.SamUserFactory;
-import bio.terra.iffy.config.SamConfiguration;
 import bio.terra.iffy.controller.ExampleController;
-import bio.terra.iffy.iam.SamService;
+import bio.terra.iffy.iam.SamUserCache;
+import bio.terra.iffy.model.CounterIncrement;
+import bio.terra.iffy.model.CounterIncrementsResult;
+import bio.terra.iffy.service.CounterIngestionService;
 import bio.terra.iffy.service.ExampleService;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,10 +42,8 @@ import org.springframework.test.web.servlet.MockMvc;
 @WebMvcTest
 public class ExampleControllerTest {
   @MockBean ExampleService serviceMock;
-  @MockBean SamUserFactory samUserFactoryMock;
-  @MockBean BearerTokenFactory bearerTokenFactory;
-  @MockBean SamConfiguration samConfiguration;
-  @MockBean SamService samService;
+  @MockBean SamUserCache samUserCacheMock;
+  @MockBean CounterIngestionService counterIngestionServiceMock;
 
   @Autowired private MockMvc mockMvc;
 
@@ -47,7 +55,7 @@ public class ExampleControllerTest {
 
   @BeforeEach
   void beforeEach() {
-    when(samUserFactoryMock.from(any(HttpServletRequest.class), any())).thenReturn(testUser);
+    when(samUserCacheMock.from(any(HttpServletRequest.class))).thenReturn(testUser);
   }
 
   @Test
@@ -77,4 +85,68 @@ public class ExampleControllerTest {
       Metrics.globalRegistry.remove(meterRegistry);
     }
   }
+
+  @Test
+  void testIncrementCounterCapsTagValues() throws Exception {
+    var meterRegistry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(meterRegistry);
+    int requests = ExampleController.MAX_TAG_VALUES + 50;
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<?>> posts = new ArrayList<>();
+      for (int i = 0; i < requests; i++) {
+        String tagValue = "concurrent-" + i;
+        posts.add(
+            clients.submit(
+                () ->
+                    mockMvc
+                        .perform(
+                            post("/api/example/v1/counter")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(tagValue))
+                        .andExpect(status().isNoContent())));
+      }
+      for (Future<?> post : posts) {
+        post.get();
+      }
+
+      var counters = meterRegistry.find(ExampleController.EXAMPLE_COUNTER_NAME).counters();
+      assertTrue(counters.size() <= ExampleController.MAX_TAG_VALUES + 1);
+      assertEquals(requests, counters.stream().mapToDouble(Counter::count).sum());
+      assertNotNull(
+          meterRegistry
+              .find(ExampleController.EXAMPLE_COUNTER_NAME)
+              .tags(ExampleController.EXAMPLE_COUNTER_TAG, ExampleController.OTHER_TAG_VALUE)
+              .counter());
+    } finally {
+      clients.shutdownNow();
+      Metrics.globalRegistry.remove(meterRegistry);
+    }
+  }
+
+  @Test
+  void testIncrementCounters() throws Exception {
+    when(counterIngestionServiceMock.increment(any()))
+        .thenReturn(new CounterIncrementsResult().accepted(2).rejected(0).bucketed(0));
+
+    mockMvc
+        .perform(
+            post("/api/example/v1/counters")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    """
+                    {"increments": [
+                      {"name": "ui.clicks", "tags": {"button": "save"}, "delta": 3},
+                      {"name": "ui.clicks", "tags": {"button": "save"}}
+                    ]}"""))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.accepted").value(2));
+
+    verify(counterIngestionServiceMock)
+        .increment(
+            List.of(
+                new CounterIncrement().name("ui.clicks").tags(Map.of("button", "save")).delta(3L),
+                new CounterIncrement().name("ui.clicks").tags(Map.of("button", "save")).delta(1L)));
+  }
 }
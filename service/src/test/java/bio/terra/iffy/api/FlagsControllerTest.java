@@ -0,0 +1,144 @@
+package bio.terra.iffy.api;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import bio.terra.common.exception.NotFoundException;
+import bio.terra.iffy.controller.FlagsController;
+import bio.terra.iffy.controller.GlobalExceptionHandler;
+import bio.terra.iffy.flags.ErrorCode;
+import bio.terra.iffy.flags.EvaluationReason;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.ResolutionDetails;
+import bio.terra.iffy.service.FlagChangeBroadcaster;
+import bio.terra.iffy.service.FlagDocumentService;
+import bio.terra.iffy.service.FlagEvaluationService;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+@ContextConfiguration(classes = {FlagsController.class, GlobalExceptionHandler.class})
+@WebMvcTest
+class FlagsControllerTest {
+  @MockBean FlagEvaluationService flagEvaluationService;
+  @MockBean FlagChangeBroadcaster flagChangeBroadcaster;
+  @MockBean FlagDocumentService flagDocumentService;
+
+  @Autowired private MockMvc mockMvc;
+
+  @Test
+  void evaluateFlag() throws Exception {
+    when(flagEvaluationService.evaluate(eq("my-flag"), any(FlagContext.class)))
+        .thenReturn(
+            new ResolutionDetails(
+                "my-flag", "blue", "blue-variant", EvaluationReason.TARGETING_MATCH, null, null));
+
+    mockMvc
+        .perform(
+            post("/api/flags/v1/my-flag/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"targetingKey\": \"user-1\", \"attributes\": {\"email\": \"a@b.c\"}}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.flagKey").value("my-flag"))
+        .andExpect(jsonPath("$.value").value("blue"))
+        .andExpect(jsonPath("$.variant").value("blue-variant"))
+        .andExpect(jsonPath("$.reason").value("TARGETING_MATCH"));
+  }
+
+  @Test
+  void getFlagDocument() throws Exception {
+    when(flagDocumentService.current())
+        .thenReturn(new FlagDocumentService.FlagDocument("abc123", Map.of("flags", Map.of())));
+
+    mockMvc
+        .perform(get("/api/flags/v1/document"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"abc123\""))
+        .andExpect(jsonPath("$.etag").value("abc123"))
+        .andExpect(jsonPath("$.document.flags").isMap());
+    mockMvc
+        .perform(get("/api/flags/v1/document").header("If-None-Match", "\"abc123\""))
+        .andExpect(status().isNotModified());
+    mockMvc
+        .perform(get("/api/flags/v1/document").header("If-None-Match", "abc123"))
+        .andExpect(status().isNotModified());
+    mockMvc
+        .perform(get("/api/flags/v1/document").header("If-None-Match", "\"stale\""))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void evaluateMissingFlag() throws Exception {
+    when(flagEvaluationService.evaluate(eq("missing"), any(FlagContext.class)))
+        .thenThrow(new NotFoundException("Flag not found: missing"));
+
+    mockMvc
+        .perform(
+            post("/api/flags/v1/missing/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void evaluateFlags() throws Exception {
+    var resolutions = new LinkedHashMap<String, ResolutionDetails>();
+    resolutions.put(
+        "a", new ResolutionDetails("a", true, "on", EvaluationReason.STATIC, null, null));
+    resolutions.put("b", ResolutionDetails.error("b", ErrorCode.FLAG_NOT_FOUND, "Flag not found"));
+    when(flagEvaluationService.evaluateAll(eq(List.of("a", "b")), any(FlagContext.class)))
+        .thenReturn(resolutions);
+
+    mockMvc
+        .perform(
+            post("/api/flags/v1/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"context\": {\"targetingKey\": \"u\"}, \"flagKeys\": [\"a\", \"b\"]}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.flags.a.value").value(true))
+        .andExpect(jsonPath("$.flags.a.reason").value("STATIC"))
+        .andExpect(jsonPath("$.flags.b.reason").value("ERROR"))
+        .andExpect(jsonPath("$.flags.b.errorCode").value("FLAG_NOT_FOUND"));
+  }
+
+  @Test
+  void evaluateAllFlags() throws Exception {
+    var resolutions = new LinkedHashMap<String, ResolutionDetails>();
+    resolutions.put(
+        "a", new ResolutionDetails("a", "x", "x", EvaluationReason.DEFAULT, null, null));
+    when(flagEvaluationService.evaluateAll(isNull(), any(FlagContext.class)))
+        .thenReturn(resolutions);
+
+    mockMvc
+        .perform(
+            post("/api/flags/v1/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"all\": true}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.flags.a.value").value("x"));
+  }
+
+  @Test
+  void evaluateFlagsRequiresKeysOrAll() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/flags/v1/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"all\": true, \"flagKeys\": [\"a\"]}"))
+        .andExpect(status().isBadRequest());
+  }
+}
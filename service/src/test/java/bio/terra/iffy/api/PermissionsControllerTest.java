@@ -0,0 +1,78 @@
+package bio.terra.iffy.api;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import bio.terra.common.iam.BearerToken;
+import bio.terra.common.iam.BearerTokenFactory;
+import bio.terra.iffy.controller.PermissionsController;
+import bio.terra.iffy.iam.ResourceAction;
+import bio.terra.iffy.iam.SamService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+@ContextConfiguration(classes = PermissionsController.class)
+@WebMvcTest
+class PermissionsControllerTest {
+  static final String PERMISSIONS_REQUEST =
+      """
+      {"permissions": [
+        {"resourceType": "workspace", "resourceId": "a", "action": "read"},
+        {"resourceType": "workspace", "resourceId": "b", "action": "read"}
+      ]}""";
+
+  @MockBean BearerTokenFactory bearerTokenFactory;
+  @MockBean SamService samService;
+
+  @Autowired private MockMvc mockMvc;
+
+  private final BearerToken bearerToken = new BearerToken("token");
+
+  @BeforeEach
+  void beforeEach() {
+    when(bearerTokenFactory.from(any(HttpServletRequest.class))).thenReturn(bearerToken);
+  }
+
+  @Test
+  void testGetAction() throws Exception {
+    when(samService.getAction("workspace", "a", "read", bearerToken)).thenReturn(true);
+
+    mockMvc
+        .perform(get("/api/example/v1/workspace/a/read"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("true"));
+  }
+
+  @Test
+  void testGetActions() throws Exception {
+    var results = new LinkedHashMap<ResourceAction, Boolean>();
+    results.put(new ResourceAction("workspace", "a", "read"), true);
+    results.put(new ResourceAction("workspace", "b", "read"), false);
+    when(samService.getActions(anyList(), eq(bearerToken))).thenReturn(results);
+
+    mockMvc
+        .perform(
+            post("/api/example/v1/permissions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(PERMISSIONS_REQUEST))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.permissions[0].resourceId").value("a"))
+        .andExpect(jsonPath("$.permissions[0].allowed").value(true))
+        .andExpect(jsonPath("$.permissions[1].allowed").value(false));
+  }
+}
@@ -2,6 +2,8 @@ package bio.terra.iffy.api;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -9,57 +11,108 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import bio.terra.iffy.config.VersionConfiguration;
 import bio.terra.iffy.controller.PublicApiController;
 import bio.terra.iffy.model.SystemStatus;
+import bio.terra.iffy.service.BaseStatusService.SerializedStatus;
+import bio.terra.iffy.service.SerializedResponse;
 import bio.terra.iffy.service.StatusService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 
-@ContextConfiguration(classes = PublicApiController.class)
+@ContextConfiguration(
+    classes = {PublicApiController.class, PublicApiControllerTest.TestVersion.class})
 @WebMvcTest
 class PublicApiControllerTest {
+  private static final String GIT_TAG = "0.1.0";
+  private static final String GIT_HASH = "abc1234";
+  private static final String GITHUB = "https://github.com/DataBiosphere/Iffy/tree/0.9.0";
+  private static final String BUILD = "0.1.0";
+
+  /** The version is serialized when the controller is created, so it cannot be mocked later. */
+  @TestConfiguration
+  static class TestVersion {
+    @Bean
+    VersionConfiguration versionConfiguration() {
+      return new VersionConfiguration(GIT_HASH, GIT_TAG, BUILD, GITHUB);
+    }
+  }
 
   @Autowired private MockMvc mockMvc;
 
+  @Autowired private ObjectMapper objectMapper;
+
   @MockBean private StatusService statusService;
 
-  @MockBean private VersionConfiguration versionConfiguration;
+  private SerializedStatus mockStatus(boolean ok) {
+    SystemStatus systemStatus = new SystemStatus().ok(ok);
+    var serializedStatus =
+        new SerializedStatus(systemStatus, SerializedResponse.of(objectMapper, systemStatus));
+    when(statusService.getCurrentSerializedStatus()).thenReturn(serializedStatus);
+    return serializedStatus;
+  }
 
   @Test
   void testStatus() throws Exception {
-    SystemStatus systemStatus = new SystemStatus().ok(true);
-    when(statusService.getCurrentStatus()).thenReturn(systemStatus);
-    this.mockMvc.perform(get("/status")).andExpect(status().isOk());
+    var serializedStatus = mockStatus(true);
+    this.mockMvc
+        .perform(get("/status"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, serializedStatus.response().etag()))
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().bytes(serializedStatus.response().body()))
+        .andExpect(jsonPath("$.ok").value(true));
+  }
+
+  @Test
+  void testStatusNotModified() throws Exception {
+    var serializedStatus = mockStatus(true);
+    this.mockMvc
+        .perform(
+            get("/status").header(HttpHeaders.IF_NONE_MATCH, serializedStatus.response().etag()))
+        .andExpect(status().isNotModified())
+        .andExpect(content().bytes(new byte[0]));
   }
 
   @Test
   void testStatusCheckFails() throws Exception {
-    SystemStatus systemStatus = new SystemStatus().ok(false);
-    when(statusService.getCurrentStatus()).thenReturn(systemStatus);
+    mockStatus(false);
     this.mockMvc.perform(get("/status")).andExpect(status().is5xxServerError());
   }
 
   @Test
-  void testVersion() throws Exception {
-    String gitTag = "0.1.0";
-    String gitHash = "abc1234";
-    String github = "https://github.com/DataBiosphere/Iffy/tree/0.9.0";
-    String build = "0.1.0";
-
-    when(versionConfiguration.gitTag()).thenReturn(gitTag);
-    when(versionConfiguration.gitHash()).thenReturn(gitHash);
-    when(versionConfiguration.github()).thenReturn(github);
-    when(versionConfiguration.build()).thenReturn(build);
+  void testStatusCheckFailsIgnoresIfNoneMatch() throws Exception {
+    var serializedStatus = mockStatus(false);
+    this.mockMvc
+        .perform(
+            get("/status").header(HttpHeaders.IF_NONE_MATCH, serializedStatus.response().etag()))
+        .andExpect(status().isServiceUnavailable());
+  }
 
+  @Test
+  void testVersion() throws Exception {
     this.mockMvc
         .perform(get("/version"))
         .andExpect(status().isOk())
-        .andExpect(jsonPath("$.gitTag").value(gitTag))
-        .andExpect(jsonPath("$.gitHash").value(gitHash))
-        .andExpect(jsonPath("$.github").value(github))
-        .andExpect(jsonPath("$.build").value(build));
+        .andExpect(jsonPath("$.gitTag").value(GIT_TAG))
+        .andExpect(jsonPath("$.gitHash").value(GIT_HASH))
+        .andExpect(jsonPath("$.github").value(GITHUB))
+        .andExpect(jsonPath("$.build").value(BUILD));
+  }
+
+  @Test
+  void testVersionNotModified() throws Exception {
+    String etag =
+        this.mockMvc.perform(get("/version")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    this.mockMvc
+        .perform(get("/version").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
   }
 
   @Test
@@ -0,0 +1,76 @@
+package bio.terra.iffy.exposure;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class BoundedBufferTest {
+
+  @Test
+  void capacityRoundsUpToPowerOfTwo() {
+    assertThat(new BoundedBuffer<>(1).capacity(), is(2));
+    assertThat(new BoundedBuffer<>(8).capacity(), is(8));
+    assertThat(new BoundedBuffer<>(9).capacity(), is(16));
+  }
+
+  @Test
+  void rejectsWhenFullAndWrapsAround() {
+    var buffer = new BoundedBuffer<Integer>(4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.offer(i), is(true));
+    }
+    assertThat(buffer.offer(4), is(false));
+    assertThat(buffer.size(), is(4));
+
+    List<Integer> drained = new ArrayList<>();
+    assertThat(buffer.drain(drained::add, 3), is(3));
+    assertThat(buffer.offer(5), is(true));
+    assertThat(buffer.drain(drained::add, 10), is(2));
+    assertThat(drained, contains(0, 1, 2, 3, 5));
+    assertThat(buffer.size(), is(0));
+  }
+
+  @Test
+  void concurrentProducersLoseNothingAccepted() throws Exception {
+    var buffer = new BoundedBuffer<Integer>(1024);
+    int producers = 8;
+    int perProducer = 100_000;
+    var accepted = new AtomicInteger();
+    var start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    for (int p = 0; p < producers; p++) {
+      executor.execute(
+          () -> {
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+            for (int i = 0; i < perProducer; i++) {
+              if (buffer.offer(i)) {
+                accepted.incrementAndGet();
+              }
+            }
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    var received = new AtomicInteger();
+    while (!executor.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+      buffer.drain(element -> received.incrementAndGet(), 256);
+    }
+    buffer.drain(element -> received.incrementAndGet(), Integer.MAX_VALUE);
+
+    assertThat(received.get(), is(accepted.get()));
+  }
+}
@@ -0,0 +1,135 @@
+package bio.terra.iffy.exposure;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.config.ExposureConfiguration;
+import bio.terra.iffy.flags.EvaluationReason;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.ResolutionDetails;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public class ExposureLogTest {
+  private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+  private static final FlagSnapshot SNAPSHOT = new FlagSnapshot(7, Map.of(), Map.of(), 3, "hash");
+  private static final FlagContext CONTEXT = FlagContext.of("user-1", Map.of());
+  private static final ResolutionDetails SERVED =
+      new ResolutionDetails("flag", true, "on", EvaluationReason.TARGETING_MATCH, null, null);
+  private static final ResolutionDetails NOT_SERVED =
+      new ResolutionDetails("flag", null, null, EvaluationReason.DISABLED, null, null);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  /** An exposure log that records nothing, for tests of its callers. */
+  public static ExposureLog disabled() {
+    return new ExposureLog(
+        new ExposureConfiguration(false, 16, 10, 1000, 75, 10),
+        Optional.empty(),
+        new SimpleMeterRegistry());
+  }
+
+  private ExposureLog exposureLog(ExposureConfiguration configuration, ExposureWriter writer) {
+    return new ExposureLog(
+        configuration, Optional.of(writer), meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  private double dropped(String reason) {
+    return meterRegistry
+        .get(ExposureLog.EXPOSURE_METRIC + ".dropped")
+        .tag("reason", reason)
+        .counter()
+        .count();
+  }
+
+  @Test
+  void writesServedVariantsInBatches() {
+    List<List<Exposure>> batches = new ArrayList<>();
+    var log =
+        exposureLog(
+            new ExposureConfiguration(true, 16, 2, 1000, 100, 1),
+            batch -> batches.add(List.copyOf(batch)));
+
+    log.record(SNAPSHOT, CONTEXT, SERVED);
+    log.record(SNAPSHOT, CONTEXT, SERVED);
+    log.record(SNAPSHOT, CONTEXT, SERVED);
+    log.record(SNAPSHOT, CONTEXT, NOT_SERVED);
+    log.flush();
+
+    var exposure = new Exposure(NOW, "flag", 3, "hash", "user-1", "on", "TARGETING_MATCH");
+    assertThat(batches, contains(List.of(exposure, exposure), List.of(exposure)));
+    assertThat(
+        meterRegistry.get(ExposureLog.EXPOSURE_METRIC + ".written").counter().count(), is(3.0));
+  }
+
+  @Test
+  void dropsWhenFull() {
+    List<Exposure> written = new ArrayList<>();
+    var log = exposureLog(new ExposureConfiguration(true, 4, 10, 1000, 100, 1), written::addAll);
+
+    for (int i = 0; i < 10; i++) {
+      log.record(SNAPSHOT, CONTEXT, SERVED);
+    }
+    log.flush();
+
+    assertThat(written.size(), is(4));
+    assertThat(dropped("full"), is(6.0));
+  }
+
+  @Test
+  void samplesPastThreshold() {
+    List<Exposure> written = new ArrayList<>();
+    var log =
+        exposureLog(new ExposureConfiguration(true, 1024, 10, 1000, 0, 1000), written::addAll);
+
+    for (int i = 0; i < 1000; i++) {
+      log.record(SNAPSHOT, CONTEXT, SERVED);
+    }
+    log.flush();
+
+    // a threshold of 0% samples everything, keeping roughly 1 in 1000
+    assertThat(written.size() < 20, is(true));
+    assertThat(dropped("sampled"), is(1000.0 - written.size()));
+  }
+
+  @Test
+  void failedBatchesAreCountedAndDropped() {
+    var log =
+        exposureLog(
+            new ExposureConfiguration(true, 16, 10, 1000, 100, 1),
+            batch -> {
+              throw new IllegalStateException("database down");
+            });
+
+    log.record(SNAPSHOT, CONTEXT, SERVED);
+    log.record(SNAPSHOT, CONTEXT, SERVED);
+    log.flush();
+
+    assertThat(dropped("write_failed"), is(2.0));
+  }
+
+  @Test
+  void disabledRecordsNothing() {
+    List<Exposure> written = new ArrayList<>();
+    var log =
+        new ExposureLog(
+            new ExposureConfiguration(false, 16, 10, 1000, 100, 1),
+            Optional.of(written::addAll),
+            meterRegistry);
+
+    log.record(SNAPSHOT, CONTEXT, SERVED);
+
+    assertThat(log.isEnabled(), is(false));
+    assertThat(written, empty());
+  }
+}
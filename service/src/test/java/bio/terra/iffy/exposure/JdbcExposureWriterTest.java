@@ -0,0 +1,131 @@
+package bio.terra.iffy.exposure;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.iffy.storage.TestDatabase;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JdbcExposureWriterTest {
+  private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+  private DataSource dataSource;
+  private JdbcExposureWriter writer;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    dataSource = TestDatabase.emptied("exposure");
+    writer = new JdbcExposureWriter(dataSource);
+  }
+
+  private static Exposure exposure(int i) {
+    return new Exposure(NOW.plusMillis(i), "flag-" + i, 3, "hash", "user-" + i, "on", "STATIC");
+  }
+
+  private static List<Exposure> exposures(int count) {
+    List<Exposure> exposures = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      exposures.add(exposure(i));
+    }
+    return exposures;
+  }
+
+  /** Reads every row back, one string per row, in the order they were exposed. */
+  private List<String> rows() throws SQLException {
+    List<String> rows = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery(
+                "SELECT exposed_at, flag_key, config_version, content_hash, targeting_key,"
+                    + " variant, reason FROM exposure ORDER BY exposed_at")) {
+      while (resultSet.next()) {
+        rows.add(
+            String.join(
+                " ",
+                resultSet.getTimestamp("exposed_at").toInstant().toString(),
+                resultSet.getString("flag_key"),
+                String.valueOf(resultSet.getObject("config_version")),
+                resultSet.getString("content_hash"),
+                resultSet.getString("targeting_key"),
+                resultSet.getString("variant"),
+                resultSet.getString("reason")));
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  void insertSql() {
+    assertThat(
+        JdbcExposureWriter.insertSql(2),
+        is(
+            "INSERT INTO exposure (exposed_at, flag_key, config_version, content_hash,"
+                + " targeting_key, variant, reason) VALUES (?, ?, ?, ?, ?, ?, ?),"
+                + " (?, ?, ?, ?, ?, ?, ?)"));
+  }
+
+  @Test
+  void batchesFitPostgresParameterLimit() {
+    assertThat(JdbcExposureWriter.MAX_ROWS * 7 <= 65535, is(true));
+  }
+
+  @Test
+  void writesEachExposureAsARow() throws Exception {
+    writer.write(
+        List.of(
+            new Exposure(NOW, "a", 3, "hash", "user-1", "on", "TARGETING_MATCH"),
+            new Exposure(NOW.plusSeconds(1), "b", 0, null, null, "off", "DEFAULT")));
+
+    assertThat(
+        rows(),
+        contains(
+            "2024-01-01T00:00:00Z a 3 hash user-1 on TARGETING_MATCH",
+            "2024-01-01T00:00:01Z b null null null off DEFAULT"));
+  }
+
+  @Test
+  void splitsBatchesTooLargeForOneStatement() throws Exception {
+    writer.write(exposures(JdbcExposureWriter.MAX_ROWS + 1));
+
+    List<String> rows = rows();
+    assertThat(rows.size(), is(JdbcExposureWriter.MAX_ROWS + 1));
+    assertThat(
+        rows.get(JdbcExposureWriter.MAX_ROWS),
+        is(
+            String.join(
+                " ",
+                NOW.plusMillis(JdbcExposureWriter.MAX_ROWS).toString(),
+                "flag-" + JdbcExposureWriter.MAX_ROWS,
+                "3",
+                "hash",
+                "user-" + JdbcExposureWriter.MAX_ROWS,
+                "on",
+                "STATIC")));
+  }
+
+  @Test
+  void failedBatchWritesNothing() throws Exception {
+    List<Exposure> exposures = exposures(JdbcExposureWriter.MAX_ROWS + 1);
+    // fails the second statement, after the first has been sent
+    exposures.add(new Exposure(NOW, "bad", 3, "hash", "user", null, "STATIC"));
+
+    assertThrows(SQLException.class, () -> writer.write(exposures));
+
+    // so the whole batch can be counted as dropped
+    assertThat(rows().size(), is(0));
+    writer.write(List.of(exposure(0)));
+    assertThat(rows().size(), is(1));
+  }
+}
@@ -0,0 +1,202 @@
+package bio.terra.iffy.grpc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import bio.terra.common.exception.NotFoundException;
+import bio.terra.iffy.config.GrpcConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.flags.ErrorCode;
+import bio.terra.iffy.flags.EvaluationReason;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.ResolutionDetails;
+import bio.terra.iffy.service.FlagEvaluationService;
+import bio.terra.iffy.service.FlagStore;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.AnyFlag;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveAllRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveAllResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveBooleanRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveBooleanResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveIntRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveIntResponse;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveStringRequest;
+import dev.openfeature.flagd.grpc.evaluation.Evaluation.ResolveStringResponse;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class FlagdGrpcServiceTest {
+  private static final Struct CONTEXT =
+      Struct.newBuilder()
+          .putFields("email", Value.newBuilder().setStringValue("tester@example.com").build())
+          .build();
+
+  private final FlagEvaluationService flagEvaluationService = mock(FlagEvaluationService.class);
+  private final FlagdGrpcService service =
+      new FlagdGrpcService(
+          new GrpcConfiguration(true, 0, 0),
+          flagEvaluationService,
+          mock(FlagStore.class),
+          new ExecutorFactory());
+
+  /** Collects what the service sends, as a client stub would. */
+  private static class RecordingObserver<T> implements StreamObserver<T> {
+    final List<T> values = new ArrayList<>();
+    Status status;
+    boolean completed;
+
+    @Override
+    public void onNext(T value) {
+      values.add(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      status = Status.fromThrowable(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      completed = true;
+    }
+  }
+
+  private void givenResolution(String flagKey, ResolutionDetails resolution) {
+    when(flagEvaluationService.evaluate(eq(flagKey), any())).thenReturn(resolution);
+  }
+
+  private static ResolutionDetails resolved(String flagKey, String variant, Object value) {
+    return new ResolutionDetails(
+        flagKey, value, variant, EvaluationReason.TARGETING_MATCH, null, null);
+  }
+
+  @Test
+  void resolveString() {
+    givenResolution("targeted-flag", resolved("targeted-flag", "beta", "beta-ui"));
+    var observer = new RecordingObserver<ResolveStringResponse>();
+
+    service.resolveString(
+        ResolveStringRequest.newBuilder().setFlagKey("targeted-flag").setContext(CONTEXT).build(),
+        observer);
+
+    assertThat(observer.status, nullValue());
+    assertThat(observer.completed, is(true));
+    ResolveStringResponse response = observer.values.get(0);
+    assertThat(response.getValue(), is("beta-ui"));
+    assertThat(response.getVariant(), is("beta"));
+    assertThat(response.getReason(), is("TARGETING_MATCH"));
+  }
+
+  @Test
+  void resolveIntAcceptsWholeNumbers() {
+    givenResolution("limit", resolved("limit", "high", 100));
+    var observer = new RecordingObserver<ResolveIntResponse>();
+
+    service.resolveInt(ResolveIntRequest.newBuilder().setFlagKey("limit").build(), observer);
+
+    assertThat(observer.values.get(0).getValue(), is(100L));
+  }
+
+  @Test
+  void typeMismatchIsInvalidArgument() {
+    givenResolution("targeted-flag", resolved("targeted-flag", "beta", "beta-ui"));
+    var observer = new RecordingObserver<ResolveBooleanResponse>();
+
+    service.resolveBoolean(
+        ResolveBooleanRequest.newBuilder().setFlagKey("targeted-flag").build(), observer);
+
+    assertThat(observer.values.isEmpty(), is(true));
+    assertThat(observer.status.getCode(), is(Status.Code.INVALID_ARGUMENT));
+  }
+
+  @Test
+  void unknownFlagIsNotFound() {
+    when(flagEvaluationService.evaluate(eq("missing"), any()))
+        .thenThrow(new NotFoundException("Flag not found: missing"));
+    var observer = new RecordingObserver<ResolveBooleanResponse>();
+
+    service.resolveBoolean(
+        ResolveBooleanRequest.newBuilder().setFlagKey("missing").build(), observer);
+
+    assertThat(observer.status.getCode(), is(Status.Code.NOT_FOUND));
+  }
+
+  @Test
+  void errorStatus() {
+    assertThat(FlagdGrpcService.errorStatus(resolved("a", "on", true)), nullValue());
+    assertThat(
+        FlagdGrpcService.errorStatus(
+                new ResolutionDetails("a", null, null, EvaluationReason.DISABLED, null, null))
+            .getCode(),
+        is(Status.Code.NOT_FOUND));
+    assertThat(
+        FlagdGrpcService.errorStatus(ResolutionDetails.error("a", ErrorCode.PARSE_ERROR, "bad"))
+            .getCode(),
+        is(Status.Code.DATA_LOSS));
+  }
+
+  @Test
+  void resolveAllLeavesOutFlagsWithoutValues() {
+    Map<String, ResolutionDetails> resolutions = new LinkedHashMap<>();
+    resolutions.put("static-flag", resolved("static-flag", "on", true));
+    resolutions.put(
+        "disabled-flag",
+        new ResolutionDetails("disabled-flag", null, null, EvaluationReason.DISABLED, null, null));
+    resolutions.put("list-flag", resolved("list-flag", "some", List.of("a", "b")));
+    when(flagEvaluationService.evaluateAll(isNull(), any())).thenReturn(resolutions);
+    var observer = new RecordingObserver<ResolveAllResponse>();
+
+    service.resolveAll(ResolveAllRequest.newBuilder().setContext(CONTEXT).build(), observer);
+
+    Map<String, AnyFlag> flags = observer.values.get(0).getFlagsMap();
+    assertThat(flags.keySet(), contains("static-flag"));
+    assertThat(flags.get("static-flag").getBoolValue(), is(true));
+  }
+
+  private static FlagDefinition flag(String key, String defaultVariant) {
+    return new FlagDefinition(
+        key,
+        true,
+        Map.of("on", true, "off", false),
+        defaultVariant,
+        null,
+        Map.of("defaultVariant", defaultVariant));
+  }
+
+  private static FlagSnapshot snapshot(long version, FlagDefinition... flags) {
+    return new FlagSnapshot(
+        version, Arrays.stream(flags).collect(Collectors.toMap(FlagDefinition::key, f -> f)));
+  }
+
+  @Test
+  void changes() {
+    var previous = snapshot(1, flag("same", "on"), flag("changed", "on"), flag("removed", "on"));
+    var current = snapshot(2, flag("same", "on"), flag("changed", "off"), flag("added", "on"));
+
+    Map<String, Object> changes = FlagdGrpcService.changes(previous, current);
+
+    assertThat(
+        changes,
+        is(
+            Map.of(
+                "changed", Map.of("type", "update"),
+                "added", Map.of("type", "write"),
+                "removed", Map.of("type", "delete"))));
+  }
+}
@@ -0,0 +1,85 @@
+package bio.terra.iffy.iam;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.iam.CircuitBreaker.State;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+  private final AtomicLong now = new AtomicLong();
+
+  // opens at 50% failures once 4 calls are recorded; probes with 2 calls after 100ns open
+  private final CircuitBreaker breaker = new CircuitBreaker(50, 4, 10, 100, 2, now::get);
+
+  @Test
+  void opensAtFailureRate() {
+    breaker.onSuccess();
+    breaker.onFailure();
+    breaker.onSuccess();
+    assertThat(breaker.state(), is(State.CLOSED));
+    breaker.onFailure();
+    assertThat(breaker.state(), is(State.OPEN));
+    assertThat(breaker.tryAcquirePermission(), is(false));
+  }
+
+  @Test
+  void failuresBelowMinimumCallsDoNotOpen() {
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onFailure();
+    assertThat(breaker.state(), is(State.CLOSED));
+  }
+
+  @Test
+  void oldOutcomesLeaveTheWindow() {
+    for (int i = 0; i < 4; i++) {
+      breaker.onFailure();
+      breaker.onSuccess();
+      breaker.onSuccess();
+      breaker.onSuccess();
+    }
+    // the window holds the last 10 calls: 3 failures
+    assertThat(breaker.state(), is(State.CLOSED));
+  }
+
+  @Test
+  void halfOpenClosesAfterSuccessfulProbes() {
+    open();
+    now.addAndGet(100);
+    assertThat(breaker.state(), is(State.HALF_OPEN));
+    assertThat(breaker.tryAcquirePermission(), is(true));
+    assertThat(breaker.tryAcquirePermission(), is(true));
+    assertThat(breaker.tryAcquirePermission(), is(false));
+    breaker.onSuccess();
+    breaker.onSuccess();
+    assertThat(breaker.state(), is(State.CLOSED));
+  }
+
+  @Test
+  void halfOpenReopensOnFailure() {
+    open();
+    now.addAndGet(100);
+    assertThat(breaker.tryAcquirePermission(), is(true));
+    breaker.onFailure();
+    assertThat(breaker.state(), is(State.OPEN));
+  }
+
+  @Test
+  void abandonedProbeFreesItsPermission() {
+    open();
+    now.addAndGet(100);
+    assertThat(breaker.tryAcquirePermission(), is(true));
+    assertThat(breaker.tryAcquirePermission(), is(true));
+    breaker.onAbandoned();
+    assertThat(breaker.tryAcquirePermission(), is(true));
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      breaker.onFailure();
+    }
+    assertThat(breaker.state(), is(State.OPEN));
+  }
+}
@@ -2,10 +2,28 @@ package bio.terra.iffy.iam;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import bio.terra.iffy.config.SamConfiguration;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Interceptor;
+import okhttp3.Request;
 import org.broadinstitute.dsde.workbench.client.sam.ApiClient;
+import org.broadinstitute.dsde.workbench.client.sam.ApiException;
 import org.broadinstitute.dsde.workbench.client.sam.auth.OAuth;
 import org.junit.jupiter.api.Test;
 
@@ -14,18 +32,112 @@ class SamClientTest {
   private static final String TOKEN = "token";
   private static final String AUTH_NAME = "googleoauth";
 
-  private final SamClient client = new SamClient(new SamConfiguration(BASE_PATH), Optional.empty());
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SamClient client =
+      new SamClient(
+          new SamConfiguration(BASE_PATH, 5, 60, 64, 32, 5, 10), Optional.empty(), meterRegistry);
 
   @Test
   void testApis() {
-    validateClient(client.statusApi().getApiClient(), null);
-    validateClient(client.usersApi(TOKEN).getApiClient(), TOKEN);
-    validateClient(client.resourcesApi(TOKEN).getApiClient(), TOKEN);
+    ApiClient apiClient = client.apiClient();
+    assertThat(apiClient.getBasePath(), is(BASE_PATH));
+    // the shared client never holds a caller's token
+    OAuth oauth = (OAuth) apiClient.getAuthentication(AUTH_NAME);
+    assertThat(oauth.getAccessToken(), nullValue());
+    assertThat(client.statusApi().getApiClient(), sameInstance(apiClient));
+    assertThat(client.usersApi().getApiClient(), sameInstance(apiClient));
+    assertThat(client.resourcesApi().getApiClient(), sameInstance(apiClient));
+    assertThat(apiClient.getHttpClient().connectTimeoutMillis(), is(5000));
+    assertThat(apiClient.getHttpClient().dispatcher().getMaxRequestsPerHost(), is(32));
   }
 
-  private static void validateClient(ApiClient client, String token) {
-    assertThat(client.getBasePath(), is(BASE_PATH));
-    OAuth oauth = (OAuth) client.getAuthentication(AUTH_NAME);
-    assertThat(oauth.getAccessToken(), is(token));
+  @Test
+  void testAccessTokenInterceptor() throws Exception {
+    var interceptor = new SamClient.AccessTokenInterceptor();
+    var sent = new AtomicReference<Request>();
+    var chain = mock(Interceptor.Chain.class);
+    when(chain.request()).thenReturn(new Request.Builder().url("http://sam/api").build());
+    when(chain.proceed(any()))
+        .thenAnswer(
+            invocation -> {
+              sent.set(invocation.getArgument(0));
+              return null;
+            });
+
+    interceptor.intercept(chain);
+    assertThat(sent.get().header("Authorization"), nullValue());
+
+    client.withAccessToken(
+        TOKEN,
+        () -> {
+          try {
+            return interceptor.intercept(chain);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    assertThat(sent.get().header("Authorization"), is("Bearer " + TOKEN));
+
+    // the token does not outlive the call
+    interceptor.intercept(chain);
+    assertThat(sent.get().header("Authorization"), nullValue());
+  }
+
+  @Test
+  void testPoolMetrics() {
+    var idle = meterRegistry.get(SamClient.POOL_METRIC).tag(SamClient.STATE_TAG, "idle").gauge();
+    assertThat(idle.value(), is(0.0));
+  }
+
+  @Test
+  void testExecuteAsync() throws Exception {
+    var authorization = new AtomicReference<String>();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+          boolean known = exchange.getRequestURI().getPath().contains("/workspace/a/");
+          byte[] body = "true".getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(known ? 200 : 404, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.start();
+    try {
+      var asyncClient =
+          new SamClient(
+              new SamConfiguration(
+                  "http://localhost:" + server.getAddress().getPort(), 5, 60, 64, 32, 5, 10),
+              Optional.empty(),
+              new SimpleMeterRegistry());
+
+      Boolean allowed =
+          asyncClient
+              .<Boolean>executeAsync(
+                  TOKEN,
+                  () ->
+                      asyncClient
+                          .resourcesApi()
+                          .resourcePermissionV2Call("workspace", "a", "read", null),
+                  Boolean.class)
+              .get(5, TimeUnit.SECONDS);
+      assertThat(allowed, is(true));
+      assertThat(authorization.get(), is("Bearer " + TOKEN));
+
+      var notFound =
+          asyncClient.<Boolean>executeAsync(
+              TOKEN,
+              () ->
+                  asyncClient
+                      .resourcesApi()
+                      .resourcePermissionV2Call("workspace", "b", "read", null),
+              Boolean.class);
+      var thrown = assertThrows(ExecutionException.class, () -> notFound.get(5, TimeUnit.SECONDS));
+      assertThat(((ApiException) thrown.getCause()).getCode(), is(404));
+    } finally {
+      server.stop(0);
+    }
   }
 }
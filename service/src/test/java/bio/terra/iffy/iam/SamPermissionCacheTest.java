@@ -0,0 +1,133 @@
+package bio.terra.iffy.iam;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.common.iam.BearerToken;
+import bio.terra.iffy.config.SamPermissionCacheConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SamPermissionCacheTest {
+  private static final BearerToken TOKEN = new BearerToken("token");
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private SamPermissionCache cache(boolean enabled) {
+    return new SamPermissionCache(
+        new SamPermissionCacheConfiguration(enabled, 60, 60, 100), meterRegistry);
+  }
+
+  private double count(String result) {
+    return meterRegistry
+        .get(SamPermissionCache.CACHE_METRIC)
+        .tag(SamPermissionCache.RESULT_TAG, result)
+        .counter()
+        .count();
+  }
+
+  @Test
+  void cachesDecisions() {
+    var cache = cache(true);
+    var calls = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      boolean allowed =
+          cache.getDecision(TOKEN, "type", "id", "read", () -> calls.incrementAndGet() > 0);
+      assertThat(allowed, is(true));
+    }
+    cache.getDecision(new BearerToken("other"), "type", "id", "read", () -> false);
+
+    assertThat(calls.get(), is(1));
+    assertThat(count("miss"), is(2.0));
+    assertThat(count("hit"), is(2.0));
+  }
+
+  @Test
+  void disabledCacheAlwaysLoads() {
+    var cache = cache(false);
+    var calls = new AtomicInteger();
+
+    cache.getDecision(TOKEN, "type", "id", "read", () -> calls.incrementAndGet() > 0);
+    cache.getDecision(TOKEN, "type", "id", "read", () -> calls.incrementAndGet() > 0);
+
+    assertThat(calls.get(), is(2));
+  }
+
+  @Test
+  void failuresAreNotCached() {
+    var cache = cache(true);
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            cache.getDecision(
+                TOKEN,
+                "type",
+                "id",
+                "read",
+                () -> {
+                  throw new IllegalStateException("sam is down");
+                }));
+
+    assertThat(cache.getDecision(TOKEN, "type", "id", "read", () -> true), is(true));
+  }
+
+  @Test
+  void concurrentMissesShareOneLoad() throws Exception {
+    var cache = cache(true);
+    var calls = new AtomicInteger();
+    var loading = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Boolean> first =
+          executor.submit(
+              () ->
+                  cache.getDecision(
+                      TOKEN,
+                      "type",
+                      "id",
+                      "read",
+                      () -> {
+                        calls.incrementAndGet();
+                        loading.countDown();
+                        awaitQuietly(release);
+                        return true;
+                      }));
+      assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+      Future<Boolean> second =
+          executor.submit(
+              () ->
+                  cache.getDecision(
+                      TOKEN, "type", "id", "read", () -> calls.incrementAndGet() > 0));
+      // give the second caller time to find the load in flight
+      while (count("coalesced") == 0 && !second.isDone()) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS), is(true));
+      assertThat(second.get(5, TimeUnit.SECONDS), is(true));
+      assertThat(calls.get(), is(1));
+      assertThat(count("coalesced"), is(1.0));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
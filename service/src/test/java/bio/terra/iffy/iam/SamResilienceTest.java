@@ -0,0 +1,194 @@
+package bio.terra.iffy.iam;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.iffy.config.SamResilienceConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.iam.CircuitBreaker.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.broadinstitute.dsde.workbench.client.sam.ApiException;
+import org.junit.jupiter.api.Test;
+
+class SamResilienceTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  /** Waits up to 5 seconds for the latch, as a Sam call waits for Sam; true if interrupted. */
+  private static boolean waitFor(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+      return false;
+    } catch (InterruptedException e) {
+      return true;
+    }
+  }
+
+  private SamResilience resilience(int maxConcurrentCalls, boolean hedgingEnabled) {
+    return new SamResilience(
+        new SamResilienceConfiguration(
+            maxConcurrentCalls, 0, 50, 4, 10, 60, 1, hedgingEnabled, 50, 10),
+        new ExecutorFactory(),
+        meterRegistry);
+  }
+
+  @Test
+  void failsFastWhileOpen() {
+    var resilience = resilience(10, false);
+    var calls = new AtomicInteger();
+    for (int i = 0; i < 4; i++) {
+      assertThrows(
+          ApiException.class,
+          () ->
+              resilience.call(
+                  () -> {
+                    calls.incrementAndGet();
+                    throw new ApiException(503, "unavailable");
+                  }));
+    }
+    assertThat(resilience.circuitState(), is(State.OPEN));
+    assertThat(resilience.status().isOk(), is(false));
+
+    assertThrows(SamUnavailableException.class, () -> resilience.call(() -> true));
+    assertThat(calls.get(), is(4));
+  }
+
+  @Test
+  void asyncFailuresOpen() {
+    var resilience = resilience(10, false);
+    for (int i = 0; i < 4; i++) {
+      resilience.callAsync(
+          () -> CompletableFuture.failedFuture(new ApiException(500, "unavailable")));
+    }
+    assertThat(resilience.circuitState(), is(State.OPEN));
+
+    var rejected = resilience.callAsync(() -> CompletableFuture.completedFuture(true));
+    var thrown = assertThrows(ExecutionException.class, rejected::get);
+    assertThat(thrown.getCause(), instanceOf(SamUnavailableException.class));
+  }
+
+  @Test
+  void clientErrorsDoNotOpen() {
+    var resilience = resilience(10, false);
+    for (int i = 0; i < 10; i++) {
+      assertThrows(
+          ApiException.class,
+          () ->
+              resilience.call(
+                  () -> {
+                    throw new ApiException(404, "not found");
+                  }));
+    }
+    assertThat(resilience.circuitState(), is(State.CLOSED));
+    assertThat(resilience.status().isOk(), is(true));
+  }
+
+  @Test
+  void bulkheadRejectsExcessCalls() throws Exception {
+    var resilience = resilience(1, false);
+    var inCall = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var holder =
+        new Thread(
+            () -> {
+              try {
+                resilience.call(
+                    () -> {
+                      inCall.countDown();
+                      waitFor(release);
+                      return true;
+                    });
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    holder.start();
+    try {
+      assertThat(inCall.await(5, TimeUnit.SECONDS), is(true));
+      assertThrows(SamUnavailableException.class, () -> resilience.call(() -> true));
+    } finally {
+      release.countDown();
+      holder.join();
+    }
+  }
+
+  @Test
+  void slowCallIsHedged() throws Exception {
+    var resilience = resilience(10, true);
+    // teach the latency percentile that calls are fast
+    for (int i = 0; i < 4; i++) {
+      resilience.callHedged(() -> true);
+    }
+    var attempts = new AtomicInteger();
+    var first = new CountDownLatch(1);
+
+    String result =
+        resilience.callHedged(
+            () -> {
+              if (attempts.incrementAndGet() == 1) {
+                // the first request hangs until the test ends
+                waitFor(first);
+                return "slow";
+              }
+              return "hedged";
+            });
+    first.countDown();
+
+    assertThat(result, is("hedged"));
+    assertThat(attempts.get(), is(2));
+    assertThat(meterRegistry.get(SamResilience.HEDGED_METRIC).counter().count(), is(1.0));
+  }
+
+  @Test
+  void hedgeLoserHoldsItsPermitUntilItEnds() throws Exception {
+    var resilience = resilience(2, true);
+    for (int i = 0; i < 4; i++) {
+      resilience.callHedged(() -> true);
+    }
+    var attempts = new AtomicInteger();
+    var interrupted = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    String result =
+        resilience.callHedged(
+            () -> {
+              if (attempts.incrementAndGet() > 1) {
+                return "hedged";
+              }
+              if (waitFor(release)) {
+                // like a blocking Sam request, carry on after being cancelled
+                interrupted.countDown();
+                waitFor(release);
+              }
+              return "slow";
+            });
+
+    assertThat(result, is("hedged"));
+    assertThat(interrupted.await(5, TimeUnit.SECONDS), is(true));
+    assertThat(resilience.bulkheadAvailablePermits(), is(1));
+
+    release.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (resilience.bulkheadAvailablePermits() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(resilience.bulkheadAvailablePermits(), is(2));
+  }
+
+  @Test
+  void firstSuccessfulIgnoresEarlyFailure() throws Exception {
+    var failed = new CompletableFuture<String>();
+    var succeeded = new CompletableFuture<String>();
+    var result = SamResilience.firstSuccessful(failed, succeeded);
+    failed.completeExceptionally(new ApiException(500, "boom"));
+    assertThat(result.isDone(), is(false));
+    succeeded.complete("ok");
+    assertThat(result.get(), is("ok"));
+  }
+}
@@ -1,11 +1,37 @@
 package bio.terra.iffy.iam;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import bio.terra.common.exception.ErrorReportException;
+import bio.terra.common.iam.BearerToken;
 import bio.terra.iffy.BaseSpringBootTest;
+import bio.terra.iffy.config.SamBatchConfiguration;
+import bio.terra.iffy.config.SamPermissionCacheConfiguration;
+import bio.terra.iffy.config.SamResilienceConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import org.broadinstitute.dsde.workbench.client.sam.ApiException;
+import org.broadinstitute.dsde.workbench.client.sam.api.ResourcesApi;
 import org.broadinstitute.dsde.workbench.client.sam.api.StatusApi;
 import org.broadinstitute.dsde.workbench.client.sam.model.SystemStatus;
 import org.junit.jupiter.api.Test;
@@ -17,11 +43,21 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 @ExtendWith(MockitoExtension.class)
 class SamServiceTest extends BaseSpringBootTest {
 
+  // builds the calls handed to the mocked SamClient; they are never executed
+  private static final OkHttpClient HTTP_CLIENT = new OkHttpClient();
+
   @MockBean private SamClient samClient;
   @MockBean private StatusApi statusApi;
+  @MockBean private ResourcesApi resourcesApi;
 
   @Autowired private SamService samService;
 
+  private void mockResources(BearerToken bearerToken) throws Exception {
+    when(samClient.resourcesApi()).thenReturn(resourcesApi);
+    when(samClient.withAccessToken(eq(bearerToken.getToken()), any()))
+        .thenAnswer(invocation -> invocation.<SamClient.SamCall<?>>getArgument(1).call());
+  }
+
   private void mockStatus() {
     when(samClient.statusApi()).thenReturn(statusApi);
   }
@@ -51,4 +87,116 @@ class SamServiceTest extends BaseSpringBootTest {
     var samStatus = samService.status();
     assertFalse(samStatus.isOk());
   }
+
+  @Test
+  void getActionsChecksEachDistinctActionOnce() throws Exception {
+    // a fresh token per test so the permission cache cannot answer
+    var bearerToken = new BearerToken(UUID.randomUUID().toString());
+    mockResources(bearerToken);
+    when(resourcesApi.resourcePermissionV2("workspace", "a", "read")).thenReturn(true);
+    when(resourcesApi.resourcePermissionV2("workspace", "b", "read")).thenReturn(false);
+    var a = new ResourceAction("workspace", "a", "read");
+    var b = new ResourceAction("workspace", "b", "read");
+
+    var results = samService.getActions(List.of(b, a, b, a), bearerToken);
+
+    assertThat(results.keySet(), contains(b, a));
+    assertThat(results.values(), contains(false, true));
+    verify(resourcesApi, times(1)).resourcePermissionV2("workspace", "a", "read");
+    verify(resourcesApi, times(1)).resourcePermissionV2("workspace", "b", "read");
+  }
+
+  @Test
+  void getActionsFailsAtDeadline() throws Exception {
+    var bearerToken = new BearerToken(UUID.randomUUID().toString());
+    mockResources(bearerToken);
+    when(resourcesApi.resourcePermissionV2(anyString(), anyString(), anyString()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(5000);
+              return true;
+            });
+    var executorFactory = new ExecutorFactory();
+    var service =
+        new SamService(
+            samClient,
+            new SamPermissionCache(
+                new SamPermissionCacheConfiguration(false, 0, 0, 0), new SimpleMeterRegistry()),
+            new SamBatchConfiguration(10, 2, 2, 100),
+            executorFactory,
+            new SamResilience(
+                new SamResilienceConfiguration(10, 0, 50, 10, 10, 60, 1, false, 95, 10),
+                executorFactory,
+                new SimpleMeterRegistry()));
+    var checks =
+        List.of(
+            new ResourceAction("workspace", "a", "read"),
+            new ResourceAction("workspace", "b", "read"));
+
+    var thrown =
+        assertThrows(
+            SamBatchTimeoutException.class, () -> service.getActions(checks, bearerToken));
+    assertThat(thrown.getCauses().size(), is(2));
+  }
+
+  @Test
+  void getActionsAsyncChecksEachDistinctActionOnce() throws Exception {
+    var bearerToken = new BearerToken(UUID.randomUUID().toString());
+    mockAsyncResources(bearerToken, Map.of("a", true, "b", false));
+    var a = new ResourceAction("workspace", "a", "read");
+    var b = new ResourceAction("workspace", "b", "read");
+
+    var results = samService.getActionsAsync(List.of(b, a, b, a), bearerToken).get();
+
+    assertThat(results.keySet(), contains(b, a));
+    assertThat(results.values(), contains(false, true));
+    verify(resourcesApi, times(1)).resourcePermissionV2Call("workspace", "a", "read", null);
+    verify(resourcesApi, times(1)).resourcePermissionV2Call("workspace", "b", "read", null);
+  }
+
+  @Test
+  void getActionAsyncRetriesSamFailures() throws Exception {
+    var bearerToken = new BearerToken(UUID.randomUUID().toString());
+    when(samClient.resourcesApi()).thenReturn(resourcesApi);
+    when(samClient.<Boolean>executeAsync(eq(bearerToken.getToken()), any(), eq(Boolean.class)))
+        .thenReturn(CompletableFuture.failedFuture(new ApiException(503, "unavailable")))
+        .thenReturn(CompletableFuture.completedFuture(true));
+
+    assertTrue(samService.getActionAsync("workspace", "a", "read", bearerToken).get());
+    verify(samClient, times(2)).executeAsync(eq(bearerToken.getToken()), any(), any());
+  }
+
+  @Test
+  void getActionAsyncDoesNotRetryClientErrors() throws Exception {
+    var bearerToken = new BearerToken(UUID.randomUUID().toString());
+    when(samClient.resourcesApi()).thenReturn(resourcesApi);
+    when(samClient.<Boolean>executeAsync(eq(bearerToken.getToken()), any(), eq(Boolean.class)))
+        .thenReturn(CompletableFuture.failedFuture(new ApiException(404, "not found")));
+
+    var result = samService.getActionAsync("workspace", "a", "read", bearerToken);
+
+    var thrown = assertThrows(ExecutionException.class, result::get);
+    assertThat(thrown.getCause(), instanceOf(ErrorReportException.class));
+    verify(samClient, times(1)).executeAsync(eq(bearerToken.getToken()), any(), any());
+  }
+
+  /** Answers asynchronous permission checks on workspace resources with the given decisions. */
+  private void mockAsyncResources(BearerToken bearerToken, Map<String, Boolean> allowed)
+      throws Exception {
+    when(samClient.resourcesApi()).thenReturn(resourcesApi);
+    when(resourcesApi.resourcePermissionV2Call(eq("workspace"), anyString(), eq("read"), any()))
+        .thenAnswer(
+            invocation ->
+                HTTP_CLIENT.newCall(
+                    new Request.Builder()
+                        .url("http://sam/" + invocation.getArgument(1, String.class))
+                        .build()));
+    when(samClient.<Boolean>executeAsync(eq(bearerToken.getToken()), any(), eq(Boolean.class)))
+        .thenAnswer(
+            invocation -> {
+              Call call = invocation.<SamClient.SamCallBuilder>getArgument(1).build();
+              String resourceId = call.request().url().pathSegments().get(0);
+              return CompletableFuture.completedFuture(allowed.get(resourceId));
+            });
+  }
 }
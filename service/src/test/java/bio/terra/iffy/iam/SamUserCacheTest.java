@@ -0,0 +1,84 @@
+package bio.terra.iffy.iam;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import bio.terra.common.exception.UnauthorizedException;
+import bio.terra.common.iam.BearerToken;
+import bio.terra.common.iam.BearerTokenFactory;
+import bio.terra.common.iam.SamUser;
+import bio.terra.common.iam.SamUserFactory;
+import bio.terra.iffy.config.SamConfiguration;
+import bio.terra.iffy.config.SamUserCacheConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class SamUserCacheTest {
+  private static final String BASE_PATH = "basepath";
+
+  private final SamUserFactory samUserFactory = mock(SamUserFactory.class);
+
+  private SamUserCache cache(boolean enabled) {
+    return new SamUserCache(
+        new SamUserCacheConfiguration(enabled, 60, 100),
+        samUserFactory,
+        new BearerTokenFactory(),
+        new SamConfiguration(BASE_PATH, 1, 1, 1, 1, 1, 1),
+        new SimpleMeterRegistry());
+  }
+
+  private static HttpServletRequest request(String token) {
+    var request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer " + token);
+    return request;
+  }
+
+  @Test
+  void cachesIdentityPerToken() {
+    when(samUserFactory.from(any(HttpServletRequest.class), eq(BASE_PATH)))
+        .thenReturn(new SamUser("user@test.org", "subject", new BearerToken("first")));
+    var cache = cache(true);
+
+    SamUser first = cache.from(request("first"));
+    SamUser again = cache.from(request("first"));
+    cache.from(request("second"));
+
+    assertThat(first.getEmail(), is("user@test.org"));
+    assertThat(again.getSubjectId(), is("subject"));
+    // the returned user always carries the current request's token
+    assertThat(again.getBearerToken().getToken(), is("first"));
+    verify(samUserFactory, times(2)).from(any(HttpServletRequest.class), eq(BASE_PATH));
+  }
+
+  @Test
+  void failuresAreNotCached() {
+    when(samUserFactory.from(any(HttpServletRequest.class), eq(BASE_PATH)))
+        .thenThrow(new UnauthorizedException("disabled"))
+        .thenReturn(new SamUser("user@test.org", "subject", new BearerToken("token")));
+    var cache = cache(true);
+
+    assertThrows(UnauthorizedException.class, () -> cache.from(request("token")));
+    assertThat(cache.from(request("token")).getEmail(), is("user@test.org"));
+  }
+
+  @Test
+  void disabledCacheAlwaysAsksSam() {
+    when(samUserFactory.from(any(HttpServletRequest.class), eq(BASE_PATH)))
+        .thenReturn(new SamUser("user@test.org", "subject", new BearerToken("token")));
+    var cache = cache(false);
+
+    cache.from(request("token"));
+    cache.from(request("token"));
+
+    verify(samUserFactory, times(2)).from(any(HttpServletRequest.class), eq(BASE_PATH));
+  }
+}
@@ -1,20 +1,34 @@
 package bio.terra.iffy.service;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 
 import bio.terra.iffy.config.StatusCheckConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
 import bio.terra.iffy.model.SystemStatus;
 import bio.terra.iffy.model.SystemStatusSystems;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
 class BaseStatusServiceTest {
 
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ExecutorFactory executorFactory = new ExecutorFactory();
+
+  private BaseStatusService newService(StatusCheckConfiguration config) {
+    return new BaseStatusService(config, meterRegistry, executorFactory, new ObjectMapper());
+  }
+
   @Test
   void getCurrentStatus() {
-    var config = new StatusCheckConfiguration(true, 0, 0, 10);
-    BaseStatusService service = new BaseStatusService(config);
+    var config = new StatusCheckConfiguration(true, 0, 0, 10, 10, Map.of());
+    BaseStatusService service = newService(config);
     var status = new SystemStatusSystems().ok(true);
     service.registerStatusCheck("test", () -> status);
     assertThat(service.getCurrentStatus(), is(new SystemStatus().ok(false)));
@@ -22,5 +36,75 @@ class BaseStatusServiceTest {
     assertThat(
         service.getCurrentStatus(),
         is(new SystemStatus().ok(true).systems(Map.of("test", status))));
+    assertThat(
+        meterRegistry
+            .get(BaseStatusService.CHECK_METRIC)
+            .tag(BaseStatusService.SYSTEM_TAG, "test")
+            .tag(BaseStatusService.OUTCOME_TAG, "ok")
+            .timer()
+            .count(),
+        is(1L));
+  }
+
+  @Test
+  void slowCheckTimesOutAlone() throws InterruptedException {
+    var config = new StatusCheckConfiguration(true, 0, 0, 10, 10, Map.of("slow", 1));
+    BaseStatusService service = newService(config);
+    var status = new SystemStatusSystems().ok(true);
+    var slowCheckEnded = new CountDownLatch(1);
+    service.registerStatusCheck("fast", () -> status);
+    service.registerStatusCheck(
+        "slow",
+        () -> {
+          try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            slowCheckEnded.countDown();
+          }
+          return status;
+        });
+
+    long started = System.nanoTime();
+    service.checkStatus();
+
+    assertThat(System.nanoTime() - started, lessThan(TimeUnit.SECONDS.toNanos(5)));
+    var current = service.getCurrentStatus();
+    assertThat(current.isOk(), is(false));
+    assertThat(current.getSystems().get("fast"), is(status));
+    assertThat(current.getSystems().get("slow").isOk(), is(false));
+
+    // the abandoned check ends once cancelled, but is only counted as a timeout
+    assertThat(slowCheckEnded.await(5, TimeUnit.SECONDS), is(true));
+    Thread.sleep(100);
+    assertThat(
+        meterRegistry
+            .find(BaseStatusService.CHECK_METRIC)
+            .tag(BaseStatusService.SYSTEM_TAG, "slow")
+            .timers()
+            .stream()
+            .map(timer -> timer.getId().getTag(BaseStatusService.OUTCOME_TAG))
+            .toList(),
+        contains("timeout"));
+  }
+
+  @Test
+  void failingCheckIsNotOk() {
+    var config = new StatusCheckConfiguration(true, 0, 0, 10, 10, null);
+    BaseStatusService service = newService(config);
+    service.registerStatusCheck("ok", () -> new SystemStatusSystems().ok(true));
+    service.registerStatusCheck(
+        "broken",
+        () -> {
+          throw new IllegalStateException("broken");
+        });
+
+    service.checkStatus();
+
+    var current = service.getCurrentStatus();
+    assertThat(current.isOk(), is(false));
+    assertThat(current.getSystems().get("ok").isOk(), is(true));
+    assertThat(current.getSystems().get("broken").isOk(), is(false));
   }
 }
@@ -0,0 +1,152 @@
+package bio.terra.iffy.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.common.exception.BadRequestException;
+import bio.terra.iffy.config.CounterIngestionConfiguration;
+import bio.terra.iffy.model.CounterIncrement;
+import bio.terra.iffy.model.CounterIncrementsResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class CounterIngestionServiceTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private CounterIngestionService service(int maxCounters, int maxTagValues) {
+    return new CounterIngestionService(
+        new CounterIngestionConfiguration(100, maxCounters, 2, maxTagValues), meterRegistry);
+  }
+
+  private static CounterIncrement increment(String name, Map<String, String> tags, long delta) {
+    return new CounterIncrement().name(name).tags(tags).delta(delta);
+  }
+
+  private double count(String name, String... tags) {
+    var counter =
+        meterRegistry
+            .find(CounterIngestionService.NAME_PREFIX + name)
+            .tags(tags)
+            .functionCounter();
+    return counter == null ? 0 : counter.count();
+  }
+
+  private static void assertResult(
+      CounterIncrementsResult result, int accepted, int rejected, int bucketed) {
+    assertThat(result.getAccepted(), is(accepted));
+    assertThat(result.getRejected(), is(rejected));
+    assertThat(result.getBucketed(), is(bucketed));
+  }
+
+  @Test
+  void sumsEntriesByNameAndTags() {
+    var service = service(100, 100);
+
+    var result =
+        service.increment(
+            List.of(
+                increment("ui.clicks", Map.of("button", "save"), 3),
+                increment("ui.clicks", Map.of("button", "save"), 2),
+                increment("ui.clicks", Map.of("button", "cancel"), 1),
+                increment("ui.loads", Map.of(), 7)));
+
+    assertResult(result, 4, 0, 0);
+    assertThat(count("ui.clicks", "button", "save"), is(5.0));
+    assertThat(count("ui.clicks", "button", "cancel"), is(1.0));
+    assertThat(count("ui.loads"), is(7.0));
+  }
+
+  @Test
+  void rejectsInvalidEntries() {
+    var service = service(100, 100);
+
+    var result =
+        service.increment(
+            List.of(
+                increment("Not A Name", Map.of(), 1),
+                increment("ui.clicks", Map.of("a", "1", "b", "2", "c", "3"), 1),
+                increment("ui.clicks", Map.of(), -1),
+                increment("ui.clicks", Map.of("button", "save"), 1),
+                // counters of one name must have the same tag keys
+                increment("ui.clicks", Map.of("page", "home"), 1)));
+
+    assertResult(result, 1, 4, 0);
+    assertThat(count("ui.clicks", "button", "save"), is(1.0));
+  }
+
+  @Test
+  void boundsCardinality() {
+    var service = service(3, 2);
+
+    var result =
+        service.increment(
+            List.of(
+                increment("ui.clicks", Map.of("button", "save"), 1),
+                increment("ui.clicks", Map.of("button", "cancel"), 1),
+                increment("ui.clicks", Map.of("button", "help"), 1),
+                increment("ui.clicks", Map.of("button", "close"), 1)));
+    assertResult(result, 4, 0, 2);
+    assertThat(count("ui.clicks", "button", CounterIngestionService.OTHER), is(2.0));
+
+    var overflow = service.increment(List.of(increment("ui.loads", Map.of(), 1)));
+    assertResult(overflow, 0, 1, 0);
+    assertThat(meterRegistry.getMeters().size(), is(3));
+  }
+
+  @Test
+  void rejectedEntriesTrackNoTagValues() {
+    var service = service(1, 100);
+    service.increment(List.of(increment("ui.clicks", Map.of("button", "save"), 1)));
+
+    for (int i = 0; i < 10; i++) {
+      var result =
+          service.increment(
+              List.of(
+                  increment("ui.name" + (char) ('a' + i), Map.of("button", "save"), 1),
+                  increment("ui.clicks", Map.of("page", "home"), 1)));
+      assertResult(result, 0, 2, 0);
+    }
+
+    assertThat(service.trackedTags(), is(1));
+  }
+
+  @Test
+  void tooManyEntries() {
+    var service = service(100, 100);
+    var increments = Collections.nCopies(101, increment("ui.clicks", Map.of(), 1));
+
+    assertThrows(BadRequestException.class, () -> service.increment(increments));
+  }
+
+  @Test
+  void concurrentBatchesLoseNoCounts() throws Exception {
+    var service = service(100, 100);
+    var batch =
+        List.of(
+            increment("ui.clicks", Map.of("button", "save"), 1),
+            increment("ui.clicks", Map.of("button", "cancel"), 2));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        futures.add(executor.submit(() -> service.increment(batch)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(count("ui.clicks", "button", "save"), is(1000.0));
+    assertThat(count("ui.clicks", "button", "cancel"), is(2000.0));
+  }
+}
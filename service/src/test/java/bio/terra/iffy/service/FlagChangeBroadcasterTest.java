@@ -0,0 +1,135 @@
+package bio.terra.iffy.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.config.FlagStreamConfiguration;
+import bio.terra.iffy.execution.ExecutorFactory;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.FlagSnapshot;
+import bio.terra.iffy.flags.Segment;
+import bio.terra.iffy.service.FlagChangeBroadcaster.DeltaEvent;
+import bio.terra.iffy.service.FlagChangeBroadcaster.SnapshotEvent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class FlagChangeBroadcasterTest {
+
+  private static FlagDefinition flag(String key, String defaultVariant) {
+    return new FlagDefinition(
+        key,
+        true,
+        Map.of("on", true, "off", false),
+        defaultVariant,
+        null,
+        Map.of("defaultVariant", defaultVariant));
+  }
+
+  private static FlagSnapshot snapshot(long version, FlagDefinition... flags) {
+    return new FlagSnapshot(
+        version, Arrays.stream(flags).collect(Collectors.toMap(FlagDefinition::key, f -> f)));
+  }
+
+  private static FlagChangeBroadcaster broadcaster(int replayBufferSize) {
+    return new FlagChangeBroadcaster(
+        new FlagStreamConfiguration(0, 1, replayBufferSize, 10, 1), null, new ExecutorFactory());
+  }
+
+  @Test
+  void delta() {
+    var previous = snapshot(1, flag("same", "on"), flag("changed", "on"), flag("removed", "on"));
+    var current = snapshot(2, flag("same", "on"), flag("changed", "off"), flag("added", "on"));
+
+    DeltaEvent delta = FlagChangeBroadcaster.delta(previous, current);
+
+    assertThat(delta.version(), is(2L));
+    assertThat(delta.changed().keySet(), containsInAnyOrder("changed", "added"));
+    assertThat(delta.removed(), contains("removed"));
+  }
+
+  @Test
+  void deltaCarriesResolvedTargeting() {
+    // the source still says {"$ref": "is-tester"}; only the evaluator it refers to changed
+    Map<String, Object> source = Map.of("targeting", Map.of("$ref", "is-tester"));
+    Map<String, Object> variants = Map.of("on", true, "off", false);
+    Object before = Map.of("if", List.of(Map.of("==", List.of(Map.of("var", "email"), "a")), "on"));
+    Object after = Map.of("if", List.of(Map.of("==", List.of(Map.of("var", "email"), "b")), "on"));
+    var previous = snapshot(1, new FlagDefinition("a", true, variants, "off", before, source));
+    var current = snapshot(2, new FlagDefinition("a", true, variants, "off", after, source));
+
+    DeltaEvent delta = FlagChangeBroadcaster.delta(previous, current);
+
+    assertThat(delta.changed().keySet(), contains("a"));
+    assertThat(((Map<?, ?>) delta.changed().get("a")).get("targeting"), is(after));
+  }
+
+  @Test
+  void deltaCarriesChangedSegments() {
+    var flags = Map.of("a", flag("a", "on"));
+    var previous =
+        new FlagSnapshot(
+            1,
+            flags,
+            Map.of(
+                "testers", Segment.of("testers", List.of("a@example.com")),
+                "removed", Segment.of("removed", List.of("c@example.com"))));
+    var current =
+        new FlagSnapshot(
+            2,
+            flags,
+            Map.of("testers", Segment.of("testers", List.of("a@example.com", "b@example.com"))));
+
+    DeltaEvent delta = FlagChangeBroadcaster.delta(previous, current);
+
+    assertThat(delta.changed(), is(Map.of()));
+    assertThat(
+        delta.changedSegments(), is(Map.of("testers", List.of("a@example.com", "b@example.com"))));
+    assertThat(delta.removedSegments(), contains("removed"));
+  }
+
+  @Test
+  void newSubscriberGetsSnapshot() {
+    var broadcaster = broadcaster(10);
+    broadcaster.advanceTo(snapshot(1, flag("a", "on")));
+
+    var events = broadcaster.eventsSince(null);
+
+    assertThat(events.size(), is(1));
+    assertThat(events.get(0), instanceOf(SnapshotEvent.class));
+    assertThat(((SnapshotEvent) events.get(0)).flags().keySet(), contains("a"));
+  }
+
+  @Test
+  void resumingSubscriberGetsMissedDeltas() {
+    var broadcaster = broadcaster(10);
+    broadcaster.advanceTo(snapshot(1, flag("a", "on")));
+    broadcaster.advanceTo(snapshot(2, flag("a", "off")));
+    broadcaster.advanceTo(snapshot(3, flag("a", "off"), flag("b", "on")));
+
+    assertThat(broadcaster.eventsSince(broadcaster.eventId(3)), empty());
+    var events = broadcaster.eventsSince(broadcaster.eventId(1));
+    assertThat(
+        events.stream().map(event -> ((DeltaEvent) event).version()).toList(), contains(2L, 3L));
+  }
+
+  @Test
+  void resumeBeyondReplayBufferGetsSnapshot() {
+    var broadcaster = broadcaster(1);
+    broadcaster.advanceTo(snapshot(1, flag("a", "on")));
+    broadcaster.advanceTo(snapshot(2, flag("a", "off")));
+    broadcaster.advanceTo(snapshot(3, flag("b", "on")));
+
+    var events = broadcaster.eventsSince(broadcaster.eventId(1));
+    assertThat(events.size(), is(1));
+    assertThat(events.get(0), instanceOf(SnapshotEvent.class));
+    // ids issued by another process are never trusted
+    assertThat(broadcaster.eventsSince("other-epoch:2").get(0), instanceOf(SnapshotEvent.class));
+  }
+}
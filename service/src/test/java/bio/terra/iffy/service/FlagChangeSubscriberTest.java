@@ -0,0 +1,63 @@
+package bio.terra.iffy.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.storage.FlagChangeFeed.FlagChange;
+import bio.terra.iffy.storage.InMemoryFlagConfigStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class FlagChangeSubscriberTest {
+
+  @Test
+  void announcedVersionReachesOtherReplica() throws Exception {
+    var storage = new InMemoryFlagConfigStorage();
+    var writer =
+        FlagStoreTest.flagStore("classpath:flags/test-flags.json", null, Optional.of(storage));
+    var reader =
+        FlagStoreTest.flagStore("classpath:flags/does-not-exist.json", null, Optional.of(storage));
+    var meterRegistry = new SimpleMeterRegistry();
+    var subscriber = new FlagChangeSubscriber(reader, Optional.of(storage), meterRegistry);
+    subscriber.start();
+
+    writer.reload();
+
+    // the reader loads the announced version on its own thread
+    var lag = meterRegistry.timer(FlagChangeSubscriber.LAG_METRIC);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (lag.count() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(lag.count(), is(1L));
+    assertThat(reader.current().asMap(), is(writer.current().asMap()));
+  }
+
+  @Test
+  void lagIsMeasuredFromStoreTime() throws Exception {
+    var storage = new InMemoryFlagConfigStorage();
+    FlagStoreTest.flagStore("classpath:flags/test-flags.json", null, Optional.of(storage)).reload();
+    var reader =
+        FlagStoreTest.flagStore("classpath:flags/does-not-exist.json", null, Optional.of(storage));
+    var storedAt = Instant.parse("2024-01-01T00:00:00Z");
+    var meterRegistry = new SimpleMeterRegistry();
+    var subscriber =
+        new FlagChangeSubscriber(
+            reader,
+            Optional.of(storage),
+            meterRegistry,
+            Clock.fixed(storedAt.plusMillis(250), ZoneOffset.UTC));
+
+    assertThat(subscriber.onChange(new FlagChange(1, storedAt)).get(), is(true));
+    assertThat(subscriber.onChange(new FlagChange(1, storedAt)).get(), is(false));
+
+    var lag = meterRegistry.timer(FlagChangeSubscriber.LAG_METRIC);
+    assertThat(lag.count(), is(1L));
+    assertThat(lag.totalTime(TimeUnit.MILLISECONDS), is(250.0));
+  }
+}
@@ -0,0 +1,81 @@
+package bio.terra.iffy.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import bio.terra.iffy.config.FlagEvaluationCacheConfiguration;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagDefinition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FlagEvaluationCacheTest {
+
+  static FlagEvaluationCache evaluationCache(boolean enabled) {
+    return new FlagEvaluationCache(
+        new FlagEvaluationCacheConfiguration(enabled, 100), new SimpleMeterRegistry());
+  }
+
+  private static FlagDefinition flag(Object targeting) {
+    return new FlagDefinition(
+        "beta", true, Map.of("on", true, "off", false), "off", targeting, Map.of());
+  }
+
+  private static final FlagDefinition EMAIL_FLAG =
+      flag(Map.of("if", List.of(Map.of("==", List.of(Map.of("var", "email"), "qa@x.org")), "on")));
+
+  @Test
+  void contextsThatReadAlikeShareResults() {
+    var cache = evaluationCache(true);
+    var first = cache.evaluate(EMAIL_FLAG, 1, FlagContext.of("a", Map.of("email", "qa@x.org")));
+    var ignoredAttributeDiffers =
+        cache.evaluate(
+            EMAIL_FLAG, 1, FlagContext.of("b", Map.of("email", "qa@x.org", "tier", "free")));
+    var readAttributeDiffers =
+        cache.evaluate(EMAIL_FLAG, 1, FlagContext.of("a", Map.of("email", "other@x.org")));
+
+    assertThat(first.value(), is(true));
+    assertThat(ignoredAttributeDiffers, sameInstance(first));
+    assertThat(readAttributeDiffers.value(), is(false));
+  }
+
+  @Test
+  void newVersionMissesOldResults() {
+    var cache = evaluationCache(true);
+    var context = FlagContext.of("a", Map.of("email", "qa@x.org"));
+    var first = cache.evaluate(EMAIL_FLAG, 1, context);
+
+    assertThat(cache.evaluate(EMAIL_FLAG, 1, context), sameInstance(first));
+    assertThat(cache.evaluate(EMAIL_FLAG, 2, context), not(sameInstance(first)));
+  }
+
+  @Test
+  void uncacheableFlagsAreEvaluatedEachTime() {
+    var cache = evaluationCache(true);
+    var context = FlagContext.of("a", Map.of("email", "qa@x.org"));
+    var wholeContext = flag(Map.of("if", List.of(Map.of("var", ""), "on")));
+    var timed =
+        flag(
+            Map.of(
+                "if",
+                List.of(Map.of(">", List.of(Map.of("var", "$flagd.timestamp"), 0)), "on")));
+
+    for (FlagDefinition flag : List.of(wholeContext, timed)) {
+      var first = cache.evaluate(flag, 1, context);
+      assertThat(first.value(), is(true));
+      assertThat(cache.evaluate(flag, 1, context), not(sameInstance(first)));
+    }
+  }
+
+  @Test
+  void disabledCacheEvaluatesEachTime() {
+    var cache = evaluationCache(false);
+    var context = FlagContext.of("a", Map.of("email", "qa@x.org"));
+    var first = cache.evaluate(EMAIL_FLAG, 1, context);
+    assertThat(cache.evaluate(EMAIL_FLAG, 1, context), not(sameInstance(first)));
+  }
+}
@@ -0,0 +1,107 @@
+package bio.terra.iffy.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import bio.terra.iffy.config.MetricsConfiguration;
+import bio.terra.iffy.exposure.ExposureLogTest;
+import bio.terra.iffy.flags.FlagContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FlagMetricsTest {
+  private static final FlagContext TESTER =
+      FlagContext.of("user-1", Map.of("email", "qa@example.com"));
+  private static final FlagContext OTHER =
+      FlagContext.of("user-2", Map.of("email", "someone@example.com"));
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  /** Flag metrics in a registry of their own, for tests of their callers. */
+  static FlagMetrics flagMetrics(FlagStore flagStore) {
+    return flagMetrics(flagStore, 500, new SimpleMeterRegistry());
+  }
+
+  private static FlagMetrics flagMetrics(
+      FlagStore flagStore, int maxFlagKeys, MeterRegistry meterRegistry) {
+    return new FlagMetrics(flagStore, new MetricsConfiguration(maxFlagKeys), meterRegistry);
+  }
+
+  private FlagEvaluationService evaluationService(FlagStore store, int maxFlagKeys) {
+    return new FlagEvaluationService(
+        store,
+        FlagEvaluationCacheTest.evaluationCache(false),
+        ExposureLogTest.disabled(),
+        flagMetrics(store, maxFlagKeys, meterRegistry));
+  }
+
+  private double evaluations(String flag, String variant, String reason) {
+    var counter =
+        meterRegistry
+            .find(FlagMetrics.EVALUATIONS_METRIC)
+            .tags("flag", flag, "variant", variant, "reason", reason)
+            .counter();
+    return counter == null ? 0 : counter.count();
+  }
+
+  @Test
+  void recordsLatencyAndOutcomePerFlag() {
+    var store = FlagStoreTest.flagStore("classpath:flags/test-flags.json");
+    store.reload();
+    var service = evaluationService(store, 500);
+
+    service.evaluate("targeted-flag", TESTER);
+    service.evaluate("targeted-flag", TESTER);
+    service.evaluate("targeted-flag", OTHER);
+    service.evaluate("disabled-flag", OTHER);
+
+    assertThat(evaluations("targeted-flag", "beta", "TARGETING_MATCH"), is(2.0));
+    assertThat(evaluations("targeted-flag", "stable", "DEFAULT"), is(1.0));
+    assertThat(evaluations("disabled-flag", FlagMetrics.NO_VARIANT, "DISABLED"), is(1.0));
+    var latency =
+        meterRegistry.get(FlagMetrics.LATENCY_METRIC).tag("flag", "targeted-flag").timer();
+    assertThat(latency.count(), is(3L));
+    // latency timers are registered up front, counters only once their outcome occurs
+    assertThat(
+        meterRegistry.get(FlagMetrics.LATENCY_METRIC).timers().stream()
+            .map(timer -> timer.getId().getTag("flag"))
+            .toList(),
+        containsInAnyOrder("static-flag", "targeted-flag", "disabled-flag", FlagMetrics.OTHER));
+    assertThat(evaluations("static-flag", "on", "STATIC"), is(0.0));
+  }
+
+  @Test
+  void flagsBeyondLimitShareMeters() {
+    var store = FlagStoreTest.flagStore("classpath:flags/test-flags.json");
+    store.reload();
+    var service = evaluationService(store, 1);
+
+    service.evaluateAll(null, OTHER);
+
+    assertThat(meterRegistry.get(FlagMetrics.LATENCY_METRIC).timers().size(), is(2));
+    var shared =
+        meterRegistry.get(FlagMetrics.LATENCY_METRIC).tag("flag", FlagMetrics.OTHER).timer();
+    assertThat(shared.count(), is(2L));
+  }
+
+  @Test
+  void removedFlagsLoseTheirMeters() {
+    var store = FlagStoreTest.flagStore("classpath:flags/test-flags.json");
+    store.reload();
+    var service = evaluationService(store, 500);
+    service.evaluate("targeted-flag", TESTER);
+
+    store.publish(Map.of("static-flag", store.current().get("static-flag")));
+    service.evaluate("static-flag", OTHER);
+
+    assertThat(
+        meterRegistry.find(FlagMetrics.LATENCY_METRIC).tag("flag", "targeted-flag").meter(),
+        is(nullValue()));
+    assertThat(evaluations("targeted-flag", "beta", "TARGETING_MATCH"), is(0.0));
+    assertThat(evaluations("static-flag", "on", "STATIC"), is(1.0));
+  }
+}
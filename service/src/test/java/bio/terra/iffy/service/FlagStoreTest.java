@@ -0,0 +1,201 @@
+package bio.terra.iffy.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.iffy.config.FlagConfiguration;
+import bio.terra.iffy.exposure.ExposureLogTest;
+import bio.terra.iffy.flags.ErrorCode;
+import bio.terra.iffy.flags.EvaluationReason;
+import bio.terra.iffy.flags.FlagContext;
+import bio.terra.iffy.flags.FlagDefinition;
+import bio.terra.iffy.flags.Segment;
+import bio.terra.iffy.storage.FlagConfigRepository;
+import bio.terra.iffy.storage.InMemoryFlagConfigStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+class FlagStoreTest {
+  @TempDir Path tempDir;
+
+  static FlagStore flagStore(String location) {
+    return flagStore(location, null, Optional.empty());
+  }
+
+  static FlagStore flagStore(
+      String location, Path warmStartFile, Optional<FlagConfigRepository> repository) {
+    return new FlagStore(
+        new FlagConfiguration(
+            location, 0, warmStartFile == null ? null : warmStartFile.toString(), 0),
+        new DefaultResourceLoader(),
+        new ObjectMapper(),
+        repository,
+        event -> {});
+  }
+
+  @Test
+  void reloadPublishesSnapshot() {
+    var store = flagStore("classpath:flags/test-flags.json");
+    assertThat(store.current().size(), is(0));
+    assertThat(store.status().isOk(), is(false));
+
+    store.reload();
+
+    assertThat(store.current().size(), is(3));
+    assertThat(store.current().version(), is(1L));
+    assertThat(store.status().isOk(), is(true));
+  }
+
+  @Test
+  void segmentChangesPublishNewSnapshot() {
+    var store = flagStore("classpath:flags/test-flags.json");
+    store.reload();
+    Map<String, FlagDefinition> flags = store.current().asMap();
+
+    var first = store.publish(flags, Map.of("testers", Segment.of("testers", List.of("a"))));
+    var unchanged = store.publish(flags, Map.of("testers", Segment.of("testers", List.of("a"))));
+    var changed = store.publish(flags, Map.of("testers", Segment.of("testers", List.of("b"))));
+
+    assertThat(first.version(), is(2L));
+    assertThat(unchanged.version(), is(2L));
+    assertThat(changed.version(), is(3L));
+    assertThat(changed.segments().get("testers").contains("b"), is(true));
+  }
+
+  @Test
+  void locationIsRequired() {
+    var thrown = assertThrows(IllegalStateException.class, () -> flagStore(""));
+    assertThat(thrown.getMessage().contains("FLAGS_LOCATION"), is(true));
+  }
+
+  @Test
+  void reloadFailureKeepsPreviousSnapshot() {
+    var store = flagStore("classpath:flags/does-not-exist.json");
+    store.reload();
+    assertThat(store.current().version(), is(0L));
+    assertThat(store.status().isOk(), is(false));
+  }
+
+  @Test
+  void warmStartServesLastPublishedFlags() {
+    Path file = tempDir.resolve("flags.snapshot");
+    var first = flagStore("classpath:flags/test-flags.json", file, Optional.empty());
+    assertThat(first.warmStart(), is(false));
+    first.reload();
+
+    var restarted = flagStore("classpath:flags/does-not-exist.json", file, Optional.empty());
+    assertThat(restarted.warmStart(), is(true));
+    assertThat(restarted.current().asMap(), is(first.current().asMap()));
+    assertThat(restarted.current().contentHash(), is(first.current().contentHash()));
+    assertThat(restarted.status().isOk(), is(true));
+  }
+
+  @Test
+  void reloadStoresDocumentAndFallsBackToStoredVersion() {
+    var repository = new InMemoryFlagConfigStorage();
+    var store = flagStore("classpath:flags/test-flags.json", null, Optional.of(repository));
+    store.reload();
+    assertThat(repository.size(), is(1));
+
+    var unreachable =
+        flagStore("classpath:flags/does-not-exist.json", null, Optional.of(repository));
+    unreachable.reload();
+    assertThat(unreachable.current().asMap(), is(store.current().asMap()));
+    assertThat(unreachable.status().isOk(), is(false));
+  }
+
+  @Test
+  void snapshotsIdentifyTheDocumentTheyWereLoadedFrom() {
+    var unstored = flagStore("classpath:flags/test-flags.json");
+    unstored.reload();
+    var repository = new InMemoryFlagConfigStorage();
+    var store = flagStore("classpath:flags/test-flags.json", null, Optional.of(repository));
+    store.reload();
+    var unreachable =
+        flagStore("classpath:flags/does-not-exist.json", null, Optional.of(repository));
+    unreachable.reload();
+
+    String hash = FlagConfigRepository.contentHash(repository.latest().orElseThrow().document());
+    assertThat(unstored.current().configVersion(), is(0L));
+    assertThat(unstored.current().contentHash(), is(hash));
+    assertThat(store.current().configVersion(), is(1L));
+    assertThat(store.current().contentHash(), is(hash));
+    assertThat(unreachable.current().configVersion(), is(1L));
+    assertThat(unreachable.current().contentHash(), is(hash));
+  }
+
+  @Test
+  void reloadPrefersNewerStoredVersionOverWarmStart() {
+    Path file = tempDir.resolve("flags.snapshot");
+    var repository = new InMemoryFlagConfigStorage();
+    flagStore("classpath:flags/test-flags.json", file, Optional.of(repository)).reload();
+    repository.store("{\"flags\": {}}");
+
+    var restarted = flagStore("classpath:flags/does-not-exist.json", file, Optional.of(repository));
+    assertThat(restarted.warmStart(), is(true));
+    assertThat(restarted.current().size(), is(3));
+    restarted.reload();
+    assertThat(restarted.current().size(), is(0));
+    assertThat(restarted.current().version(), is(2L));
+  }
+
+  @Test
+  void evaluate() {
+    var store = flagStore("classpath:flags/test-flags.json");
+    store.reload();
+    var service =
+        new FlagEvaluationService(
+            store,
+            FlagEvaluationCacheTest.evaluationCache(false),
+            ExposureLogTest.disabled(),
+            FlagMetricsTest.flagMetrics(store));
+
+    var tester = FlagContext.of("user-1", Map.of("email", "qa@example.com"));
+    var other = FlagContext.of("user-2", Map.of("email", "someone@example.com"));
+
+    var targeted = service.evaluate("targeted-flag", tester);
+    assertThat(targeted.value(), is("beta-ui"));
+    assertThat(targeted.reason(), is(EvaluationReason.TARGETING_MATCH));
+
+    var fallback = service.evaluate("targeted-flag", other);
+    assertThat(fallback.value(), is("stable-ui"));
+    assertThat(fallback.reason(), is(EvaluationReason.DEFAULT));
+
+    var unconditional = service.evaluate("static-flag", other);
+    assertThat(unconditional.value(), is(true));
+    assertThat(unconditional.reason(), is(EvaluationReason.STATIC));
+
+    var disabled = service.evaluate("disabled-flag", other);
+    assertThat(disabled.value(), nullValue());
+    assertThat(disabled.reason(), is(EvaluationReason.DISABLED));
+  }
+
+  @Test
+  void evaluateAll() {
+    var store = flagStore("classpath:flags/test-flags.json");
+    store.reload();
+    var service =
+        new FlagEvaluationService(
+            store,
+            FlagEvaluationCacheTest.evaluationCache(false),
+            ExposureLogTest.disabled(),
+            FlagMetricsTest.flagMetrics(store));
+    var context = FlagContext.of("user-1", Map.of("email", "tester@example.com"));
+
+    var all = service.evaluateAll(null, context);
+    assertThat(all.keySet(), containsInAnyOrder("static-flag", "targeted-flag", "disabled-flag"));
+
+    var some = service.evaluateAll(List.of("targeted-flag", "no-such-flag"), context);
+    assertThat(some.get("targeted-flag").value(), is("beta-ui"));
+    assertThat(some.get("no-such-flag").errorCode(), is(ErrorCode.FLAG_NOT_FOUND));
+  }
+}
@@ -0,0 +1,48 @@
+package bio.terra.iffy.storage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Stands in for the flag_config table and its LISTEN/NOTIFY channel: versions are kept in a list,
+ * and each new version is announced to subscribers as soon as it is stored.
+ */
+public class InMemoryFlagConfigStorage implements FlagConfigRepository, FlagChangeFeed {
+  private final List<StoredConfig> versions = new ArrayList<>();
+  private final List<Consumer<FlagChange>> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public synchronized Optional<StoredConfig> latest() {
+    return versions.isEmpty() ? Optional.empty() : Optional.of(versions.get(versions.size() - 1));
+  }
+
+  @Override
+  public StoredConfig store(String document) {
+    StoredConfig stored;
+    synchronized (this) {
+      Optional<StoredConfig> latest = latest();
+      if (latest.isPresent() && latest.get().document().equals(document)) {
+        return latest.get();
+      }
+      stored = new StoredConfig(versions.size() + 1, document);
+      versions.add(stored);
+    }
+    var change = new FlagChange(stored.version(), Instant.now());
+    listeners.forEach(listener -> listener.accept(change));
+    return stored;
+  }
+
+  public synchronized int size() {
+    return versions.size();
+  }
+
+  @Override
+  public Subscription subscribe(Consumer<FlagChange> listener) {
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+}
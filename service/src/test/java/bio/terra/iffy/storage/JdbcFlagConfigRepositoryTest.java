@@ -0,0 +1,175 @@
+package bio.terra.iffy.storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import bio.terra.iffy.storage.FlagChangeFeed.FlagChange;
+import bio.terra.iffy.storage.FlagChangeFeed.Subscription;
+import bio.terra.iffy.storage.FlagConfigRepository.StoredConfig;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JdbcFlagConfigRepositoryTest {
+  private static final int ROUNDS = 50;
+
+  private DataSource dataSource;
+  private JdbcFlagConfigRepository repository;
+  private final ExecutorService replicas = Executors.newFixedThreadPool(2);
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    dataSource = TestDatabase.emptied("flag_config");
+    repository = new JdbcFlagConfigRepository(dataSource);
+  }
+
+  @AfterEach
+  void tearDown() {
+    replicas.shutdownNow();
+  }
+
+  private Optional<String> storedDocument(long version) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement =
+            connection.prepareStatement("SELECT document FROM flag_config WHERE version = ?")) {
+      statement.setLong(1, version);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() ? Optional.of(resultSet.getString(1)) : Optional.empty();
+      }
+    }
+  }
+
+  /** Stores the two documents at once, as two replicas would, with separate repositories. */
+  private List<StoredConfig> storeConcurrently(String first, String second) throws Exception {
+    var barrier = new CyclicBarrier(2);
+    List<Future<StoredConfig>> stores = new ArrayList<>();
+    for (String document : List.of(first, second)) {
+      var replica = new JdbcFlagConfigRepository(dataSource);
+      stores.add(
+          replicas.submit(
+              () -> {
+                barrier.await();
+                return replica.store(document);
+              }));
+    }
+    List<StoredConfig> stored = new ArrayList<>();
+    for (Future<StoredConfig> store : stores) {
+      stored.add(store.get(10, TimeUnit.SECONDS));
+    }
+    return stored;
+  }
+
+  @Test
+  void storesEachDistinctDocumentOnce() {
+    assertThat(repository.latest(), is(Optional.empty()));
+
+    assertThat(repository.store("{\"a\": 1}"), is(new StoredConfig(1, "{\"a\": 1}")));
+    assertThat(repository.store("{\"a\": 1}"), is(new StoredConfig(1, "{\"a\": 1}")));
+    assertThat(repository.store("{\"a\": 2}"), is(new StoredConfig(2, "{\"a\": 2}")));
+    assertThat(repository.latest(), is(Optional.of(new StoredConfig(2, "{\"a\": 2}"))));
+  }
+
+  @Test
+  void concurrentStoresOfDifferentDocumentsGetTheirOwnVersions() throws Exception {
+    Set<Long> versions = new HashSet<>();
+    for (int round = 0; round < ROUNDS; round++) {
+      String first = "{\"round\": " + round + ", \"replica\": 1}";
+      String second = "{\"round\": " + round + ", \"replica\": 2}";
+
+      List<StoredConfig> stored = storeConcurrently(first, second);
+
+      assertThat(stored.get(0).document(), is(first));
+      assertThat(stored.get(1).document(), is(second));
+      assertThat(stored.get(0).version(), not(stored.get(1).version()));
+      assertThat(storedDocument(stored.get(0).version()), is(Optional.of(first)));
+      assertThat(storedDocument(stored.get(1).version()), is(Optional.of(second)));
+      versions.add(stored.get(0).version());
+      versions.add(stored.get(1).version());
+    }
+    assertThat(versions.size(), is(2 * ROUNDS));
+  }
+
+  @Test
+  void concurrentStoresOfTheSameDocumentShareItsVersion() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      String document = "{\"round\": " + round + "}";
+
+      List<StoredConfig> stored = storeConcurrently(document, document);
+
+      assertThat(stored.get(0), is(stored.get(1)));
+      assertThat(stored.get(0).version(), is(round + 1L));
+    }
+    assertThat(repository.latest().orElseThrow().version(), is((long) ROUNDS));
+  }
+
+  @Test
+  void eachStoredVersionIsAnnouncedOnceItIsCommitted() throws Exception {
+    BlockingQueue<FlagChange> changes = new LinkedBlockingQueue<>();
+    List<Long> announcedBeforeCommit = new CopyOnWriteArrayList<>();
+    Subscription subscription =
+        new PostgresFlagChangeFeed(TestDatabase.CONFIGURATION)
+            .subscribe(
+                change -> {
+                  try {
+                    if (storedDocument(change.version()).isEmpty()) {
+                      announcedBeforeCommit.add(change.version());
+                    }
+                  } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                  }
+                  changes.add(change);
+                });
+    try {
+      // the listener connects in the background; store until it hears something
+      long listeningFrom = 0;
+      for (int i = 0; listeningFrom == 0 && i < 100; i++) {
+        repository.store("{\"warm-up\": " + i + "}");
+        FlagChange change = changes.poll(100, TimeUnit.MILLISECONDS);
+        listeningFrom = change == null ? 0 : change.version();
+      }
+      assertThat(listeningFrom > 0, is(true));
+      Thread.sleep(500);
+      changes.clear();
+
+      Set<Long> stored = new HashSet<>();
+      for (int round = 0; round < 10; round++) {
+        String document = "{\"round\": " + round + "}";
+        storeConcurrently(document, "{\"round\": " + round + ", \"replica\": 2}")
+            .forEach(config -> stored.add(config.version()));
+        // a replica that loses with the same document announces nothing
+        storeConcurrently(document, document).forEach(config -> stored.add(config.version()));
+      }
+
+      List<Long> announced = new ArrayList<>();
+      while (announced.size() < stored.size()) {
+        FlagChange change = changes.poll(10, TimeUnit.SECONDS);
+        assertThat(change != null, is(true));
+        announced.add(change.version());
+      }
+      assertThat(changes.poll(500, TimeUnit.MILLISECONDS), is((FlagChange) null));
+      assertThat(new HashSet<>(announced), is(stored));
+      assertThat(announcedBeforeCommit, is(List.of()));
+    } finally {
+      subscription.close();
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package bio.terra.iffy.storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import bio.terra.iffy.storage.FlagChangeFeed.FlagChange;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class PostgresFlagChangeFeedTest {
+
+  @Test
+  void payloadRoundTrip() {
+    var change = new FlagChange(42, Instant.ofEpochMilli(1_700_000_000_123L));
+    String payload = PostgresFlagChangeFeed.payload(change);
+
+    assertThat(payload, is("42:1700000000123"));
+    assertThat(PostgresFlagChangeFeed.parse(payload), is(Optional.of(change)));
+  }
+
+  @Test
+  void malformedPayloadIsIgnored() {
+    assertThat(PostgresFlagChangeFeed.parse(null), is(Optional.empty()));
+    assertThat(PostgresFlagChangeFeed.parse("42"), is(Optional.empty()));
+    assertThat(PostgresFlagChangeFeed.parse("x:1"), is(Optional.empty()));
+  }
+}
@@ -0,0 +1,61 @@
+package bio.terra.iffy.storage;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import bio.terra.iffy.config.DatabaseConfiguration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * The local Postgres database that CI provides, set up by common/postgres-init.sql, with the
+ * changelog applied. Tests that need it are skipped where it is not running.
+ */
+public final class TestDatabase {
+  public static final DatabaseConfiguration CONFIGURATION =
+      new DatabaseConfiguration(
+          true, "jdbc:postgresql://127.0.0.1:5432/iffy_db", "dbuser", "dbpwd", 8, 8);
+
+  private static DataSource dataSource;
+
+  private TestDatabase() {}
+
+  /**
+   * Connects to the database, if it is running, and empties the given tables.
+   *
+   * @return a pooled data source for the database
+   */
+  public static synchronized DataSource emptied(String... tables) throws SQLException {
+    if (dataSource == null) {
+      DataSource connecting = new IffyDatabase().dataSource(CONFIGURATION);
+      try (Connection connection = connecting.getConnection()) {
+        assumeTrue(connection.isValid(1));
+      } catch (SQLException e) {
+        assumeTrue(false, "Postgres is not running at " + CONFIGURATION.uri());
+      }
+      migrate(connecting);
+      dataSource = connecting;
+    }
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("TRUNCATE " + String.join(", ", tables));
+    }
+    return dataSource;
+  }
+
+  private static void migrate(DataSource dataSource) throws SQLException {
+    var liquibase = new SpringLiquibase();
+    liquibase.setDataSource(dataSource);
+    liquibase.setChangeLog("classpath:db/changelog.yaml");
+    liquibase.setResourceLoader(new DefaultResourceLoader());
+    try {
+      liquibase.afterPropertiesSet();
+    } catch (LiquibaseException e) {
+      throw new SQLException("Failed to apply the changelog", e);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package bio.terra.iffy.storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WarmStartFileTest {
+  private static final Map<String, Object> DOCUMENT =
+      Map.of("flags", Map.of("flag", Map.of("state", "ENABLED", "variants", List.of(1, 2.5))));
+
+  @TempDir Path tempDir;
+
+  @Test
+  void roundTrip() throws IOException {
+    var file = new WarmStartFile(tempDir.resolve("nested/flags.snapshot"));
+    assertThat(file.read(), is(Optional.empty()));
+
+    file.write(3, DOCUMENT);
+    file.write(4, DOCUMENT);
+
+    var contents = file.read().orElseThrow();
+    assertThat(contents.configVersion(), is(4L));
+    assertThat(contents.document(), is(DOCUMENT));
+    assertThat(Files.exists(tempDir.resolve("nested/flags.snapshot.tmp")), is(false));
+  }
+
+  @Test
+  void rejectsCorruptFile() throws IOException {
+    Path path = tempDir.resolve("flags.snapshot");
+    var file = new WarmStartFile(path);
+    file.write(1, DOCUMENT);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(path, bytes);
+
+    assertThrows(IOException.class, file::read);
+
+    Files.write(path, new byte[] {1, 2, 3});
+    assertThrows(IOException.class, file::read);
+  }
+}